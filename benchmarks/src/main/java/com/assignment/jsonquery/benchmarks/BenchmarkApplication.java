@@ -0,0 +1,65 @@
+package com.assignment.jsonquery.benchmarks;
+
+import com.assignment.jsonquery.JsonQueryApplication;
+import com.assignment.jsonquery.service.DatasetService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Starts the application for a benchmark trial, each with its own in-memory database
+ * and storage directory, which is deleted when the application is closed.
+ */
+final class BenchmarkApplication {
+
+    // Records per batchInsert call while loading a dataset
+    private static final int LOAD_CHUNK_SIZE = 10_000;
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(boolean cacheEnabled, String... properties) {
+        Path storageDir;
+        try {
+            storageDir = Files.createTempDirectory("bench-storage-");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(JsonQueryApplication.class)
+                .logStartupInfo(false)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "spring.jpa.show-sql=false",
+                        "spring.h2.console.enabled=false",
+                        "logging.level.root=WARN",
+                        "dataset.cache.enabled=" + cacheEnabled,
+                        // Large enough that the 1M record datasets stay cached
+                        "dataset.cache.max-size=2GB",
+                        // Repeated identical queries would otherwise only measure cache hits
+                        "dataset.result-cache.enabled=false",
+                        "dataset.storage.dir=" + storageDir)
+                .properties(properties)
+                .run();
+        context.addApplicationListener((ContextClosedEvent event) -> FileSystemUtils.deleteRecursively(storageDir.toFile()));
+        return context;
+    }
+
+    static void load(DatasetService service, String datasetName, Datasets.Shape shape, int count) {
+        for (int from = 0; from < count; from += LOAD_CHUNK_SIZE) {
+            int size = Math.min(LOAD_CHUNK_SIZE, count - from);
+            List<Map<String, Object>> chunk = Datasets.generate(shape, from + 1L, size, from);
+            service.batchInsert(datasetName, chunk);
+        }
+    }
+}
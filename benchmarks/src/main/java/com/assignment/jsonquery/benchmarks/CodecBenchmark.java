@@ -0,0 +1,75 @@
+package com.assignment.jsonquery.benchmarks;
+
+import com.assignment.jsonquery.query.Projection;
+import com.assignment.jsonquery.service.RecordCodec;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of single records to and from their stored form. The JSON text
+ * benchmarks measure the format used before binary storage, for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    private static final Projection PROJECTION = Projection.parse("id,code");
+
+    @Param({ "EMPLOYEES", "GAMES" })
+    public Datasets.Shape shape;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private RecordCodec codec;
+    private List<Map<String, Object>> records;
+    private byte[][] binary;
+    private String[] json;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        codec = new RecordCodec(objectMapper);
+        records = Datasets.generate(shape, 1, SAMPLES, 7);
+        binary = records.stream().map(codec::encode).toArray(byte[][]::new);
+        json = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            json[i] = objectMapper.writeValueAsString(records.get(i));
+        }
+    }
+
+    @Benchmark
+    public byte[] encodeRecord() {
+        return codec.encode(records.get(next++ & (SAMPLES - 1)));
+    }
+
+    @Benchmark
+    public Map<String, Object> decodeRecord() {
+        return codec.decode(binary[next++ & (SAMPLES - 1)], null);
+    }
+
+    // Fields present in both shapes; the other fields are skipped
+    @Benchmark
+    public Map<String, Object> decodeRecordProjected() {
+        return codec.decode(binary[next++ & (SAMPLES - 1)], null, PROJECTION);
+    }
+
+    @Benchmark
+    public String encodeJsonText() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(records.get(next++ & (SAMPLES - 1)));
+    }
+
+    @Benchmark
+    public Map<String, Object> decodeJsonText() {
+        return codec.decode(null, json[next++ & (SAMPLES - 1)]);
+    }
+}
@@ -0,0 +1,87 @@
+package com.assignment.jsonquery.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generated records in the shapes of {@code test-data/batch_employees.json} and
+ * {@code test-data/batch_games.json}. Every record also carries a {@code code}
+ * field that is a number in some records and a string in others, to exercise
+ * mixed-type sorting.
+ */
+public final class Datasets {
+
+    private static final String[] FIRST_NAMES = { "John", "Jane", "Alice", "Bob", "Carol", "Dave", "Eve", "Frank" };
+    private static final String[] LAST_NAMES = { "Doe", "Smith", "Brown", "Wilson", "Taylor", "Clark", "Lee" };
+    private static final String[] DEPARTMENTS = { "Engineering", "Marketing", "Sales", "HR", "Finance", "Support" };
+    private static final String[] GENRES = { "RPG", "Sandbox", "Sports", "Shooter", "Strategy", "Puzzle" };
+    private static final String[] TITLE_WORDS = { "Elden", "Ring", "Craft", "Legends", "Quest", "Galaxy", "Shadow" };
+
+    /**
+     * Field names used by the query benchmarks for one shape.
+     */
+    public enum Shape {
+        EMPLOYEES("department", "age", "name"),
+        GAMES("genre", "rating", "title");
+
+        final String groupField;
+        final String numericField;
+        final String stringField;
+        final String mixedField = "code";
+
+        Shape(String groupField, String numericField, String stringField) {
+            this.groupField = groupField;
+            this.numericField = numericField;
+            this.stringField = stringField;
+        }
+
+        Map<String, Object> record(long id, Random random) {
+            return this == EMPLOYEES ? employee(id, random) : game(id, random);
+        }
+    }
+
+    private Datasets() {
+    }
+
+    static List<Map<String, Object>> generate(Shape shape, long firstId, int count, long seed) {
+        Random random = new Random(seed);
+        List<Map<String, Object>> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(shape.record(firstId + i, random));
+        }
+        return records;
+    }
+
+    static Map<String, Object> employee(long id, Random random) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("id", id);
+        record.put("name", pick(FIRST_NAMES, random) + " " + pick(LAST_NAMES, random));
+        record.put("age", 21 + random.nextInt(45));
+        record.put("department", pick(DEPARTMENTS, random));
+        record.put("salary", 40_000 + random.nextInt(120) * 1000);
+        record.put("code", mixedCode(random));
+        return record;
+    }
+
+    static Map<String, Object> game(long id, Random random) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("id", id);
+        record.put("title", pick(TITLE_WORDS, random) + " " + pick(TITLE_WORDS, random) + " " + random.nextInt(100));
+        record.put("genre", pick(GENRES, random));
+        record.put("rating", Math.round(random.nextDouble() * 100) / 10.0);
+        record.put("releaseYear", 1990 + random.nextInt(35));
+        record.put("code", mixedCode(random));
+        return record;
+    }
+
+    private static Object mixedCode(Random random) {
+        return random.nextInt(4) == 0 ? "C-" + random.nextInt(1000) : random.nextInt(1000);
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,83 @@
+package com.assignment.jsonquery.benchmarks;
+
+import com.assignment.jsonquery.service.DatasetService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * End-to-end requests through the controller, JSON binding and response
+ * serialization, using MockMvc so that no socket is involved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class HttpBenchmark {
+
+    private static final String QUERY_DATASET = "bench";
+    private static final String INSERT_DATASET = "bench_inserts";
+
+    @Param({ "10000", "100000" })
+    public int records;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Random random = new Random(42);
+    private long nextId = 1;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(true);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        BenchmarkApplication.load(context.getBean(DatasetService.class), QUERY_DATASET,
+                Datasets.Shape.EMPLOYEES, records);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult insertRecord() throws Exception {
+        String body = objectMapper.writeValueAsString(Datasets.employee(nextId++, random));
+        return mockMvc.perform(post("/api/dataset/{datasetName}/record", INSERT_DATASET)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult groupBy() throws Exception {
+        return mockMvc.perform(get("/api/dataset/{datasetName}/query", QUERY_DATASET)
+                .param("groupBy", "department")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult sortBy() throws Exception {
+        return mockMvc.perform(get("/api/dataset/{datasetName}/query", QUERY_DATASET)
+                .param("sortBy", "age")
+                .param("order", "desc")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult sortByFirstPage() throws Exception {
+        return mockMvc.perform(get("/api/dataset/{datasetName}/query", QUERY_DATASET)
+                .param("sortBy", "age")
+                .param("limit", "100")).andReturn();
+    }
+}
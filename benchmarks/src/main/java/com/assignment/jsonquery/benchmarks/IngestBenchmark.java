@@ -0,0 +1,65 @@
+package com.assignment.jsonquery.benchmarks;
+
+import com.assignment.jsonquery.dto.InsertRecordResponse;
+import com.assignment.jsonquery.service.DatasetService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single and batch inserts into a dataset that grows over the run. Each call
+ * inserts records with fresh ids, so nothing is skipped as a duplicate.
+ * Runs on each record store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class IngestBenchmark {
+
+    private static final String DATASET = "bench";
+
+    @Param({ "1000" })
+    public int batchSize;
+
+    @Param({ "EMPLOYEES", "GAMES" })
+    public Datasets.Shape shape;
+
+    @Param({ "jpa", "segment" })
+    public String storage;
+
+    private ConfigurableApplicationContext context;
+    private DatasetService service;
+    private final Random random = new Random(42);
+    private long nextId = 1;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(true, "dataset.storage.type=" + storage);
+        service = context.getBean(DatasetService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public InsertRecordResponse insertRecord() {
+        return service.insertRecord(DATASET, shape.record(nextId++, random));
+    }
+
+    // Generating the batch is part of the measurement but small next to the insert itself
+    @Benchmark
+    public InsertRecordResponse batchInsert() {
+        List<Map<String, Object>> batch = Datasets.generate(shape, nextId, batchSize, nextId);
+        nextId += batchSize;
+        return service.batchInsert(DATASET, batch);
+    }
+}
@@ -0,0 +1,94 @@
+package com.assignment.jsonquery.benchmarks;
+
+import com.assignment.jsonquery.service.DatasetService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queries running while batch inserts flood the server, over real HTTP so that
+ * the request threads of the servlet container take part. Compare the
+ * {@code mixed:query} percentiles between the parameter combinations to see how
+ * much the ingest load delays queries.
+ * <p>
+ * {@code virtualThreads} only changes anything on Java 21 and later. The
+ * platform thread pool is made small so that the ingest threads of the
+ * benchmark can saturate it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class MixedLoadBenchmark {
+
+    private static final String QUERY_DATASET = "bench";
+    private static final String INSERT_DATASET = "bench_inserts";
+    private static final int BATCH_SIZE = 1_000;
+
+    @Param({ "true", "false" })
+    public boolean limits;
+
+    @Param({ "true", "false" })
+    public boolean virtualThreads;
+
+    @Param({ "100000" })
+    public int records;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private URI queryUri;
+    private URI batchUri;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(true,
+                "dataset.concurrency.enabled=" + limits,
+                "spring.threads.virtual.enabled=" + virtualThreads,
+                "server.tomcat.threads.max=16");
+        BenchmarkApplication.load(context.getBean(DatasetService.class), QUERY_DATASET,
+                Datasets.Shape.EMPLOYEES, records);
+
+        String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        queryUri = URI.create(base + "/api/dataset/" + QUERY_DATASET + "/query?groupBy=department&agg=count,avg(age)");
+        batchUri = URI.create(base + "/api/dataset/" + INSERT_DATASET + "/batch");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(24)
+    public int batchInsert() throws Exception {
+        long firstId = nextId.getAndAdd(BATCH_SIZE);
+        byte[] body = objectMapper.writeValueAsBytes(
+                Datasets.generate(Datasets.Shape.EMPLOYEES, firstId, BATCH_SIZE, firstId));
+        HttpRequest request = HttpRequest.newBuilder(batchUri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public int query() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(queryUri).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,86 @@
+package com.assignment.jsonquery.benchmarks;
+
+import com.assignment.jsonquery.service.DatasetService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group-by and sort-by through {@link DatasetService}, with and without the dataset cache,
+ * on each record store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class QueryBenchmark {
+
+    private static final String DATASET = "bench";
+
+    @Param({ "10000", "100000", "1000000" })
+    public int records;
+
+    @Param({ "EMPLOYEES", "GAMES" })
+    public Datasets.Shape shape;
+
+    @Param({ "true", "false" })
+    public boolean cache;
+
+    @Param({ "jpa", "segment" })
+    public String storage;
+
+    private ConfigurableApplicationContext context;
+    private DatasetService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(cache, "dataset.storage.type=" + storage);
+        service = context.getBean(DatasetService.class);
+        BenchmarkApplication.load(service, DATASET, shape, records);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Map<String, List<Map<String, Object>>> groupBy() {
+        return service.groupBy(DATASET, shape.groupField);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> sortByNumericAsc() {
+        return service.sortBy(DATASET, shape.numericField, "asc");
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> sortByNumericDesc() {
+        return service.sortBy(DATASET, shape.numericField, "desc");
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> sortByStringAsc() {
+        return service.sortBy(DATASET, shape.stringField, "asc");
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> sortByStringDesc() {
+        return service.sortBy(DATASET, shape.stringField, "desc");
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> sortByMixedAsc() {
+        return service.sortBy(DATASET, shape.mixedField, "asc");
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> sortByMixedDesc() {
+        return service.sortBy(DATASET, shape.mixedField, "desc");
+    }
+}
@@ -2,8 +2,10 @@ package com.assignment.jsonquery;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class JsonQueryApplication {
     public static void main(String[] args) {
         SpringApplication.run(JsonQueryApplication.class, args);
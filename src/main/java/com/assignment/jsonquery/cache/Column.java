@@ -0,0 +1,30 @@
+package com.assignment.jsonquery.cache;
+
+/**
+ * Values of one field across all rows of a {@link ColumnarDataset}. A row that
+ * does not have the field, or has it set to null, reads as null.
+ */
+public abstract class Column {
+
+    protected int size;
+
+    public int size() {
+        return size;
+    }
+
+    public abstract boolean isNull(int row);
+
+    // Value as the JSON parser would have produced it
+    public abstract Object get(int row);
+
+    // Appends a non-null value, or returns false if this column cannot hold it
+    abstract boolean tryAppend(Object value);
+
+    abstract void appendNull();
+
+    abstract long estimatedBytes();
+
+    static int grow(int capacity) {
+        return Math.max(16, capacity + (capacity >> 1));
+    }
+}
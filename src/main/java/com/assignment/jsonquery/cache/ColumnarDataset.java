@@ -0,0 +1,235 @@
+package com.assignment.jsonquery.cache;
+
+import com.assignment.jsonquery.query.FieldPath;
+import com.assignment.jsonquery.query.GroupKeyDictionary;
+import com.assignment.jsonquery.query.ParsedRow;
+import com.assignment.jsonquery.query.Projection;
+import com.assignment.jsonquery.query.RecordTable;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Parsed records of one dataset stored column by column: one {@link Column} per
+ * field, with numbers in primitive arrays and strings dictionary-encoded. The
+ * key order of every record is kept as a shape id so that records read back
+ * exactly as they were parsed.
+ * <p>
+ * Queries must run through {@link #read(Function)}, which holds the read lock
+ * while appends take the write lock.
+ */
+public class ColumnarDataset implements RecordTable {
+
+    private static final Object ABSENT = new Object();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int size;
+    private long[] rowIds = new long[16];
+    private int[] shapeIds = new int[16];
+
+    private final List<String> fieldNames = new ArrayList<>();
+    private final Map<String, Integer> fieldIds = new HashMap<>();
+    private final List<Column> columns = new ArrayList<>();
+
+    private final List<int[]> shapes = new ArrayList<>();
+    private final Map<Shape, Integer> shapeCodes = new HashMap<>();
+
+    public static ColumnarDataset of(RecordTable table) {
+        ColumnarDataset dataset = new ColumnarDataset();
+        for (int row = 0; row < table.size(); row++) {
+            dataset.appendRow(table.rowId(row), table.record(row));
+        }
+        return dataset;
+    }
+
+    public <T> T read(Function<RecordTable, T> query) {
+        lock.readLock().lock();
+        try {
+            return query.apply(this);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Appends rows that were inserted after the rows already held. Returns false,
+     * leaving the dataset unchanged, if a row id is not greater than the last one,
+     * since insertion order could then no longer be reproduced.
+     */
+    public boolean append(List<ParsedRow> rows) {
+        List<ParsedRow> ordered = new ArrayList<>(rows);
+        ordered.sort(Comparator.comparing(ParsedRow::rowId));
+
+        lock.writeLock().lock();
+        try {
+            if (!ordered.isEmpty() && size > 0 && ordered.get(0).rowId() <= rowIds[size - 1]) {
+                return false;
+            }
+            for (ParsedRow row : ordered) {
+                appendRow(row.rowId(), row.record());
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 12L * rowIds.length + 64L * fieldNames.size();
+            for (Column column : columns) {
+                bytes += column.estimatedBytes();
+            }
+            for (int[] shape : shapes) {
+                bytes += 16 + 4L * shape.length;
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Typed access for queries that can work on column values directly; null if no record has the field
+    public Column column(String field) {
+        Integer fieldId = fieldIds.get(field);
+        return fieldId == null ? null : columns.get(fieldId);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long rowId(int row) {
+        return rowIds[row];
+    }
+
+    @Override
+    public Object value(int row, String field) {
+        Integer fieldId = fieldIds.get(field);
+        return fieldId == null ? null : columns.get(fieldId).get(row);
+    }
+
+    // Top-level values are coded from the typed columns, without boxing them
+    @Override
+    public int groupId(int row, FieldPath path, GroupKeyDictionary keys) {
+        if (!path.isTopLevel()) {
+            return RecordTable.super.groupId(row, path, keys);
+        }
+        Column column = column(path.root());
+        if (column == null || column.isNull(row)) {
+            return keys.idOf(null);
+        }
+        if (column instanceof LongColumn longs) {
+            return keys.idOfLong(longs.getLong(row));
+        }
+        if (column instanceof DoubleColumn doubles) {
+            return keys.idOfDouble(doubles.getDouble(row));
+        }
+        if (column instanceof StringColumn strings) {
+            return keys.idOf(strings.dictionaryValue(strings.code(row)));
+        }
+        return keys.idOf(column.get(row));
+    }
+
+    @Override
+    public Map<String, Object> record(int row) {
+        int[] shape = shapes.get(shapeIds[row]);
+        Map<String, Object> record = new LinkedHashMap<>(Math.max(16, shape.length * 2));
+        for (int fieldId : shape) {
+            record.put(fieldNames.get(fieldId), columns.get(fieldId).get(row));
+        }
+        return record;
+    }
+
+    @Override
+    public Map<String, Object> record(int row, Projection projection) {
+        int[] shape = shapes.get(shapeIds[row]);
+        Map<String, Object> record = new LinkedHashMap<>();
+        for (int fieldId : shape) {
+            String field = fieldNames.get(fieldId);
+            if (projection.contains(field)) {
+                record.put(field, columns.get(fieldId).get(row));
+            }
+        }
+        return record;
+    }
+
+    private void appendRow(long rowId, Map<String, Object> record) {
+        int[] shape = new int[record.size()];
+        int position = 0;
+        for (String field : record.keySet()) {
+            shape[position++] = fieldIds.computeIfAbsent(field, this::addField);
+        }
+
+        Object[] values = new Object[columns.size()];
+        Arrays.fill(values, ABSENT);
+        position = 0;
+        for (Object value : record.values()) {
+            values[shape[position++]] = value;
+        }
+
+        for (int fieldId = 0; fieldId < values.length; fieldId++) {
+            Object value = values[fieldId];
+            Column column = columns.get(fieldId);
+            if (value == ABSENT || value == null) {
+                column.appendNull();
+            } else if (!column.tryAppend(value)) {
+                column = promote(column, value);
+                column.tryAppend(value);
+                columns.set(fieldId, column);
+            }
+        }
+
+        if (size == rowIds.length) {
+            rowIds = Arrays.copyOf(rowIds, Column.grow(size));
+            shapeIds = Arrays.copyOf(shapeIds, Column.grow(size));
+        }
+        rowIds[size] = rowId;
+        shapeIds[size] = shapeCodes.computeIfAbsent(new Shape(shape), key -> {
+            shapes.add(key.fieldIds());
+            return shapes.size() - 1;
+        });
+        size++;
+    }
+
+    private int addField(String field) {
+        fieldNames.add(field);
+        columns.add(new UntypedColumn(size));
+        return fieldNames.size() - 1;
+    }
+
+    // Untyped columns become typed by their first value; typed columns fall back to objects
+    private static Column promote(Column column, Object value) {
+        if (column instanceof UntypedColumn) {
+            if (LongColumn.accepts(value)) {
+                return new LongColumn(column.size());
+            }
+            if (DoubleColumn.accepts(value)) {
+                return new DoubleColumn(column.size());
+            }
+            if (StringColumn.accepts(value)) {
+                return new StringColumn(column.size());
+            }
+        }
+        return new ObjectColumn(column);
+    }
+
+    private record Shape(int[] fieldIds) {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Shape shape && Arrays.equals(fieldIds, shape.fieldIds);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(fieldIds);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.assignment.jsonquery.cache;
+
+import com.assignment.jsonquery.config.DatasetProperties;
+import com.assignment.jsonquery.query.ParsedRow;
+import com.assignment.jsonquery.query.RecordTable;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+
+/**
+ * Size-bounded LRU cache of {@link ColumnarDataset}s.
+ * <p>
+ * Datasets are loaded on a query miss and kept current by inserts, which append
+ * their rows once the inserting transaction has committed. To never cache a
+ * load that raced with a write, every dataset carries a generation counter that
+ * each write bumps when it starts and again when it completes: a load is only
+ * cached if no write was in flight when it started and the generation is
+ * unchanged when it finishes.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DatasetCache {
+
+    private final DatasetProperties properties;
+
+    private final LinkedHashMap<String, ColumnarDataset> datasets = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, WriteState> writeStates = new HashMap<>();
+
+    public synchronized Optional<ColumnarDataset> get(String datasetName) {
+        return Optional.ofNullable(datasets.get(datasetName));
+    }
+
+    /**
+     * Call before reading a dataset from storage. Returns the token to pass to
+     * {@link #offer}, or -1 if the result must not be cached.
+     */
+    public synchronized long beginLoad(String datasetName) {
+        return properties.getCache().isEnabled() ? version(datasetName) : -1;
+    }
+
+    /**
+     * Version of the dataset's contents, which changes with every write, or -1 while
+     * a write is in flight. Equal versions mean no write happened in between.
+     */
+    public synchronized long version(String datasetName) {
+        WriteState state = writeState(datasetName);
+        return state.inFlight > 0 ? -1 : state.generation;
+    }
+
+    /**
+     * Caches the records just read from storage, unless a write happened since
+     * {@link #beginLoad} or they do not fit into the cache.
+     */
+    public void offer(String datasetName, long token, RecordTable table) {
+        if (token < 0) {
+            return;
+        }
+
+        ColumnarDataset dataset = ColumnarDataset.of(table);
+        long bytes = dataset.estimatedBytes();
+
+        synchronized (this) {
+            if (writeState(datasetName).generation != token) {
+                return;
+            }
+            if (bytes > maxBytes()) {
+                log.debug("Dataset '{}' ({} bytes) is larger than the cache, not caching", datasetName, bytes);
+                return;
+            }
+            datasets.put(datasetName, dataset);
+            evictToBudget();
+        }
+    }
+
+    public synchronized void evict(String datasetName) {
+        datasets.remove(datasetName);
+    }
+
+    /**
+     * Starts a write to the dataset. Rows added to the returned handle are appended
+     * to the cached dataset after the current transaction commits, or immediately
+     * when there is no transaction.
+     */
+    public Write beginWrite(String datasetName) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new Write(datasetName, false);
+        }
+
+        synchronized (this) {
+            WriteState state = writeState(datasetName);
+            state.inFlight++;
+            state.generation++;
+        }
+
+        Write write = new Write(datasetName, true);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                complete(datasetName, write.pending, status == STATUS_COMMITTED, true);
+            }
+        });
+        return write;
+    }
+
+    private void complete(String datasetName, List<ParsedRow> rows, boolean committed, boolean inFlight) {
+        ColumnarDataset dataset;
+        synchronized (this) {
+            dataset = datasets.get(datasetName);
+        }
+
+        boolean appended = true;
+        if (committed && dataset != null && !rows.isEmpty()) {
+            appended = dataset.append(rows);
+        }
+
+        synchronized (this) {
+            WriteState state = writeState(datasetName);
+            if (inFlight) {
+                state.inFlight--;
+            }
+            state.generation++;
+            if (!appended) {
+                datasets.remove(datasetName);
+            }
+            evictToBudget();
+        }
+    }
+
+    private WriteState writeState(String datasetName) {
+        return writeStates.computeIfAbsent(datasetName, name -> new WriteState());
+    }
+
+    private long maxBytes() {
+        return properties.getCache().getMaxSize().toBytes();
+    }
+
+    // Drops least recently used datasets until the total estimate fits the budget
+    private void evictToBudget() {
+        long total = 0;
+        for (ColumnarDataset dataset : datasets.values()) {
+            total += dataset.estimatedBytes();
+        }
+
+        Iterator<Map.Entry<String, ColumnarDataset>> eldest = datasets.entrySet().iterator();
+        while (total > maxBytes() && eldest.hasNext()) {
+            Map.Entry<String, ColumnarDataset> entry = eldest.next();
+            total -= entry.getValue().estimatedBytes();
+            eldest.remove();
+            log.debug("Evicted dataset '{}' from cache", entry.getKey());
+        }
+    }
+
+    private static class WriteState {
+        private long generation;
+        private int inFlight;
+    }
+
+    public class Write {
+
+        private final String datasetName;
+        private final boolean transactional;
+        private final List<ParsedRow> pending = new ArrayList<>();
+
+        private Write(String datasetName, boolean transactional) {
+            this.datasetName = datasetName;
+            this.transactional = transactional;
+        }
+
+        public void add(List<ParsedRow> rows) {
+            if (transactional) {
+                pending.addAll(rows);
+            } else {
+                complete(datasetName, rows, true, false);
+            }
+        }
+    }
+}
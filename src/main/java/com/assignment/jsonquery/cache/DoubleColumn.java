@@ -0,0 +1,64 @@
+package com.assignment.jsonquery.cache;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Floating point values, read back as Double.
+ */
+public class DoubleColumn extends Column {
+
+    private double[] values = new double[16];
+    private final BitSet nulls = new BitSet();
+
+    DoubleColumn(int leadingNulls) {
+        for (int i = 0; i < leadingNulls; i++) {
+            appendNull();
+        }
+    }
+
+    static boolean accepts(Object value) {
+        return value instanceof Double;
+    }
+
+    public double getDouble(int row) {
+        return values[row];
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    @Override
+    public Object get(int row) {
+        return nulls.get(row) ? null : values[row];
+    }
+
+    @Override
+    boolean tryAppend(Object value) {
+        if (!accepts(value)) {
+            return false;
+        }
+        ensureCapacity();
+        values[size++] = (Double) value;
+        return true;
+    }
+
+    @Override
+    void appendNull() {
+        ensureCapacity();
+        nulls.set(size++);
+    }
+
+    @Override
+    long estimatedBytes() {
+        return 8L * values.length + nulls.size() / 8;
+    }
+
+    private void ensureCapacity() {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, grow(values.length));
+        }
+    }
+}
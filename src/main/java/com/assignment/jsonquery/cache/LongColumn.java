@@ -0,0 +1,73 @@
+package com.assignment.jsonquery.cache;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Integral values. Values that fit in an int read back as Integer and larger ones
+ * as Long, which is how Jackson parses integral JSON numbers.
+ */
+public class LongColumn extends Column {
+
+    private long[] values = new long[16];
+    private final BitSet nulls = new BitSet();
+
+    LongColumn(int leadingNulls) {
+        for (int i = 0; i < leadingNulls; i++) {
+            appendNull();
+        }
+    }
+
+    static boolean accepts(Object value) {
+        return value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte;
+    }
+
+    public long getLong(int row) {
+        return values[row];
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    @Override
+    public Object get(int row) {
+        if (nulls.get(row)) {
+            return null;
+        }
+        long value = values[row];
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            return (int) value;
+        }
+        return value;
+    }
+
+    @Override
+    boolean tryAppend(Object value) {
+        if (!accepts(value)) {
+            return false;
+        }
+        ensureCapacity();
+        values[size++] = ((Number) value).longValue();
+        return true;
+    }
+
+    @Override
+    void appendNull() {
+        ensureCapacity();
+        nulls.set(size++);
+    }
+
+    @Override
+    long estimatedBytes() {
+        return 8L * values.length + nulls.size() / 8;
+    }
+
+    private void ensureCapacity() {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, grow(values.length));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.assignment.jsonquery.cache;
+
+import java.util.Arrays;
+
+/**
+ * Fallback for booleans, nested objects and arrays, big numbers and fields whose
+ * values do not share one type. Nested values are shared with every reader and
+ * must not be modified.
+ */
+public class ObjectColumn extends Column {
+
+    private Object[] values = new Object[16];
+
+    ObjectColumn(Column source) {
+        for (int row = 0; row < source.size(); row++) {
+            ensureCapacity();
+            values[size++] = source.get(row);
+        }
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        return values[row] == null;
+    }
+
+    @Override
+    public Object get(int row) {
+        return values[row];
+    }
+
+    @Override
+    boolean tryAppend(Object value) {
+        ensureCapacity();
+        values[size++] = value;
+        return true;
+    }
+
+    @Override
+    void appendNull() {
+        ensureCapacity();
+        values[size++] = null;
+    }
+
+    @Override
+    long estimatedBytes() {
+        // Reference plus a rough allowance for the boxed or nested value behind it
+        return 8L * values.length + 32L * size;
+    }
+
+    private void ensureCapacity() {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, grow(values.length));
+        }
+    }
+}
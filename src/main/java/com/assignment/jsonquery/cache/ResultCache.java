@@ -0,0 +1,170 @@
+package com.assignment.jsonquery.cache;
+
+import com.assignment.jsonquery.config.DatasetProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Size-bounded LRU cache of serialized query responses, keyed by dataset and
+ * query parameters and valid for one version of the dataset (see
+ * {@link DatasetCache#version}). A write to a dataset changes its version, so
+ * the cached responses of the dataset stop matching without being tracked down.
+ * <p>
+ * Each response is also given an ETag derived from the version, which lets a
+ * client revalidate it without the query being run or the cache being read.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ResultCache implements MeterBinder {
+
+    private final DatasetProperties properties;
+    private final DatasetCache datasetCache;
+
+    // Versions restart with the application, so ETags carry the start time to stay unique
+    private final String instanceId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * ETag of the query's response for the current version of the dataset, or null
+     * while a write to the dataset is in flight.
+     */
+    public String etag(String datasetName, String query) {
+        long version = datasetCache.version(datasetName);
+        return version < 0 ? null : etag(version, query);
+    }
+
+    /**
+     * Returns the cached response for the current version of the dataset, or runs
+     * the query and caches its response. The result carries no ETag when the dataset
+     * was written while the query ran, since the response may then mix versions.
+     */
+    public Result get(String datasetName, String query, Supplier<byte[]> compute) {
+        Key key = new Key(datasetName, query);
+        long version = datasetCache.version(datasetName);
+        boolean enabled = properties.getResultCache().isEnabled();
+
+        Result cached = cached(key, version);
+        if (cached != null) {
+            return cached;
+        }
+        if (enabled) {
+            misses.incrementAndGet();
+        }
+
+        byte[] body = compute.get();
+
+        if (version < 0 || datasetCache.version(datasetName) != version) {
+            return new Result(body, null);
+        }
+        if (enabled && body.length <= properties.getResultCache().getMaxEntrySize().toBytes()) {
+            put(key, new Entry(version, body));
+        }
+        return new Result(body, etag(version, query));
+    }
+
+    // The cached response for the current version of the dataset, or null without running anything
+    public Result cached(String datasetName, String query) {
+        return cached(new Key(datasetName, query), datasetCache.version(datasetName));
+    }
+
+    private Result cached(Key key, long version) {
+        if (!properties.getResultCache().isEnabled() || version < 0) {
+            return null;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.version == version) {
+                hits.incrementAndGet();
+                return new Result(entry.body, etag(version, key.query()));
+            }
+        }
+        return null;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits.get(), misses.get(), evictions.get(), entries.size(), totalBytes);
+    }
+
+    // The stats as meters, so that the hit rate can be followed over time
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("dataset.result.cache.lookups", hits, AtomicLong::get)
+                .description("Result cache lookups answered (hit) or not (miss)")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("dataset.result.cache.lookups", misses, AtomicLong::get)
+                .description("Result cache lookups answered (hit) or not (miss)")
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("dataset.result.cache.evictions", evictions, AtomicLong::get)
+                .description("Responses evicted to stay within the size budget")
+                .register(registry);
+        Gauge.builder("dataset.result.cache.size", this, cache -> cache.stats().sizeBytes())
+                .description("Total size of the cached responses")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    private synchronized void put(Key key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        totalBytes += entry.body.length - (previous != null ? previous.body.length : 0);
+
+        // Responses of older versions of the dataset can never be returned again
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> cached = iterator.next();
+            if (cached.getKey().datasetName.equals(key.datasetName) && cached.getValue().version != entry.version) {
+                totalBytes -= cached.getValue().body.length;
+                iterator.remove();
+            }
+        }
+
+        // Drop least recently used responses until the total fits the budget
+        long maxBytes = properties.getResultCache().getMaxSize().toBytes();
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<Key, Entry> evicted = eldest.next();
+            totalBytes -= evicted.getValue().body.length;
+            eldest.remove();
+            evictions.incrementAndGet();
+            log.debug("Evicted cached response for dataset '{}'", evicted.getKey().datasetName);
+        }
+    }
+
+    private String etag(long version, String query) {
+        return String.format("\"%s-%d-%08x\"", instanceId, version, query.hashCode());
+    }
+
+    public record Result(byte[] body, String etag) {
+    }
+
+    public record Stats(long hits, long misses, long evictions, int entries, long sizeBytes) {
+    }
+
+    private record Key(String datasetName, String query) {
+    }
+
+    private record Entry(long version, byte[] body) {
+    }
+}
@@ -0,0 +1,85 @@
+package com.assignment.jsonquery.cache;
+
+import java.util.*;
+
+/**
+ * Dictionary-encoded strings: each distinct value is stored once and rows hold
+ * its code, or -1 for null.
+ */
+public class StringColumn extends Column {
+
+    public static final int NULL_CODE = -1;
+
+    private int[] codes = new int[16];
+    private final List<String> dictionary = new ArrayList<>();
+    private final Map<String, Integer> codeByValue = new HashMap<>();
+    private long dictionaryBytes;
+
+    StringColumn(int leadingNulls) {
+        for (int i = 0; i < leadingNulls; i++) {
+            appendNull();
+        }
+    }
+
+    static boolean accepts(Object value) {
+        return value instanceof String;
+    }
+
+    public int code(int row) {
+        return codes[row];
+    }
+
+    public String dictionaryValue(int code) {
+        return dictionary.get(code);
+    }
+
+    public int dictionarySize() {
+        return dictionary.size();
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        return codes[row] == NULL_CODE;
+    }
+
+    @Override
+    public Object get(int row) {
+        int code = codes[row];
+        return code == NULL_CODE ? null : dictionary.get(code);
+    }
+
+    @Override
+    boolean tryAppend(Object value) {
+        if (!accepts(value)) {
+            return false;
+        }
+        String string = (String) value;
+        Integer code = codeByValue.get(string);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(string);
+            codeByValue.put(string, code);
+            dictionaryBytes += 64 + 2L * string.length();
+        }
+        ensureCapacity();
+        codes[size++] = code;
+        return true;
+    }
+
+    @Override
+    void appendNull() {
+        ensureCapacity();
+        codes[size++] = NULL_CODE;
+    }
+
+    @Override
+    long estimatedBytes() {
+        return 4L * codes.length + dictionaryBytes;
+    }
+
+    private void ensureCapacity() {
+        if (size == codes.length) {
+            codes = Arrays.copyOf(codes, grow(codes.length));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.assignment.jsonquery.cache;
+
+/**
+ * Column of a field that has only been seen with null values so far. Replaced by
+ * a typed column once the first value arrives.
+ */
+class UntypedColumn extends Column {
+
+    UntypedColumn(int nulls) {
+        this.size = nulls;
+    }
+
+    @Override
+    public boolean isNull(int row) {
+        return true;
+    }
+
+    @Override
+    public Object get(int row) {
+        return null;
+    }
+
+    @Override
+    boolean tryAppend(Object value) {
+        return false;
+    }
+
+    @Override
+    void appendNull() {
+        size++;
+    }
+
+    @Override
+    long estimatedBytes() {
+        return 16;
+    }
+}
@@ -0,0 +1,153 @@
+package com.assignment.jsonquery.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "dataset")
+public class DatasetProperties {
+
+    private final Storage storage = new Storage();
+
+    private final Cache cache = new Cache();
+
+    private final Query query = new Query();
+
+    private final Sort sort = new Sort();
+
+    private final Group group = new Group();
+
+    private final ResultCache resultCache = new ResultCache();
+
+    private final Concurrency concurrency = new Concurrency();
+
+    private final Ingest ingest = new Ingest();
+
+    private final Metrics metrics = new Metrics();
+
+    @Getter
+    @Setter
+    public static class Storage {
+
+        // Where records are stored: the dataset_records table or segment files
+        private Type type = Type.JPA;
+
+        // Directory of the segment files, and of the database files in the persistent profile
+        private String dir = "./data";
+
+        // A dataset's segment file is closed and a new one started when it reaches this size
+        private DataSize segmentSize = DataSize.ofGigabytes(1);
+
+        public enum Type {
+            JPA, SEGMENT
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Cache {
+
+        // Keep parsed datasets in memory between queries
+        private boolean enabled = true;
+
+        // Upper bound for the estimated size of all cached datasets together
+        private DataSize maxSize = DataSize.ofMegabytes(256);
+    }
+
+    @Getter
+    @Setter
+    public static class ResultCache {
+
+        // Keep serialized query responses until the dataset changes
+        private boolean enabled = true;
+
+        // Upper bound for the size of all cached responses together
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+
+        // Responses larger than this are not cached
+        private DataSize maxEntrySize = DataSize.ofMegabytes(8);
+    }
+
+    @Getter
+    @Setter
+    public static class Query {
+
+        // Datasets with at least this many records are parsed, grouped and sorted on all cores
+        private int parallelThreshold = 50_000;
+    }
+
+    @Getter
+    @Setter
+    public static class Sort {
+
+        // Records a sort holds in memory; beyond this, sorted runs are spilled to disk and merged
+        private DataSize memoryBudget = DataSize.ofMegabytes(64);
+
+        // Spilled runs are written here until the sort is done; defaults to java.io.tmpdir
+        private String spillDir;
+    }
+
+    @Getter
+    @Setter
+    public static class Group {
+
+        // Records a group-by holds in memory; beyond this, records are partitioned by key hash on disk
+        private DataSize memoryBudget = DataSize.ofMegabytes(64);
+
+        // Partition files a spilled group-by hashes its records into, each grouped on its own
+        private int spillPartitions = 64;
+
+        // Partitions are written here until the group-by is done; defaults to java.io.tmpdir
+        private String spillDir;
+    }
+
+    @Getter
+    @Setter
+    public static class Concurrency {
+
+        // Limit how many ingest and query requests are worked on at the same time
+        private boolean enabled = true;
+
+        // Inserts and index builds running at once
+        private int maxIngest = 4;
+
+        // Queries running at once
+        private int maxQuery = 32;
+
+        // How long a request waits for a free slot before it is rejected
+        private Duration acquireTimeout = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Ingest {
+
+        // Records committed per transaction by NDJSON ingest jobs
+        private int chunkSize = 1000;
+
+        // Ingest jobs processed at the same time
+        private int workers = 2;
+
+        // Uploads are spooled here until their job has read them; defaults to java.io.tmpdir
+        private String spoolDir;
+
+        // Rejected records listed per job; further rejections are only counted
+        private int maxReportedRejections = 1000;
+
+        // Finished jobs whose status is kept for the status endpoint
+        private int retainedJobs = 100;
+    }
+
+    @Getter
+    @Setter
+    public static class Metrics {
+
+        // Add a Server-Timing header with the time per query stage to query responses
+        private boolean serverTiming = false;
+    }
+}
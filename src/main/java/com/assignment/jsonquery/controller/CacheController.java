@@ -0,0 +1,31 @@
+package com.assignment.jsonquery.controller;
+
+import com.assignment.jsonquery.cache.ResultCache;
+import com.assignment.jsonquery.dto.CacheStatsResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/cache")
+@RequiredArgsConstructor
+public class CacheController {
+
+    private final ResultCache resultCache;
+
+    // Hit, miss and eviction counts of the query result cache since startup
+    @GetMapping("/results")
+    public ResponseEntity<CacheStatsResponse> resultCacheStats() {
+        ResultCache.Stats stats = resultCache.stats();
+        CacheStatsResponse response = CacheStatsResponse.builder()
+                .hits(stats.hits())
+                .misses(stats.misses())
+                .evictions(stats.evictions())
+                .entries(stats.entries())
+                .sizeBytes(stats.sizeBytes())
+                .build();
+        return ResponseEntity.ok(response);
+    }
+}
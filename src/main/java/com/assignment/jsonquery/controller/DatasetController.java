@@ -1,24 +1,52 @@
 package com.assignment.jsonquery.controller;
 
+import com.assignment.jsonquery.cache.ResultCache;
+import com.assignment.jsonquery.config.DatasetProperties;
+import com.assignment.jsonquery.dto.AggregateResponse;
 import com.assignment.jsonquery.dto.GroupByResponse;
+import com.assignment.jsonquery.dto.IndexResponse;
+import com.assignment.jsonquery.dto.IngestJobResponse;
 import com.assignment.jsonquery.dto.InsertRecordResponse;
 import com.assignment.jsonquery.dto.SortByResponse;
+import com.assignment.jsonquery.dto.ViewResponse;
 import com.assignment.jsonquery.exception.InvalidQueryParameterException;
 import com.assignment.jsonquery.service.DatasetService;
+import com.assignment.jsonquery.service.IngestJobService;
+import com.assignment.jsonquery.service.QueryMetrics;
+import com.assignment.jsonquery.service.WorkLimiter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
 
+// Work limiter permits are held by try-with-resources without being referenced
+@SuppressWarnings("try")
 @RestController
 @RequestMapping("/api/dataset")
 @RequiredArgsConstructor
 public class DatasetController {
 
     private final DatasetService datasetService;
+    private final ResultCache resultCache;
+    private final ObjectMapper objectMapper;
+    private final WorkLimiter workLimiter;
+    private final IngestJobService ingestJobService;
+    private final QueryMetrics queryMetrics;
+    private final DatasetProperties properties;
 
     // Insert a single record into the dataset
     @PostMapping("/{datasetName}/record")
@@ -26,7 +54,10 @@ public class DatasetController {
             @PathVariable String datasetName,
             @RequestBody Map<String, Object> record) {
 
-        InsertRecordResponse response = datasetService.insertRecord(datasetName, record);
+        InsertRecordResponse response;
+        try (WorkLimiter.Permit permit = workLimiter.ingest()) {
+            response = datasetService.insertRecord(datasetName, record);
+        }
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
@@ -36,18 +67,282 @@ public class DatasetController {
             @PathVariable String datasetName,
             @RequestBody List<Map<String, Object>> records) {
 
-        InsertRecordResponse response = datasetService.batchInsert(datasetName, records);
+        InsertRecordResponse response;
+        try (WorkLimiter.Permit permit = workLimiter.ingest()) {
+            response = datasetService.batchInsert(datasetName, records);
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    // Upload records as NDJSON (one JSON object per line) to be inserted in the background.
+    // Returns a job id right away; poll the job for progress and rejected records.
+    @PostMapping(value = "/{datasetName}/ingest", consumes = "application/x-ndjson")
+    public ResponseEntity<IngestJobResponse> ingest(
+            @PathVariable String datasetName,
+            InputStream body) throws IOException {
+
+        IngestJobResponse response = ingestJobService.submit(datasetName, body);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(ServletUriComponentsBuilder.fromCurrentRequest()
+                        .path("/{jobId}")
+                        .buildAndExpand(response.getJobId())
+                        .toUri())
+                .body(response);
+    }
+
+    // Progress of an ingest job
+    @GetMapping("/{datasetName}/ingest/{jobId}")
+    public ResponseEntity<IngestJobResponse> ingestStatus(
+            @PathVariable String datasetName,
+            @PathVariable String jobId) {
+
+        return ResponseEntity.ok(ingestJobService.status(datasetName, jobId));
+    }
+
+    // Index a field so grouping and sorting on it no longer scan the dataset
+    @PostMapping("/{datasetName}/index/{fieldName}")
+    public ResponseEntity<IndexResponse> createIndex(
+            @PathVariable String datasetName,
+            @PathVariable String fieldName) {
+
+        IndexResponse response;
+        try (WorkLimiter.Permit permit = workLimiter.ingest()) {
+            response = datasetService.createIndex(datasetName, fieldName);
+        }
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
-    // Query dataset with optional grouping or sorting
+    // Materialize the aggregates of the dataset grouped by a field ('count' unless 'agg' lists others).
+    // Inserts keep the view up to date; aggregate queries it covers no longer scan the dataset.
+    @PostMapping("/{datasetName}/view/{fieldName}")
+    public ResponseEntity<ViewResponse> createView(
+            @PathVariable String datasetName,
+            @PathVariable String fieldName,
+            @RequestParam(required = false) String agg) {
+
+        ViewResponse response;
+        try (WorkLimiter.Permit permit = workLimiter.ingest()) {
+            response = datasetService.createView(datasetName, fieldName, agg);
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    // Query dataset by grouping, sorting or both (records sorted within each group), optionally filtered
+    // by 'where'. Sorted results can be paged; groups can be ordered by key or by an aggregate.
+    // 'fields' limits the records returned to the listed fields plus the group/sort key.
+    // 'typedKeys' returns the groups as a list keyed by their values as stored, so that 1 and "1" stay apart.
+    // Responses are cached until the dataset changes and carry an ETag for revalidation.
     @GetMapping("/{datasetName}/query")
     public ResponseEntity<?> queryDataset(
             @PathVariable String datasetName,
             @RequestParam(required = false) String groupBy,
             @RequestParam(required = false) String sortBy,
-            @RequestParam(required = false, defaultValue = "asc") String order) {
+            @RequestParam(required = false, defaultValue = "asc") String order,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Integer offset,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String agg,
+            @RequestParam(required = false) String groupOrder,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String where,
+            @RequestParam(required = false, defaultValue = "false") boolean typedKeys,
+            WebRequest request) {
+
+        if (groupBy == null && sortBy == null) {
+            throw new InvalidQueryParameterException(
+                    "At least one query parameter ('groupBy' or 'sortBy') must be provided.");
+        }
+
+        if (agg != null && groupBy == null) {
+            throw new InvalidQueryParameterException("'agg' can only be used with 'groupBy'.");
+        }
+
+        if (agg != null && sortBy != null) {
+            throw new InvalidQueryParameterException(
+                    "'agg' returns no records to sort, so it cannot be combined with 'sortBy'.");
+        }
+
+        if (agg != null && fields != null) {
+            throw new InvalidQueryParameterException("'fields' cannot be combined with 'agg', which returns no records.");
+        }
+
+        if (groupOrder != null && groupBy == null) {
+            throw new InvalidQueryParameterException("'groupOrder' can only be used with 'groupBy'.");
+        }
+
+        if (typedKeys && groupBy == null) {
+            throw new InvalidQueryParameterException("'typedKeys' can only be used with 'groupBy'.");
+        }
+
+        if (groupBy != null && (limit != null || offset != null || after != null)) {
+            throw new InvalidQueryParameterException(
+                    "'limit', 'offset' and 'after' can only be used with 'sortBy' alone.");
+        }
+
+        // A full sort or plain group-by of a dataset beyond the sort or group memory budget
+        // would not fit the heap as one response, so it is sorted or partitioned on disk and
+        // streamed instead of cached
+        boolean fullSort = groupBy == null && limit == null && offset == null && after == null;
+        boolean plainGroupBy = groupBy != null && sortBy == null && agg == null && groupOrder == null && !typedKeys;
+        Supplier<StreamingResponseBody> external = () -> {
+            if (fullSort && datasetService.needsExternalSort(datasetName)) {
+                return streamingBody(datasetName, null, sortBy, order, fields, where);
+            }
+            if (plainGroupBy && datasetService.needsExternalGroupBy(datasetName)) {
+                return streamingBody(datasetName, groupBy, null, order, fields, where);
+            }
+            return null;
+        };
+
+        return cachedResponse(datasetName, request, external, () -> {
+            if (groupBy != null && agg != null && typedKeys) {
+                List<AggregateResponse.Group> groups = new ArrayList<>();
+                datasetService.aggregateTyped(datasetName, groupBy, agg, groupOrder, where).forEach((key, values) ->
+                        groups.add(AggregateResponse.Group.builder().key(key).aggregates(values).build()));
+                return AggregateResponse.builder()
+                        .groups(groups)
+                        .build();
+            }
+
+            if (groupBy != null && agg != null) {
+                Map<String, Map<String, Object>> aggregates = datasetService.aggregate(datasetName, groupBy, agg,
+                        groupOrder, where);
+                return AggregateResponse.builder()
+                        .groupedAggregates(aggregates)
+                        .build();
+            }
+
+            if (groupBy != null && typedKeys) {
+                List<GroupByResponse.Group> groups = new ArrayList<>();
+                datasetService.groupByTyped(datasetName, groupBy, sortBy, order, groupOrder, fields, where)
+                        .forEach((key, records) ->
+                                groups.add(GroupByResponse.Group.builder().key(key).records(records).build()));
+                return GroupByResponse.builder()
+                        .groups(groups)
+                        .build();
+            }
+
+            if (groupBy != null) {
+                Map<String, List<Map<String, Object>>> grouped = datasetService.groupBy(datasetName, groupBy, sortBy,
+                        order, groupOrder, fields, where);
+                return GroupByResponse.builder()
+                        .groupedRecords(grouped)
+                        .build();
+            }
+
+            // sortBy alone
+            return datasetService.sortBy(datasetName, sortBy, order, limit, offset, after, fields, where);
+        });
+    }
+
+    // Same query, written to the response incrementally instead of being built in memory.
+    // Aggregated and typed-key results always go through queryDataset.
+    @GetMapping(value = "/{datasetName}/query", params = { "stream=true", "!agg", "!typedKeys" })
+    public ResponseEntity<StreamingResponseBody> streamQueryDataset(
+            @PathVariable String datasetName,
+            @RequestParam(required = false) String groupBy,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false, defaultValue = "asc") String order,
+            @RequestParam(required = false) String fields,
+            @RequestParam(required = false) String where,
+            WebRequest request) {
+
+        validateQueryParameters(groupBy, sortBy);
+
+        // Streamed responses are too large to cache, but can still be revalidated
+        String etag = resultCache.etag(datasetName, queryKey(request));
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+
+        return streamingResponse(etag, streamingBody(datasetName, groupBy, sortBy, order, fields, where));
+    }
+
+    private StreamingResponseBody streamingBody(String datasetName, String groupBy, String sortBy, String order,
+            String fields, String where) {
+        return out -> {
+            try (WorkLimiter.Permit permit = workLimiter.query()) {
+                if (groupBy != null) {
+                    datasetService.streamGroupBy(datasetName, groupBy, fields, where, out);
+                } else {
+                    datasetService.streamSortBy(datasetName, sortBy, order, fields, where, out);
+                }
+            }
+        };
+    }
 
+    private static ResponseEntity<StreamingResponseBody> streamingResponse(String etag, StreamingResponseBody body) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (etag != null) {
+            response.eTag(etag);
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Answers 304 Not Modified when the client's ETag matches the current version of
+     * the dataset, without running the query. Otherwise serves the response from the
+     * result cache, running and caching the query on a miss. On a miss, {@code external}
+     * is asked first, under the query permit, whether the query is too large to build
+     * in memory; when it returns a body, that is streamed instead. With
+     * {@code dataset.metrics.server-timing} the response reports the time spent per
+     * query stage in a {@code Server-Timing} header.
+     */
+    private ResponseEntity<?> cachedResponse(String datasetName, WebRequest request,
+            Supplier<StreamingResponseBody> external, Supplier<Object> query) {
+        String key = queryKey(request);
+        String etag = resultCache.etag(datasetName, key);
+        if (etag != null && request.checkNotModified(etag)) {
+            // The 304 status and headers have been set on the response
+            return null;
+        }
+
+        ResultCache.Result result;
+        String serverTiming;
+        try (QueryMetrics.Breakdown breakdown = queryMetrics.startBreakdown()) {
+            result = resultCache.cached(datasetName, key);
+            if (result == null) {
+                try (WorkLimiter.Permit permit = workLimiter.query()) {
+                    StreamingResponseBody streamed = external.get();
+                    if (streamed != null) {
+                        return streamingResponse(etag, streamed);
+                    }
+                    result = resultCache.get(datasetName, key, () -> {
+                        Object response = query.get();
+                        return queryMetrics.time(QueryMetrics.Stage.SERIALIZE, () -> toJson(response));
+                    });
+                }
+            }
+            serverTiming = breakdown.toServerTiming();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (result.etag() != null) {
+            response.eTag(result.etag());
+        }
+        if (properties.getMetrics().isServerTiming()) {
+            response.header("Server-Timing", serverTiming);
+        }
+        return response.body(result.body());
+    }
+
+    // All query parameters in a fixed order, so that equal queries share a cache entry
+    private static String queryKey(WebRequest request) {
+        StringBuilder key = new StringBuilder();
+        new TreeMap<>(request.getParameterMap()).forEach((name, values) ->
+                key.append(name).append('=').append(String.join(",", values)).append('&'));
+        return key.toString();
+    }
+
+    private byte[] toJson(Object response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize query response: " + e.getMessage(), e);
+        }
+    }
+
+    private void validateQueryParameters(String groupBy, String sortBy) {
         if (groupBy != null && sortBy != null) {
             throw new InvalidQueryParameterException(
                     "Cannot use both 'groupBy' and 'sortBy' in the same query. Please use one at a time.");
@@ -57,20 +352,5 @@ public class DatasetController {
             throw new InvalidQueryParameterException(
                     "At least one query parameter ('groupBy' or 'sortBy') must be provided.");
         }
-
-        if (groupBy != null) {
-            Map<String, List<Map<String, Object>>> grouped = datasetService.groupBy(datasetName, groupBy);
-            GroupByResponse response = GroupByResponse.builder()
-                    .groupedRecords(grouped)
-                    .build();
-            return ResponseEntity.ok(response);
-        }
-
-        // sortBy is not null
-        List<Map<String, Object>> sorted = datasetService.sortBy(datasetName, sortBy, order);
-        SortByResponse response = SortByResponse.builder()
-                .sortedRecords(sorted)
-                .build();
-        return ResponseEntity.ok(response);
     }
 }
@@ -0,0 +1,30 @@
+package com.assignment.jsonquery.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AggregateResponse {
+    private Map<String, Map<String, Object>> groupedAggregates;
+
+    // With 'typedKeys', the groups in order, each keyed by its value as stored
+    private List<Group> groups;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Group {
+        @JsonInclude(JsonInclude.Include.ALWAYS)
+        private Object key;
+        private Map<String, Object> aggregates;
+    }
+}
@@ -0,0 +1,16 @@
+package com.assignment.jsonquery.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CacheStatsResponse {
+    private Long hits;
+    private Long misses;
+    private Long evictions;
+    private Integer entries;
+    private Long sizeBytes;
+}
@@ -1,5 +1,6 @@
 package com.assignment.jsonquery.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 import java.util.List;
 import java.util.Map;
@@ -9,6 +10,21 @@ import java.util.Map;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class GroupByResponse {
     private Map<String, List<Map<String, Object>>> groupedRecords;
+
+    // With 'typedKeys', the groups in order, each keyed by its value as stored
+    private List<Group> groups;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Group {
+        @JsonInclude(JsonInclude.Include.ALWAYS)
+        private Object key;
+        private List<Map<String, Object>> records;
+    }
 }
@@ -0,0 +1,15 @@
+package com.assignment.jsonquery.dto;
+
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IndexResponse {
+    private String message;
+    private String dataset;
+    private String field;
+    private Long indexedRecords;
+}
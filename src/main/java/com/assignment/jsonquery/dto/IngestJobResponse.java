@@ -0,0 +1,40 @@
+package com.assignment.jsonquery.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Progress of an NDJSON ingest job; finishedAt and error are set once the job has ended
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IngestJobResponse {
+    private String jobId;
+    private String dataset;
+    private String status;
+    private Long recordsRead;
+    private Long insertedCount;
+    private Long rejectedCount;
+    private Double recordsPerSecond;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+    private List<Rejection> rejections;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Rejection {
+        private Long line;
+        private Long recordId;
+        private String reason;
+    }
+}
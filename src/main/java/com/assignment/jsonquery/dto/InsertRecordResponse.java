@@ -1,14 +1,23 @@
 package com.assignment.jsonquery.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 
+import java.util.List;
+
+// recordId is set for single inserts, the counts and id lists for batch inserts
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class InsertRecordResponse {
     private String message;
     private String dataset;
     private Long recordId;
+    private Integer insertedCount;
+    private Integer skippedCount;
+    private List<Long> insertedIds;
+    private List<Long> skippedIds;
 }
@@ -1,5 +1,6 @@
 package com.assignment.jsonquery.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 import java.util.List;
 import java.util.Map;
@@ -11,4 +12,8 @@ import java.util.Map;
 @Builder
 public class SortByResponse {
     private List<Map<String, Object>> sortedRecords;
+
+    // Pass as 'after' to fetch the next page; absent on the last page
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
 }
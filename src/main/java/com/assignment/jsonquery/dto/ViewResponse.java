@@ -0,0 +1,18 @@
+package com.assignment.jsonquery.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ViewResponse {
+    private String message;
+    private String dataset;
+    private String field;
+    private List<String> aggregates;
+    private Long groups;
+}
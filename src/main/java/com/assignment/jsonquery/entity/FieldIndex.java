@@ -0,0 +1,24 @@
+package com.assignment.jsonquery.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Table(name = "field_indexes", uniqueConstraints = @UniqueConstraint(columnNames = { "datasetName", "fieldName" }))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FieldIndex {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String datasetName;
+
+    @Column(nullable = false)
+    private String fieldName;
+}
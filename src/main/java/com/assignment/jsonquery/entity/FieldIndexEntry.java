@@ -0,0 +1,48 @@
+package com.assignment.jsonquery.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * One extracted field value of one record. {@code rowId} points at
+ * {@link DatasetRecord#getId()}; the value is kept both as a typed sort key
+ * ({@code valueType} plus {@code numberValue}/{@code stringValue}) and as the
+ * group key, which is always {@code stringValue}.
+ */
+@Entity
+@Table(name = "field_index_entries", indexes = @Index(name = "idx_field_index_entries_key",
+        columnList = "datasetName, fieldName, valueType, numberValue, stringValue, rowId"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FieldIndexEntry {
+
+    public static final int TYPE_NULL = 0;
+    public static final int TYPE_NUMBER = 1;
+    public static final int TYPE_STRING = 2;
+    public static final int TYPE_OTHER = 3;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "field_index_entries_seq")
+    @SequenceGenerator(name = "field_index_entries_seq", sequenceName = "field_index_entries_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String datasetName;
+
+    @Column(nullable = false)
+    private String fieldName;
+
+    @Column(nullable = false)
+    private Long rowId;
+
+    @Column(nullable = false)
+    private int valueType;
+
+    private Double numberValue;
+
+    @Column(columnDefinition = "VARCHAR", nullable = false)
+    private String stringValue;
+}
@@ -0,0 +1,32 @@
+package com.assignment.jsonquery.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * A registered materialized group-by view: the aggregates of a dataset grouped by
+ * one field, kept up to date by inserts. {@code aggregates} holds the labels of
+ * the aggregates in slot order, comma separated, as {@code count,sum(salary)}.
+ */
+@Entity
+@Table(name = "group_views", uniqueConstraints = @UniqueConstraint(columnNames = { "datasetName", "fieldName" }))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GroupView {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String datasetName;
+
+    @Column(nullable = false)
+    private String fieldName;
+
+    @Column(nullable = false)
+    private String aggregates;
+}
@@ -0,0 +1,43 @@
+package com.assignment.jsonquery.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * The aggregates of one group of a {@link GroupView}. {@code state} is the
+ * encoded running state of the group (see
+ * {@link com.assignment.jsonquery.query.GroupAccumulator#toBytes()}), so that
+ * new records can be folded in without reading the old ones. {@code keyJson} is
+ * the field value the group key was made from, for ordering groups by key, and
+ * {@code firstRowId} the row that opened the group, for first-seen order.
+ */
+@Entity
+@Table(name = "group_view_buckets", uniqueConstraints = @UniqueConstraint(columnNames = { "viewId", "groupKey" }),
+        indexes = @Index(name = "idx_group_view_buckets_order", columnList = "viewId, firstRowId"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class GroupViewBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "group_view_buckets_seq")
+    @SequenceGenerator(name = "group_view_buckets_seq", sequenceName = "group_view_buckets_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long viewId;
+
+    @Column(columnDefinition = "VARCHAR", nullable = false)
+    private String groupKey;
+
+    @Column(columnDefinition = "VARCHAR", nullable = false)
+    private String keyJson;
+
+    @Column(nullable = false)
+    private Long firstRowId;
+
+    @Column(columnDefinition = "VARBINARY", nullable = false)
+    private byte[] state;
+}
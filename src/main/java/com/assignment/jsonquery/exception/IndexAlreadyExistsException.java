@@ -0,0 +1,7 @@
+package com.assignment.jsonquery.exception;
+
+public class IndexAlreadyExistsException extends RuntimeException {
+    public IndexAlreadyExistsException(String message) {
+        super(message);
+    }
+}
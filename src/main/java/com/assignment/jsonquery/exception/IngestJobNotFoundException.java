@@ -0,0 +1,7 @@
+package com.assignment.jsonquery.exception;
+
+public class IngestJobNotFoundException extends RuntimeException {
+    public IngestJobNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.assignment.jsonquery.exception;
+
+public class ServerBusyException extends RuntimeException {
+    public ServerBusyException(String message) {
+        super(message);
+    }
+}
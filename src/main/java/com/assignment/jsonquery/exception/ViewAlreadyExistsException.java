@@ -0,0 +1,7 @@
+package com.assignment.jsonquery.exception;
+
+public class ViewAlreadyExistsException extends RuntimeException {
+    public ViewAlreadyExistsException(String message) {
+        super(message);
+    }
+}
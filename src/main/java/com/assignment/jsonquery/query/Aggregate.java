@@ -0,0 +1,70 @@
+package com.assignment.jsonquery.query;
+
+import com.assignment.jsonquery.exception.InvalidQueryParameterException;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One aggregate of a grouped query, such as {@code count} or {@code sum(salary)}.
+ * {@code field} is null only for the plain record count.
+ */
+public record Aggregate(Function function, String field) {
+
+    private static final Pattern SPEC = Pattern.compile("(\\w+)(?:\\(([^()]*)\\))?");
+
+    public enum Function {
+        COUNT, SUM, AVG, MIN, MAX
+    }
+
+    // Name of the aggregate in the response, e.g. "count" or "avg(age)"
+    public String label() {
+        String name = function.name().toLowerCase(Locale.ROOT);
+        return field == null ? name : name + "(" + field + ")";
+    }
+
+    /**
+     * Parses a comma separated list such as {@code count,sum(salary),avg(age)}.
+     */
+    public static List<Aggregate> parseList(String spec) {
+        if (spec == null || spec.isBlank()) {
+            throw new InvalidQueryParameterException("agg parameter cannot be null or blank");
+        }
+
+        List<Aggregate> aggregates = new ArrayList<>();
+        Set<String> labels = new HashSet<>();
+        for (String part : spec.split(",")) {
+            Aggregate aggregate = parse(part.trim());
+            if (labels.add(aggregate.label())) {
+                aggregates.add(aggregate);
+            }
+        }
+        return aggregates;
+    }
+
+    private static Aggregate parse(String part) {
+        Matcher matcher = SPEC.matcher(part);
+        if (!matcher.matches()) {
+            throw new InvalidQueryParameterException("Invalid aggregate: '" + part + "'");
+        }
+
+        Function function;
+        try {
+            function = Function.valueOf(matcher.group(1).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidQueryParameterException("Unknown aggregate function: '" + matcher.group(1)
+                    + "'. Supported: count, sum, avg, min, max");
+        }
+
+        String field = matcher.group(2) != null ? matcher.group(2).trim() : null;
+        if (field != null && field.isEmpty()) {
+            field = null;
+        }
+        if (field == null && function != Function.COUNT) {
+            throw new InvalidQueryParameterException("Aggregate '" + part + "' needs a field, e.g. "
+                    + function.name().toLowerCase(Locale.ROOT) + "(salary)");
+        }
+        return new Aggregate(function, field);
+    }
+}
@@ -0,0 +1,144 @@
+package com.assignment.jsonquery.query;
+
+import com.assignment.jsonquery.exception.InvalidQueryParameterException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A field of a record addressed by path: a top-level name such as {@code age},
+ * followed by any number of object keys and array indices, as in
+ * {@code address.city}, {@code tags[0]} or {@code stats.scores[2].value}.
+ * <p>
+ * The path is parsed once per query; resolving it against a record is then a
+ * walk over the pre-split steps. A step that does not fit the value it is
+ * applied to (a key on a non-object, an index past the end of an array or on a
+ * non-array) resolves to null, just like a missing top-level field.
+ */
+public final class FieldPath {
+
+    private final String text;
+    private final String root;
+    // One entry per step after the root: an object key, or null for an array index
+    private final String[] keys;
+    private final int[] indices;
+
+    private FieldPath(String text, String root, String[] keys, int[] indices) {
+        this.text = text;
+        this.root = root;
+        this.keys = keys;
+        this.indices = indices;
+    }
+
+    /**
+     * Parses a path. Dots separate object keys and {@code [n]} selects element n of
+     * an array, so a top-level name cannot itself contain either.
+     */
+    public static FieldPath parse(String text) {
+        List<String> keys = new ArrayList<>();
+        List<Integer> indices = new ArrayList<>();
+        String root = null;
+        int position = 0;
+        while (true) {
+            int start = position;
+            while (position < text.length() && text.charAt(position) != '.' && text.charAt(position) != '['
+                    && text.charAt(position) != ']') {
+                position++;
+            }
+            if (start == position) {
+                throw invalid(text, "empty field name at position " + start);
+            }
+            String name = text.substring(start, position);
+            if (root == null) {
+                root = name;
+            } else {
+                keys.add(name);
+                indices.add(-1);
+            }
+
+            while (position < text.length() && text.charAt(position) == '[') {
+                int close = text.indexOf(']', position);
+                if (close < 0) {
+                    throw invalid(text, "unclosed '['");
+                }
+                String index = text.substring(position + 1, close);
+                if (index.isEmpty() || index.length() > 9 || !index.chars().allMatch(Character::isDigit)) {
+                    throw invalid(text, "'" + index + "' is not an array index");
+                }
+                keys.add(null);
+                indices.add(Integer.parseInt(index));
+                position = close + 1;
+            }
+
+            if (position == text.length()) {
+                break;
+            }
+            if (text.charAt(position) != '.') {
+                throw invalid(text, "unexpected '" + text.charAt(position) + "' at position " + position);
+            }
+            position++;
+        }
+        return new FieldPath(text, root, keys.toArray(String[]::new),
+                indices.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private static InvalidQueryParameterException invalid(String text, String reason) {
+        return new InvalidQueryParameterException("Invalid field path '" + text + "': " + reason);
+    }
+
+    // The top-level field the path starts at
+    public String root() {
+        return root;
+    }
+
+    public boolean isTopLevel() {
+        return keys.length == 0;
+    }
+
+    // Steps after the root
+    public int depth() {
+        return keys.length;
+    }
+
+    // The object key of a step, or null when the step is an array index
+    public String key(int step) {
+        return keys[step];
+    }
+
+    public int index(int step) {
+        return indices[step];
+    }
+
+    public Object get(Map<String, Object> record) {
+        return resolve(record.get(root));
+    }
+
+    // The value at the path, given the value of its root field
+    public Object resolve(Object rootValue) {
+        Object value = rootValue;
+        for (int step = 0; step < keys.length && value != null; step++) {
+            if (keys[step] != null) {
+                value = (value instanceof Map<?, ?> map) ? map.get(keys[step]) : null;
+            } else {
+                value = (value instanceof List<?> list && indices[step] < list.size()) ? list.get(indices[step]) : null;
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof FieldPath path && text.equals(path.text);
+    }
+
+    @Override
+    public int hashCode() {
+        return text.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
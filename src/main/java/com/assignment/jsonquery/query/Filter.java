@@ -0,0 +1,282 @@
+package com.assignment.jsonquery.query;
+
+import com.assignment.jsonquery.exception.InvalidQueryParameterException;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * A parsed {@code where} condition, such as
+ * {@code department = Engineering AND (age > 30 OR salary >= 90000)}.
+ * <p>
+ * Literals are typed when the condition is parsed: numbers compare with numbers
+ * by value, strings with strings, and {@code true}, {@code false} and {@code null}
+ * by equality. A value of another type never equals the literal and never orders
+ * against it, so {@code !=} matches it while {@code <} does not. Missing fields
+ * have the value {@code null}. Fields may be nested paths such as
+ * {@code address.city} (see {@link FieldPath}). Each comparison is compiled once
+ * to a predicate, so evaluating a record involves no parsing or type dispatch on
+ * the literal or the path.
+ */
+public sealed interface Filter {
+
+    boolean test(RecordTable table, int row);
+
+    // Tests a single decoded record, as when scanning the store
+    boolean test(Map<String, Object> record);
+
+    // The top-level fields the condition reads
+    Set<String> fields();
+
+    /**
+     * Parses a condition; null or blank input means no condition and yields null.
+     */
+    static Filter parse(String expression) {
+        if (expression == null || expression.isBlank()) {
+            return null;
+        }
+        return new FilterParser(expression).parse();
+    }
+
+    private static Set<String> fieldsOf(List<Filter> operands) {
+        Set<String> fields = new LinkedHashSet<>();
+        operands.forEach(operand -> fields.addAll(operand.fields()));
+        return fields;
+    }
+
+    enum Operator {
+        EQ("="), NE("!="), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        boolean isOrdering() {
+            return this != EQ && this != NE;
+        }
+
+        private boolean accepts(int comparison) {
+            return switch (this) {
+                case EQ -> comparison == 0;
+                case NE -> comparison != 0;
+                case LT -> comparison < 0;
+                case LE -> comparison <= 0;
+                case GT -> comparison > 0;
+                case GE -> comparison >= 0;
+            };
+        }
+    }
+
+    record And(List<Filter> operands) implements Filter {
+
+        @Override
+        public Set<String> fields() {
+            return fieldsOf(operands);
+        }
+
+        @Override
+        public boolean test(RecordTable table, int row) {
+            for (Filter operand : operands) {
+                if (!operand.test(table, row)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean test(Map<String, Object> record) {
+            for (Filter operand : operands) {
+                if (!operand.test(record)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    record Or(List<Filter> operands) implements Filter {
+
+        @Override
+        public Set<String> fields() {
+            return fieldsOf(operands);
+        }
+
+        @Override
+        public boolean test(RecordTable table, int row) {
+            for (Filter operand : operands) {
+                if (operand.test(table, row)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean test(Map<String, Object> record) {
+            for (Filter operand : operands) {
+                if (operand.test(record)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // The field is present with a non-null value
+    record Exists(String field, FieldPath path) implements Filter {
+
+        public Exists(String field) {
+            this(field, FieldPath.parse(field));
+        }
+
+        @Override
+        public Set<String> fields() {
+            return Set.of(path.root());
+        }
+
+        @Override
+        public boolean test(RecordTable table, int row) {
+            return table.value(row, path) != null;
+        }
+
+        @Override
+        public boolean test(Map<String, Object> record) {
+            return path.get(record) != null;
+        }
+    }
+
+    final class Comparison implements Filter {
+
+        private final String field;
+        private final FieldPath path;
+        private final Operator operator;
+        private final Object literal;
+        private final Predicate<Object> matcher;
+
+        public Comparison(String field, Operator operator, Object literal) {
+            if (operator.isOrdering() && !(literal instanceof Number || literal instanceof String)) {
+                throw new InvalidQueryParameterException(String.format(
+                        "Operator '%s' needs a number or string, got: %s", operator.symbol, literal));
+            }
+            this.field = field;
+            this.path = FieldPath.parse(field);
+            this.operator = operator;
+            this.literal = (literal instanceof Number number) ? (Object) number.doubleValue() : literal;
+            this.matcher = compile(operator, this.literal);
+        }
+
+        private static Predicate<Object> compile(Operator operator, Object literal) {
+            if (literal instanceof Double number) {
+                double expected = number;
+                return value -> value instanceof Number actual
+                        ? operator.accepts(Double.compare(actual.doubleValue(), expected))
+                        : operator == Operator.NE;
+            }
+            if (literal instanceof String expected) {
+                return value -> value instanceof String actual
+                        ? operator.accepts(actual.compareTo(expected))
+                        : operator == Operator.NE;
+            }
+            // true, false or null
+            return operator == Operator.EQ
+                    ? value -> Objects.equals(value, literal)
+                    : value -> !Objects.equals(value, literal);
+        }
+
+        public String field() {
+            return field;
+        }
+
+        public Operator operator() {
+            return operator;
+        }
+
+        // Number literals are held as Double
+        public Object literal() {
+            return literal;
+        }
+
+        @Override
+        public Set<String> fields() {
+            return Set.of(path.root());
+        }
+
+        @Override
+        public boolean test(RecordTable table, int row) {
+            return matcher.test(table.value(row, path));
+        }
+
+        @Override
+        public boolean test(Map<String, Object> record) {
+            return matcher.test(path.get(record));
+        }
+    }
+
+    final class In implements Filter {
+
+        private final String field;
+        private final FieldPath path;
+        private final List<Object> literals;
+        private final Set<Double> numbers = new HashSet<>();
+        private final Set<Object> others = new HashSet<>();
+        private final boolean matchesNull;
+
+        public In(String field, List<Object> literals) {
+            this.field = field;
+            this.path = FieldPath.parse(field);
+            List<Object> normalized = new ArrayList<>(literals.size());
+            boolean nullLiteral = false;
+            for (Object literal : literals) {
+                if (literal instanceof Number number) {
+                    numbers.add(number.doubleValue());
+                    normalized.add(number.doubleValue());
+                } else if (literal == null) {
+                    nullLiteral = true;
+                    normalized.add(null);
+                } else {
+                    others.add(literal);
+                    normalized.add(literal);
+                }
+            }
+            this.literals = Collections.unmodifiableList(normalized);
+            this.matchesNull = nullLiteral;
+        }
+
+        public String field() {
+            return field;
+        }
+
+        // Number literals are held as Double
+        public List<Object> literals() {
+            return literals;
+        }
+
+        @Override
+        public Set<String> fields() {
+            return Set.of(path.root());
+        }
+
+        @Override
+        public boolean test(RecordTable table, int row) {
+            return matches(table.value(row, path));
+        }
+
+        @Override
+        public boolean test(Map<String, Object> record) {
+            return matches(path.get(record));
+        }
+
+        private boolean matches(Object value) {
+            if (value == null) {
+                return matchesNull;
+            }
+            if (value instanceof Number number) {
+                return numbers.contains(number.doubleValue());
+            }
+            return others.contains(value);
+        }
+    }
+}
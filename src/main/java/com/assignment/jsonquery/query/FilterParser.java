@@ -0,0 +1,207 @@
+package com.assignment.jsonquery.query;
+
+import com.assignment.jsonquery.exception.InvalidQueryParameterException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Recursive descent parser for {@code where} conditions:
+ *
+ * <pre>
+ * condition  = and ("OR" and)*
+ * and        = term ("AND" term)*
+ * term       = "(" condition ")"
+ *            | "exists" "(" field ")"
+ *            | field "IN" "(" literal ("," literal)* ")"
+ *            | field ("=" | "!=" | "&lt;" | "&lt;=" | "&gt;" | "&gt;=") literal
+ * literal    = number | 'quoted' | "quoted" | true | false | null | bare word
+ * </pre>
+ *
+ * Keywords are case-insensitive. A bare word that is not a number, boolean or
+ * null is a string, so {@code department = Engineering} needs no quotes.
+ */
+class FilterParser {
+
+    private static final Pattern NUMBER = Pattern.compile("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?");
+
+    private final String input;
+    private int position;
+
+    FilterParser(String input) {
+        this.input = input;
+    }
+
+    Filter parse() {
+        Filter filter = parseOr();
+        skipWhitespace();
+        if (position < input.length()) {
+            throw error("unexpected '" + input.substring(position) + "'");
+        }
+        return filter;
+    }
+
+    private Filter parseOr() {
+        List<Filter> operands = new ArrayList<>();
+        operands.add(parseAnd());
+        while (acceptKeyword("OR")) {
+            operands.add(parseAnd());
+        }
+        return operands.size() == 1 ? operands.get(0) : new Filter.Or(operands);
+    }
+
+    private Filter parseAnd() {
+        List<Filter> operands = new ArrayList<>();
+        operands.add(parseTerm());
+        while (acceptKeyword("AND")) {
+            operands.add(parseTerm());
+        }
+        return operands.size() == 1 ? operands.get(0) : new Filter.And(operands);
+    }
+
+    private Filter parseTerm() {
+        if (accept("(")) {
+            Filter inner = parseOr();
+            expect(")");
+            return inner;
+        }
+
+        int start = position;
+        if (acceptKeyword("exists") && accept("(")) {
+            String field = parseWord("field name");
+            expect(")");
+            return new Filter.Exists(field);
+        }
+        position = start;
+
+        String field = parseWord("field name");
+
+        if (acceptKeyword("IN")) {
+            expect("(");
+            List<Object> literals = new ArrayList<>();
+            do {
+                literals.add(parseLiteral());
+            } while (accept(","));
+            expect(")");
+            return new Filter.In(field, literals);
+        }
+
+        Filter.Operator operator = parseOperator();
+        return new Filter.Comparison(field, operator, parseLiteral());
+    }
+
+    private Filter.Operator parseOperator() {
+        // Two-character operators first, so that "<=" is not read as "<"
+        for (String symbol : new String[] { "!=", "<=", ">=", "=", "<", ">" }) {
+            if (accept(symbol)) {
+                for (Filter.Operator operator : Filter.Operator.values()) {
+                    if (operator.symbol.equals(symbol)) {
+                        return operator;
+                    }
+                }
+            }
+        }
+        throw error("expected one of =, !=, <, <=, >, >= or IN");
+    }
+
+    private Object parseLiteral() {
+        skipWhitespace();
+        if (position < input.length() && (peek() == '\'' || peek() == '"')) {
+            return parseQuoted();
+        }
+
+        String word = parseWord("value");
+        switch (word.toLowerCase(Locale.ROOT)) {
+            case "true":
+                return Boolean.TRUE;
+            case "false":
+                return Boolean.FALSE;
+            case "null":
+                return null;
+            default:
+                return NUMBER.matcher(word).matches() ? (Object) Double.parseDouble(word) : word;
+        }
+    }
+
+    // A field name or bare value: quoted, or a run of characters that are not whitespace or syntax
+    private String parseWord(String what) {
+        skipWhitespace();
+        if (position < input.length() && (peek() == '\'' || peek() == '"')) {
+            return parseQuoted();
+        }
+
+        int start = position;
+        while (position < input.length() && !isDelimiter(peek())) {
+            position++;
+        }
+        if (start == position) {
+            throw error("expected " + what);
+        }
+        return input.substring(start, position);
+    }
+
+    private String parseQuoted() {
+        char quote = input.charAt(position++);
+        StringBuilder value = new StringBuilder();
+        while (position < input.length() && peek() != quote) {
+            char c = input.charAt(position++);
+            if (c == '\\' && position < input.length()) {
+                c = input.charAt(position++);
+            }
+            value.append(c);
+        }
+        if (position >= input.length()) {
+            throw error("unterminated quoted value");
+        }
+        position++;
+        return value.toString();
+    }
+
+    private static boolean isDelimiter(char c) {
+        return Character.isWhitespace(c) || "()=!<>,'\"".indexOf(c) >= 0;
+    }
+
+    private boolean accept(String token) {
+        skipWhitespace();
+        if (input.startsWith(token, position)) {
+            position += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    // Keywords must be followed by a delimiter, so that a field named "order" is not read as "OR"
+    private boolean acceptKeyword(String keyword) {
+        skipWhitespace();
+        int end = position + keyword.length();
+        if (input.regionMatches(true, position, keyword, 0, keyword.length())
+                && (end == input.length() || isDelimiter(input.charAt(end)))) {
+            position = end;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) {
+            throw error("expected '" + token + "'");
+        }
+    }
+
+    private char peek() {
+        return input.charAt(position);
+    }
+
+    private void skipWhitespace() {
+        while (position < input.length() && Character.isWhitespace(peek())) {
+            position++;
+        }
+    }
+
+    private InvalidQueryParameterException error(String message) {
+        return new InvalidQueryParameterException(
+                String.format("Invalid where condition at position %d: %s", position, message));
+    }
+}
@@ -0,0 +1,47 @@
+package com.assignment.jsonquery.query;
+
+import java.util.Map;
+
+/**
+ * View of the rows of another table that matched a filter, in their original order.
+ */
+class FilteredRecordTable implements RecordTable {
+
+    private final RecordTable source;
+    private final int[] rows;
+
+    FilteredRecordTable(RecordTable source, int[] rows) {
+        this.source = source;
+        this.rows = rows;
+    }
+
+    @Override
+    public int size() {
+        return rows.length;
+    }
+
+    @Override
+    public long rowId(int row) {
+        return source.rowId(rows[row]);
+    }
+
+    @Override
+    public Object value(int row, String field) {
+        return source.value(rows[row], field);
+    }
+
+    @Override
+    public int groupId(int row, FieldPath path, GroupKeyDictionary keys) {
+        return source.groupId(rows[row], path, keys);
+    }
+
+    @Override
+    public Map<String, Object> record(int row) {
+        return source.record(rows[row]);
+    }
+
+    @Override
+    public Map<String, Object> record(int row, Projection projection) {
+        return source.record(rows[row], projection);
+    }
+}
@@ -0,0 +1,206 @@
+package com.assignment.jsonquery.query;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Running state of the aggregates of one group, kept in primitive arrays with
+ * one slot per aggregate.
+ * <p>
+ * {@code sum}, {@code avg}, {@code min} and {@code max} only consider numeric
+ * values; other values are skipped like nulls. Sums, minimums and maximums
+ * stay integral for as long as every value seen is integral and the sum does
+ * not overflow a long, and become doubles otherwise. {@code count(field)}
+ * counts the records where the field is not null.
+ */
+public class GroupAccumulator {
+
+    // Seven longs and doubles and the fractional flag
+    private static final int SLOT_BYTES = 7 * Long.BYTES + 1;
+
+    private final List<Aggregate> aggregates;
+
+    private long count;
+    private final long[] counts;
+    private final long[] longSums;
+    private final double[] doubleSums;
+    private final boolean[] fractional;
+    private final long[] longMins;
+    private final long[] longMaxes;
+    private final double[] doubleMins;
+    private final double[] doubleMaxes;
+
+    public GroupAccumulator(List<Aggregate> aggregates) {
+        this.aggregates = aggregates;
+        int slots = aggregates.size();
+        counts = new long[slots];
+        longSums = new long[slots];
+        doubleSums = new double[slots];
+        fractional = new boolean[slots];
+        longMins = new long[slots];
+        longMaxes = new long[slots];
+        doubleMins = new double[slots];
+        doubleMaxes = new double[slots];
+    }
+
+    public void addRecord() {
+        count++;
+    }
+
+    // Adds the value of the aggregate's field for the current record
+    public void add(int slot, Object value) {
+        if (value == null) {
+            return;
+        }
+
+        if (aggregates.get(slot).function() == Aggregate.Function.COUNT) {
+            counts[slot]++;
+            return;
+        }
+
+        if (!(value instanceof Number number)) {
+            return;
+        }
+
+        double asDouble = number.doubleValue();
+        boolean integral = number instanceof Integer || number instanceof Long
+                || number instanceof Short || number instanceof Byte;
+
+        if (counts[slot] == 0) {
+            doubleMins[slot] = asDouble;
+            doubleMaxes[slot] = asDouble;
+        } else {
+            doubleMins[slot] = Math.min(doubleMins[slot], asDouble);
+            doubleMaxes[slot] = Math.max(doubleMaxes[slot], asDouble);
+        }
+        doubleSums[slot] += asDouble;
+
+        if (integral && !fractional[slot]) {
+            long asLong = number.longValue();
+            if (counts[slot] == 0) {
+                longMins[slot] = asLong;
+                longMaxes[slot] = asLong;
+            } else {
+                longMins[slot] = Math.min(longMins[slot], asLong);
+                longMaxes[slot] = Math.max(longMaxes[slot], asLong);
+            }
+            try {
+                longSums[slot] = Math.addExact(longSums[slot], asLong);
+            } catch (ArithmeticException overflow) {
+                fractional[slot] = true;
+            }
+        } else {
+            fractional[slot] = true;
+        }
+        counts[slot]++;
+    }
+
+    /**
+     * Folds in the state of another accumulator for the same group that saw later
+     * records, as when partial results of a parallel scan are combined.
+     */
+    public void merge(GroupAccumulator other) {
+        count += other.count;
+        for (int slot = 0; slot < aggregates.size(); slot++) {
+            if (other.counts[slot] == 0) {
+                continue;
+            }
+            if (counts[slot] == 0) {
+                doubleMins[slot] = other.doubleMins[slot];
+                doubleMaxes[slot] = other.doubleMaxes[slot];
+                longMins[slot] = other.longMins[slot];
+                longMaxes[slot] = other.longMaxes[slot];
+            } else {
+                doubleMins[slot] = Math.min(doubleMins[slot], other.doubleMins[slot]);
+                doubleMaxes[slot] = Math.max(doubleMaxes[slot], other.doubleMaxes[slot]);
+                longMins[slot] = Math.min(longMins[slot], other.longMins[slot]);
+                longMaxes[slot] = Math.max(longMaxes[slot], other.longMaxes[slot]);
+            }
+            doubleSums[slot] += other.doubleSums[slot];
+            if (fractional[slot] || other.fractional[slot]) {
+                fractional[slot] = true;
+            } else {
+                try {
+                    longSums[slot] = Math.addExact(longSums[slot], other.longSums[slot]);
+                } catch (ArithmeticException overflow) {
+                    fractional[slot] = true;
+                }
+            }
+            counts[slot] += other.counts[slot];
+        }
+    }
+
+    /**
+     * The running state, for storing a group whose records are not kept. Decode it
+     * with {@link #fromBytes} and the same aggregates.
+     */
+    public byte[] toBytes() {
+        int slots = aggregates.size();
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + slots * SLOT_BYTES).putLong(count);
+        for (int slot = 0; slot < slots; slot++) {
+            buffer.putLong(counts[slot])
+                    .putLong(longSums[slot])
+                    .putDouble(doubleSums[slot])
+                    .put((byte) (fractional[slot] ? 1 : 0))
+                    .putLong(longMins[slot])
+                    .putLong(longMaxes[slot])
+                    .putDouble(doubleMins[slot])
+                    .putDouble(doubleMaxes[slot]);
+        }
+        return buffer.array();
+    }
+
+    public static GroupAccumulator fromBytes(List<Aggregate> aggregates, byte[] state) {
+        int slots = aggregates.size();
+        if (state.length != Long.BYTES + slots * SLOT_BYTES) {
+            throw new IllegalArgumentException(
+                    "State of " + state.length + " bytes does not match " + slots + " aggregates");
+        }
+
+        GroupAccumulator accumulator = new GroupAccumulator(aggregates);
+        ByteBuffer buffer = ByteBuffer.wrap(state);
+        accumulator.count = buffer.getLong();
+        for (int slot = 0; slot < slots; slot++) {
+            accumulator.counts[slot] = buffer.getLong();
+            accumulator.longSums[slot] = buffer.getLong();
+            accumulator.doubleSums[slot] = buffer.getDouble();
+            accumulator.fractional[slot] = buffer.get() != 0;
+            accumulator.longMins[slot] = buffer.getLong();
+            accumulator.longMaxes[slot] = buffer.getLong();
+            accumulator.doubleMins[slot] = buffer.getDouble();
+            accumulator.doubleMaxes[slot] = buffer.getDouble();
+        }
+        return accumulator;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public Map<String, Object> result() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (int slot = 0; slot < aggregates.size(); slot++) {
+            Aggregate aggregate = aggregates.get(slot);
+            result.put(aggregate.label(), value(slot, aggregate));
+        }
+        return result;
+    }
+
+    private Object value(int slot, Aggregate aggregate) {
+        if (aggregate.function() == Aggregate.Function.COUNT) {
+            return aggregate.field() == null ? count : counts[slot];
+        }
+        if (counts[slot] == 0) {
+            return null;
+        }
+        return switch (aggregate.function()) {
+            case SUM -> fractional[slot] ? (Object) doubleSums[slot] : (Object) longSums[slot];
+            case AVG -> fractional[slot] ? doubleSums[slot] / counts[slot] : (double) longSums[slot] / counts[slot];
+            case MIN -> fractional[slot] ? (Object) doubleMins[slot] : (Object) longMins[slot];
+            case MAX -> fractional[slot] ? (Object) doubleMaxes[slot] : (Object) longMaxes[slot];
+            default -> throw new IllegalStateException("Unexpected aggregate: " + aggregate);
+        };
+    }
+}
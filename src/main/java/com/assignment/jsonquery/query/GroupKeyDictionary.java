@@ -0,0 +1,111 @@
+package com.assignment.jsonquery.query;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codes the group values of a field as dense ids 0, 1, 2... in first-seen order.
+ * <p>
+ * Values are looked up by type without converting them: integral numbers by
+ * their long value and doubles by their bits in primitive hash maps, strings in
+ * a dictionary of their own and anything else (booleans, null, objects, arrays)
+ * by equality. Grouping a record therefore allocates nothing unless its value
+ * starts a new group. Values of different types stay apart, so {@code 1},
+ * {@code 1.0} and {@code "1"} are three groups; integral numbers of different
+ * widths are one, and read back as Integer when they fit in an int. Tables
+ * holding typed columns pass primitives to {@link #idOfLong} and
+ * {@link #idOfDouble} directly. The {@link #label(int) label} of a group is its
+ * string form as used in responses keyed by string, computed once per group.
+ */
+public final class GroupKeyDictionary {
+
+    private final LongIntHashMap integralIds = new LongIntHashMap();
+    private final LongIntHashMap doubleIds = new LongIntHashMap();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final Map<Object, Integer> otherIds = new HashMap<>();
+    private int nullId = -1;
+
+    private final List<Object> values = new ArrayList<>();
+    private final List<String> labels = new ArrayList<>();
+
+    // The id of the value's group, starting a new group when the value has none
+    public int idOf(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return idOfLong(((Number) value).longValue());
+        }
+        if (value instanceof Double number) {
+            return idOfDouble(number);
+        }
+
+        int next = values.size();
+        int id;
+        if (value instanceof String string) {
+            Integer known = stringIds.get(string);
+            id = (known != null) ? known : next;
+            if (known == null) {
+                stringIds.put(string, next);
+            }
+        } else if (value == null) {
+            if (nullId < 0) {
+                nullId = next;
+            }
+            id = nullId;
+        } else {
+            id = otherIds.computeIfAbsent(value, v -> next);
+        }
+        if (id == next) {
+            startGroup(value);
+        }
+        return id;
+    }
+
+    // Same as idOf for an integral value, which is only boxed when it starts a group
+    public int idOfLong(long value) {
+        int next = values.size();
+        int id = integralIds.putIfAbsent(value, next);
+        if (id == next) {
+            // Boxed the way Jackson parses integral JSON numbers
+            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                startGroup(Integer.valueOf((int) value));
+            } else {
+                startGroup(Long.valueOf(value));
+            }
+        }
+        return id;
+    }
+
+    // Same as idOf for a double value, which is only boxed when it starts a group
+    public int idOfDouble(double value) {
+        int next = values.size();
+        int id = doubleIds.putIfAbsent(Double.doubleToLongBits(value), next);
+        if (id == next) {
+            startGroup(Double.valueOf(value));
+        }
+        return id;
+    }
+
+    private void startGroup(Object value) {
+        values.add(value);
+        labels.add(null);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    // The value the group was first seen with
+    public Object value(int id) {
+        return values.get(id);
+    }
+
+    public String label(int id) {
+        String label = labels.get(id);
+        if (label == null) {
+            label = QueryEngine.groupKey(values.get(id));
+            labels.set(id, label);
+        }
+        return label;
+    }
+}
@@ -0,0 +1,46 @@
+package com.assignment.jsonquery.query;
+
+import com.assignment.jsonquery.exception.InvalidQueryParameterException;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Order of the groups of a grouped query: by group key, or by one aggregate of
+ * each group such as {@code count} or {@code avg(salary)}. {@code aggregate} is
+ * null when ordering by key. Groups that compare equal keep their first-seen order.
+ */
+public record GroupOrder(Aggregate aggregate, boolean descending) {
+
+    /**
+     * Parses {@code key}, {@code count} or {@code avg(salary)}, optionally followed
+     * by {@code :asc} or {@code :desc}.
+     */
+    public static GroupOrder parse(String spec) {
+        if (spec == null || spec.isBlank()) {
+            return null;
+        }
+
+        String by = spec.trim();
+        boolean descending = false;
+        int separator = by.lastIndexOf(':');
+        if (separator >= 0) {
+            String direction = by.substring(separator + 1).trim().toLowerCase(Locale.ROOT);
+            if (!direction.equals("asc") && !direction.equals("desc")) {
+                throw new InvalidQueryParameterException(
+                        "Invalid groupOrder direction: '" + direction + "'. Must be 'asc' or 'desc'");
+            }
+            descending = direction.equals("desc");
+            by = by.substring(0, separator).trim();
+        }
+
+        if (by.equalsIgnoreCase("key")) {
+            return new GroupOrder(null, descending);
+        }
+        List<Aggregate> aggregates = Aggregate.parseList(by);
+        if (aggregates.size() != 1) {
+            throw new InvalidQueryParameterException("groupOrder takes 'key' or a single aggregate, got: '" + by + "'");
+        }
+        return new GroupOrder(aggregates.get(0), descending);
+    }
+}
@@ -0,0 +1,36 @@
+package com.assignment.jsonquery.query;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link RecordTable} over records that were just parsed from storage.
+ */
+public class ListRecordTable implements RecordTable {
+
+    private final List<ParsedRow> rows;
+
+    public ListRecordTable(List<ParsedRow> rows) {
+        this.rows = rows;
+    }
+
+    @Override
+    public int size() {
+        return rows.size();
+    }
+
+    @Override
+    public long rowId(int row) {
+        return rows.get(row).rowId();
+    }
+
+    @Override
+    public Object value(int row, String field) {
+        return rows.get(row).record().get(field);
+    }
+
+    @Override
+    public Map<String, Object> record(int row) {
+        return rows.get(row).record();
+    }
+}
@@ -0,0 +1,84 @@
+package com.assignment.jsonquery.query;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from long keys to non-negative int values, held in
+ * two primitive arrays so that neither lookups nor inserts box their key.
+ */
+final class LongIntHashMap {
+
+    private static final int MISSING = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int shift;
+
+    LongIntHashMap() {
+        allocate(16);
+    }
+
+    int size() {
+        return size;
+    }
+
+    // The value of the key, or -1 when it has none
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            if (values[slot] == MISSING) {
+                return MISSING;
+            }
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+    }
+
+    // The value of the key, putting the given one first when the key has none
+    int putIfAbsent(long key, int value) {
+        int mask = keys.length - 1;
+        int slot = slot(key);
+        for (; values[slot] != MISSING; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        // Kept at most half full, so probe sequences stay short
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return value;
+    }
+
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != MISSING) {
+                int slot = slot(oldKeys[i]);
+                while (values[slot] != MISSING) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+    }
+}
@@ -0,0 +1,9 @@
+package com.assignment.jsonquery.query;
+
+import java.util.Map;
+
+/**
+ * A parsed record together with the id of the storage row holding it.
+ */
+public record ParsedRow(Long rowId, Map<String, Object> record) {
+}
@@ -0,0 +1,43 @@
+package com.assignment.jsonquery.query;
+
+import java.util.Map;
+
+/**
+ * View of another table whose records contain only the projected fields. Values
+ * of all fields stay readable, so filters and keys work on fields not returned.
+ */
+class ProjectedRecordTable implements RecordTable {
+
+    private final RecordTable source;
+    private final Projection projection;
+
+    ProjectedRecordTable(RecordTable source, Projection projection) {
+        this.source = source;
+        this.projection = projection;
+    }
+
+    @Override
+    public int size() {
+        return source.size();
+    }
+
+    @Override
+    public long rowId(int row) {
+        return source.rowId(row);
+    }
+
+    @Override
+    public Object value(int row, String field) {
+        return source.value(row, field);
+    }
+
+    @Override
+    public int groupId(int row, FieldPath path, GroupKeyDictionary keys) {
+        return source.groupId(row, path, keys);
+    }
+
+    @Override
+    public Map<String, Object> record(int row) {
+        return source.record(row, projection);
+    }
+}
@@ -0,0 +1,67 @@
+package com.assignment.jsonquery.query;
+
+import com.assignment.jsonquery.exception.InvalidQueryParameterException;
+
+import java.util.*;
+
+/**
+ * The top-level fields a query returns, from a {@code fields=name,age} parameter.
+ * Other fields of the stored records are skipped while decoding rather than
+ * parsed and then dropped.
+ */
+public record Projection(Set<String> fields) {
+
+    public Projection {
+        fields = Collections.unmodifiableSet(new LinkedHashSet<>(fields));
+    }
+
+    /**
+     * Parses a comma-separated list of field names; null or blank input means all
+     * fields and yields null.
+     */
+    public static Projection parse(String spec) {
+        if (spec == null || spec.isBlank()) {
+            return null;
+        }
+
+        Set<String> fields = new LinkedHashSet<>();
+        for (String field : spec.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                throw new InvalidQueryParameterException("Invalid fields: '" + spec + "' contains an empty field name");
+            }
+            fields.add(name);
+        }
+        return new Projection(fields);
+    }
+
+    // This projection with the given fields added; null fields are ignored
+    public Projection including(Collection<String> extra) {
+        Set<String> combined = new LinkedHashSet<>(fields);
+        for (String field : extra) {
+            if (field != null) {
+                combined.add(field);
+            }
+        }
+        return combined.size() == fields.size() ? this : new Projection(combined);
+    }
+
+    public Projection including(String... extra) {
+        return including(Arrays.asList(extra));
+    }
+
+    public boolean contains(String field) {
+        return fields.contains(field);
+    }
+
+    // The projected fields of a record, in the record's field order
+    public Map<String, Object> apply(Map<String, Object> record) {
+        Map<String, Object> projected = new LinkedHashMap<>(Math.max(16, fields.size() * 2));
+        for (Map.Entry<String, Object> entry : record.entrySet()) {
+            if (fields.contains(entry.getKey())) {
+                projected.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return projected;
+    }
+}
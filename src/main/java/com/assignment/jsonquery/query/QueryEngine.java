@@ -0,0 +1,528 @@
+package com.assignment.jsonquery.query;
+
+import com.assignment.jsonquery.config.DatasetProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Group-by and sort-by over a {@link RecordTable}.
+ * <p>
+ * Tables with at least {@code dataset.query.parallel-threshold} rows are
+ * processed on the common fork-join pool. The parallel paths return exactly
+ * what the sequential ones do: rows are split into contiguous chunks whose
+ * partial groups are merged in chunk order, which keeps first-seen group order
+ * and record order within groups, and sorting forks its merge sort over
+ * {@link SortKeys}.
+ * <p>
+ * Fields are given as paths (see {@link FieldPath}), parsed once per call so
+ * that each row is resolved by walking pre-split steps. Group values are coded
+ * by a {@link GroupKeyDictionary} while scanning, through
+ * {@link RecordTable#groupId} so that the columnar cache passes its primitive
+ * values without boxing them; string keys are made once per group at the end.
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryEngine {
+
+    // Chunks per worker thread, so that uneven chunks still keep every core busy
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final DatasetProperties properties;
+
+    public boolean isParallel(int rows) {
+        return rows >= properties.getQuery().getParallelThreshold();
+    }
+
+    /**
+     * The rows of the table that match the filter, or the table itself when there is no filter.
+     */
+    public RecordTable filter(RecordTable table, Filter filter) {
+        if (filter == null) {
+            return table;
+        }
+        List<int[]> matches = isParallel(table.size())
+                ? mapChunks(table.size(), (from, to) -> matchingRows(table, filter, from, to))
+                : List.of(matchingRows(table, filter, 0, table.size()));
+        return new FilteredRecordTable(table, matches.stream().flatMapToInt(Arrays::stream).toArray());
+    }
+
+    // The same rows, returning only the projected fields of each record
+    public RecordTable project(RecordTable table, Projection projection) {
+        return projection == null ? table : new ProjectedRecordTable(table, projection);
+    }
+
+    private static int[] matchingRows(RecordTable table, Filter filter, int from, int to) {
+        int[] rows = new int[to - from];
+        int matched = 0;
+        for (int row = from; row < to; row++) {
+            if (filter.test(table, row)) {
+                rows[matched++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, matched);
+    }
+
+    public Map<String, List<Map<String, Object>>> groupBy(RecordTable table, String field) {
+        return groupBy(table, field, null, false, null);
+    }
+
+    /**
+     * Groups in one pass over the table, then sorts the records within each group by
+     * {@code sortField} (when given) and orders the groups (when a group order is given).
+     * Groups are keyed by the string form of their value, so values of different types
+     * with the same string form share a group.
+     */
+    public Map<String, List<Map<String, Object>>> groupBy(RecordTable table, String field, String sortField,
+            boolean descending, GroupOrder groupOrder) {
+        Map<Object, int[]> typed = groupRows(table, FieldPath.parse(field));
+
+        // Groups whose values print the same are merged, keeping their rows in row order
+        Map<String, int[]> rowGroups = new LinkedHashMap<>();
+        Map<String, Object> keyValues = new HashMap<>();
+        typed.forEach((key, rows) -> {
+            String label = groupKey(key);
+            int[] merged = rowGroups.putIfAbsent(label, rows);
+            if (merged != null) {
+                rowGroups.put(label, mergeRows(merged, rows));
+            } else {
+                keyValues.put(label, key);
+            }
+        });
+        return groupRecords(table, rowGroups, keyValues::get, sortField, descending, groupOrder);
+    }
+
+    /**
+     * Like {@link #groupBy(RecordTable, String, String, boolean, GroupOrder)}, keyed by the
+     * group values as stored: {@code 1}, {@code 1.0} and {@code "1"} are separate groups.
+     */
+    public Map<Object, List<Map<String, Object>>> groupByTyped(RecordTable table, String field, String sortField,
+            boolean descending, GroupOrder groupOrder) {
+        return groupRecords(table, groupRows(table, FieldPath.parse(field)), key -> key, sortField, descending,
+                groupOrder);
+    }
+
+    private <K> Map<K, List<Map<String, Object>>> groupRecords(RecordTable table, Map<K, int[]> rowGroups,
+            Function<K, Object> keyValue, String sortField, boolean descending, GroupOrder groupOrder) {
+        List<K> keys = orderedKeys(table, rowGroups, keyValue, groupOrder);
+
+        if (sortField != null) {
+            SortKeys sortKeys = SortKeys.extract(table, FieldPath.parse(sortField));
+            (isParallel(table.size()) ? rowGroups.values().parallelStream() : rowGroups.values().stream())
+                    .forEach(rows -> sortKeys.sort(rows, descending, false));
+        }
+
+        Map<String, Object>[] records = isParallel(table.size()) ? readRecords(table) : null;
+        Map<K, List<Map<String, Object>>> groups = new LinkedHashMap<>();
+        for (K key : keys) {
+            int[] rows = rowGroups.get(key);
+            List<Map<String, Object>> group = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                group.add(records != null ? records[row] : table.record(row));
+            }
+            groups.put(key, group);
+        }
+        return groups;
+    }
+
+    // Row indices of each group in row order, groups in first-seen order and keyed by their value
+    private Map<Object, int[]> groupRows(RecordTable table, FieldPath field) {
+        List<KeyedRows> partials = isParallel(table.size())
+                ? mapChunks(table.size(), (from, to) -> groupRows(table, field, from, to))
+                : List.of(groupRows(table, field, 0, table.size()));
+        if (partials.size() == 1) {
+            return partials.get(0).toMap();
+        }
+
+        KeyedRows merged = new KeyedRows();
+        for (KeyedRows partial : partials) {
+            for (int id = 0; id < partial.keys.size(); id++) {
+                merged.rowsOf(merged.keys.idOf(partial.keys.value(id))).addAll(partial.rows.get(id));
+            }
+        }
+        return merged.toMap();
+    }
+
+    private static KeyedRows groupRows(RecordTable table, FieldPath field, int from, int to) {
+        KeyedRows groups = new KeyedRows();
+        for (int row = from; row < to; row++) {
+            groups.rowsOf(table.groupId(row, field, groups.keys)).add(row);
+        }
+        return groups;
+    }
+
+    // Both arrays are in row order, and so is the result
+    private static int[] mergeRows(int[] rows1, int[] rows2) {
+        int[] merged = new int[rows1.length + rows2.length];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < merged.length; k++) {
+            merged[k] = (j == rows2.length || (i < rows1.length && rows1[i] < rows2[j])) ? rows1[i++] : rows2[j++];
+        }
+        return merged;
+    }
+
+    // Group keys in the requested order; must run before the rows of each group are re-sorted
+    private static <K> List<K> orderedKeys(RecordTable table, Map<K, int[]> rowGroups, Function<K, Object> keyValue,
+            GroupOrder groupOrder) {
+        List<K> keys = new ArrayList<>(rowGroups.keySet());
+        if (groupOrder == null) {
+            return keys;
+        }
+
+        // Keys are ordered by the value they were made from, so that 9 comes before 10
+        Map<K, Object> orderValues = new HashMap<>();
+        List<Aggregate> aggregates = groupOrder.aggregate() != null ? List.of(groupOrder.aggregate()) : List.of();
+        FieldPath aggregateField = aggregates.isEmpty() ? null : fieldPath(aggregates.get(0));
+        rowGroups.forEach((key, rows) -> {
+            if (groupOrder.aggregate() == null) {
+                orderValues.put(key, keyValue.apply(key));
+                return;
+            }
+            GroupAccumulator accumulator = new GroupAccumulator(aggregates);
+            for (int row : rows) {
+                accumulator.addRecord();
+                if (aggregateField != null) {
+                    accumulator.add(0, table.value(row, aggregateField));
+                }
+            }
+            orderValues.put(key, accumulator.result().get(groupOrder.aggregate().label()));
+        });
+
+        sortKeys(keys, orderValues, groupOrder.descending());
+        return keys;
+    }
+
+    // Stable, so groups with equal order values keep their first-seen order
+    private static <K> void sortKeys(List<K> keys, Map<K, Object> orderValues, boolean descending) {
+        Comparator<K> order = (k1, k2) -> compareValues(orderValues.get(k1), orderValues.get(k2));
+        keys.sort(descending ? order.reversed() : order);
+    }
+
+    /**
+     * Like {@link #aggregate(RecordTable, String, List)} with the groups in the given
+     * order. The aggregate the groups are ordered by need not be one of the requested ones.
+     */
+    public Map<String, Map<String, Object>> aggregate(RecordTable table, String field, List<Aggregate> aggregates,
+            GroupOrder groupOrder) {
+        Map<Object, GroupAccumulator> typed = accumulate(table, FieldPath.parse(field),
+                withOrderAggregate(aggregates, groupOrder));
+
+        // Groups whose values print the same are merged, like in groupBy
+        Map<String, GroupAccumulator> groups = new LinkedHashMap<>();
+        Map<String, Object> keyValues = new HashMap<>();
+        typed.forEach((key, accumulator) -> {
+            String label = groupKey(key);
+            GroupAccumulator merged = groups.putIfAbsent(label, accumulator);
+            if (merged != null) {
+                merged.merge(accumulator);
+            } else {
+                keyValues.put(label, key);
+            }
+        });
+        return results(groups, keyValues::get, aggregates, groupOrder);
+    }
+
+    /**
+     * Like {@link #aggregate(RecordTable, String, List, GroupOrder)}, keyed by the group
+     * values as stored.
+     */
+    public Map<Object, Map<String, Object>> aggregateTyped(RecordTable table, String field,
+            List<Aggregate> aggregates, GroupOrder groupOrder) {
+        Map<Object, GroupAccumulator> groups = accumulate(table, FieldPath.parse(field),
+                withOrderAggregate(aggregates, groupOrder));
+        return results(groups, key -> key, aggregates, groupOrder);
+    }
+
+    /**
+     * Groups like {@link #groupBy} but returns only the aggregates of each group,
+     * computed in a single pass without collecting the records.
+     */
+    public Map<String, Map<String, Object>> aggregate(RecordTable table, String field, List<Aggregate> aggregates) {
+        return aggregate(table, field, aggregates, null);
+    }
+
+    // The requested aggregates plus the one the groups are ordered by, when that is another
+    private static List<Aggregate> withOrderAggregate(List<Aggregate> aggregates, GroupOrder groupOrder) {
+        Aggregate orderAggregate = (groupOrder != null) ? groupOrder.aggregate() : null;
+        if (orderAggregate == null || aggregates.contains(orderAggregate)) {
+            return aggregates;
+        }
+        List<Aggregate> computed = new ArrayList<>(aggregates);
+        computed.add(orderAggregate);
+        return computed;
+    }
+
+    // The requested aggregates of each group, groups in the given order
+    private static <K> Map<K, Map<String, Object>> results(Map<K, GroupAccumulator> groups,
+            Function<K, Object> keyValue, List<Aggregate> aggregates, GroupOrder groupOrder) {
+        Map<K, Map<String, Object>> results = new LinkedHashMap<>();
+        groups.forEach((key, accumulator) -> results.put(key, accumulator.result()));
+        if (groupOrder == null) {
+            return results;
+        }
+
+        Aggregate orderAggregate = groupOrder.aggregate();
+        Map<K, Object> orderValues = new HashMap<>();
+        results.forEach((key, values) -> orderValues.put(key,
+                (orderAggregate == null) ? keyValue.apply(key) : values.get(orderAggregate.label())));
+
+        List<K> keys = new ArrayList<>(results.keySet());
+        sortKeys(keys, orderValues, groupOrder.descending());
+
+        boolean extra = orderAggregate != null && !aggregates.contains(orderAggregate);
+        Map<K, Map<String, Object>> ordered = new LinkedHashMap<>();
+        for (K key : keys) {
+            Map<String, Object> values = results.get(key);
+            if (extra) {
+                values.remove(orderAggregate.label());
+            }
+            ordered.put(key, values);
+        }
+        return ordered;
+    }
+
+    // Accumulators of each group keyed by its value, groups in first-seen order
+    private Map<Object, GroupAccumulator> accumulate(RecordTable table, FieldPath field, List<Aggregate> aggregates) {
+        FieldPath[] aggregateFields = aggregates.stream().map(QueryEngine::fieldPath).toArray(FieldPath[]::new);
+        List<KeyedAccumulators> partials = isParallel(table.size())
+                ? mapChunks(table.size(), (from, to) -> accumulate(table, field, aggregates, aggregateFields, from, to))
+                : List.of(accumulate(table, field, aggregates, aggregateFields, 0, table.size()));
+
+        KeyedAccumulators merged = partials.get(0);
+        for (KeyedAccumulators partial : partials.subList(1, partials.size())) {
+            for (int id = 0; id < partial.keys.size(); id++) {
+                GroupAccumulator accumulator = partial.accumulators.get(id);
+                int mergedId = merged.keys.idOf(partial.keys.value(id));
+                if (mergedId == merged.accumulators.size()) {
+                    merged.accumulators.add(accumulator);
+                } else {
+                    merged.accumulators.get(mergedId).merge(accumulator);
+                }
+            }
+        }
+
+        Map<Object, GroupAccumulator> groups = new LinkedHashMap<>();
+        for (int id = 0; id < merged.keys.size(); id++) {
+            groups.put(merged.keys.value(id), merged.accumulators.get(id));
+        }
+        return groups;
+    }
+
+    private static KeyedAccumulators accumulate(RecordTable table, FieldPath field, List<Aggregate> aggregates,
+            FieldPath[] aggregateFields, int from, int to) {
+        KeyedAccumulators groups = new KeyedAccumulators();
+        for (int row = from; row < to; row++) {
+            int id = table.groupId(row, field, groups.keys);
+            if (id == groups.accumulators.size()) {
+                groups.accumulators.add(new GroupAccumulator(aggregates));
+            }
+            GroupAccumulator accumulator = groups.accumulators.get(id);
+            accumulator.addRecord();
+            for (int slot = 0; slot < aggregateFields.length; slot++) {
+                if (aggregateFields[slot] != null) {
+                    accumulator.add(slot, table.value(row, aggregateFields[slot]));
+                }
+            }
+        }
+        return groups;
+    }
+
+    // Groups of a range of rows, indexed by their id in the dictionary
+    private static final class KeyedRows {
+
+        final GroupKeyDictionary keys = new GroupKeyDictionary();
+        final List<RowList> rows = new ArrayList<>();
+
+        RowList rowsOf(int id) {
+            if (id == rows.size()) {
+                rows.add(new RowList());
+            }
+            return rows.get(id);
+        }
+
+        Map<Object, int[]> toMap() {
+            Map<Object, int[]> groups = new LinkedHashMap<>();
+            for (int id = 0; id < keys.size(); id++) {
+                groups.put(keys.value(id), rows.get(id).toArray());
+            }
+            return groups;
+        }
+    }
+
+    private static final class KeyedAccumulators {
+
+        final GroupKeyDictionary keys = new GroupKeyDictionary();
+        final List<GroupAccumulator> accumulators = new ArrayList<>();
+    }
+
+    // Growable array of row indices, so that collecting them boxes nothing
+    private static final class RowList {
+
+        private int[] rows = new int[4];
+        private int size;
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+
+        void addAll(RowList other) {
+            if (size + other.size > rows.length) {
+                rows = Arrays.copyOf(rows, Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.rows, 0, rows, size, other.size);
+            size += other.size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(rows, size);
+        }
+    }
+
+    // The path of the field an aggregate reads, or null for the plain count
+    private static FieldPath fieldPath(Aggregate aggregate) {
+        return aggregate.field() == null ? null : FieldPath.parse(aggregate.field());
+    }
+
+    // Stable: records with equal keys keep their insertion order in both directions
+    public List<Map<String, Object>> sortBy(RecordTable table, String field, boolean descending) {
+        return sortBy(table, field, descending, SortPage.ALL).records();
+    }
+
+    /**
+     * Sorts and pages in one go. Without a limit every matching row is sorted;
+     * with one, only the best {@code offset + limit} rows are kept in a bounded
+     * heap while scanning, so memory and work grow with the page, not the dataset.
+     */
+    public SortedPage sortBy(RecordTable table, String field, boolean descending, SortPage page) {
+        FieldPath path = FieldPath.parse(field);
+        SortKeys keys = SortKeys.extract(table, path);
+        SortCursor after = page.after();
+
+        int[] selected;
+        boolean hasMore;
+        if (page.limit() == null) {
+            int matched = 0;
+            selected = new int[table.size()];
+            for (int row = 0; row < table.size(); row++) {
+                if (after == null || compareToCursor(table, path, descending, row, after) > 0) {
+                    selected[matched++] = row;
+                }
+            }
+            selected = Arrays.copyOf(selected, matched);
+            keys.sort(selected, descending, isParallel(matched));
+            hasMore = false;
+        } else {
+            Comparator<Integer> order = (r1, r2) -> keys.compare(r1, r2, descending);
+            int keep = (int) Math.min((long) page.offset() + page.limit(), table.size());
+            PriorityQueue<Integer> heap = new PriorityQueue<>(Math.max(1, keep), order.reversed());
+            int matched = 0;
+            for (int row = 0; row < table.size(); row++) {
+                if (after != null && compareToCursor(table, path, descending, row, after) <= 0) {
+                    continue;
+                }
+                matched++;
+                offerBounded(heap, keep, row, order);
+            }
+            selected = heap.stream().mapToInt(Integer::intValue).toArray();
+            keys.sort(selected, descending, false);
+            hasMore = matched > keep;
+        }
+
+        List<Map<String, Object>> records = new ArrayList<>();
+        int last = -1;
+        for (int i = page.offset(); i < selected.length; i++) {
+            last = selected[i];
+            records.add(table.record(last));
+        }
+
+        SortCursor next = (hasMore && last >= 0) ? new SortCursor(table.value(last, path), table.rowId(last)) : null;
+        return new SortedPage(records, next);
+    }
+
+    /**
+     * Runs the task over contiguous row ranges in parallel and returns the results
+     * in range order.
+     */
+    public <T> List<T> mapChunks(int rows, RangeTask<T> task) {
+        int chunks = Math.max(1, Math.min(rows, ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_THREAD));
+        int chunkSize = (rows + chunks - 1) / Math.max(1, chunks);
+        return IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(chunk -> task.apply(chunk * chunkSize, Math.min(rows, (chunk + 1) * chunkSize)))
+                .toList();
+    }
+
+    @FunctionalInterface
+    public interface RangeTask<T> {
+        T apply(int from, int to);
+    }
+
+    private static Map<String, Object>[] readRecords(RecordTable table) {
+        Map<String, Object>[] records = newRecordArray(table.size());
+        IntStream.range(0, records.length).parallel().forEach(row -> records[row] = table.record(row));
+        return records;
+    }
+
+    // Keeps the k smallest rows seen so far in a max-heap
+    private static void offerBounded(PriorityQueue<Integer> heap, int k, int row, Comparator<Integer> order) {
+        if (heap.size() < k) {
+            heap.add(row);
+        } else if (k > 0 && order.compare(row, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(row);
+        }
+    }
+
+    private static int compareToCursor(RecordTable table, FieldPath field, boolean descending, int row,
+            SortCursor cursor) {
+        int result = compareValues(table.value(row, field), cursor.key());
+        if (descending) {
+            result = -result;
+        }
+        return result != 0 ? result : Long.compare(table.rowId(row), cursor.rowId());
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static Map<String, Object>[] newRecordArray(int size) {
+        return (Map<String, Object>[]) new Map[size];
+    }
+
+    public static String groupKey(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        return String.valueOf(value);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public static int compareValues(Object v1, Object v2) {
+        if (v1 == null && v2 == null)
+            return 0;
+        if (v1 == null)
+            return -1;
+        if (v2 == null)
+            return 1;
+
+        // Both are numbers
+        if (v1 instanceof Number && v2 instanceof Number) {
+            return Double.compare(((Number) v1).doubleValue(), ((Number) v2).doubleValue());
+        }
+
+        // Both are Comparable of the same type
+        if (v1 instanceof Comparable && v2 instanceof Comparable
+                && v1.getClass().equals(v2.getClass())) {
+            return ((Comparable) v1).compareTo(v2);
+        }
+
+        // Fallback: compare as strings
+        return String.valueOf(v1).compareTo(String.valueOf(v2));
+    }
+}
@@ -0,0 +1,36 @@
+package com.assignment.jsonquery.query;
+
+import java.util.Map;
+
+/**
+ * Read access to the records of one dataset in insertion order. Queries are
+ * written against this interface so that they run the same way over freshly
+ * loaded records and over the columnar cache.
+ */
+public interface RecordTable {
+
+    int size();
+
+    long rowId(int row);
+
+    // Value of a top-level field, or null when the record does not have it
+    Object value(int row, String field);
+
+    // Value at a nested path; only the root field is read from the table
+    default Object value(int row, FieldPath path) {
+        Object value = value(row, path.root());
+        return path.isTopLevel() ? value : path.resolve(value);
+    }
+
+    // Id of the group of the value at the path; tables holding typed columns code it without boxing
+    default int groupId(int row, FieldPath path, GroupKeyDictionary keys) {
+        return keys.idOf(value(row, path));
+    }
+
+    Map<String, Object> record(int row);
+
+    // Only the projected fields of a record; tables that store fields separately avoid building the rest
+    default Map<String, Object> record(int row, Projection projection) {
+        return projection.apply(record(row));
+    }
+}
@@ -0,0 +1,42 @@
+package com.assignment.jsonquery.query;
+
+import com.assignment.jsonquery.exception.InvalidQueryParameterException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Position of the last record of a sorted page: its sort key plus its row id,
+ * which breaks ties between equal keys. Passed to clients as an opaque
+ * URL-safe token.
+ */
+public record SortCursor(Object key, long rowId) {
+
+    public String encode(ObjectMapper objectMapper) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(new Object[] { key, rowId });
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode sort cursor: " + e.getMessage());
+        }
+    }
+
+    public static SortCursor decode(String token, ObjectMapper objectMapper) {
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(token);
+            List<Object> parts = objectMapper.readValue(new String(json, StandardCharsets.UTF_8),
+                    new TypeReference<List<Object>>() {
+                    });
+            if (parts.size() != 2 || !(parts.get(1) instanceof Number rowId)) {
+                throw new InvalidQueryParameterException("Invalid 'after' cursor: " + token);
+            }
+            return new SortCursor(parts.get(0), rowId.longValue());
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            throw new InvalidQueryParameterException("Invalid 'after' cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.assignment.jsonquery.query;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Sort keys of one field, read once per row and held in a typed array so that
+ * comparisons during a sort are plain array reads.
+ * <p>
+ * The order is exactly that of {@link QueryEngine#compareValues}: nulls first,
+ * numbers by their double value, strings and booleans by their natural order.
+ * A field whose values mix types (say numbers and strings) keeps the raw values
+ * and compares them with {@code compareValues} itself, as its string fallback
+ * for mixed pairs has no typed equivalent. Rows with equal keys are ordered by
+ * row id ascending, in both directions.
+ */
+public final class SortKeys {
+
+    // Below this many rows a parallel merge is not worth forking for
+    private static final int PARALLEL_SORT_GRANULARITY = 8192;
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    private enum Kind { NUMBER, STRING, MIXED }
+
+    private final Kind kind;
+    private final long[] rowIds;
+    private final boolean[] present;
+    private final double[] numbers;
+    private final String[] strings;
+    private final Object[] values;
+
+    private SortKeys(Kind kind, long[] rowIds, boolean[] present, double[] numbers, String[] strings,
+            Object[] values) {
+        this.kind = kind;
+        this.rowIds = rowIds;
+        this.present = present;
+        this.numbers = numbers;
+        this.strings = strings;
+        this.values = values;
+    }
+
+    public static SortKeys extract(RecordTable table, FieldPath field) {
+        Object[] values = new Object[table.size()];
+        long[] rowIds = new long[table.size()];
+        for (int row = 0; row < values.length; row++) {
+            values[row] = table.value(row, field);
+            rowIds[row] = table.rowId(row);
+        }
+        return of(values, rowIds);
+    }
+
+    public static SortKeys of(Object[] values, long[] rowIds) {
+        boolean numbers = true;
+        boolean strings = true;
+        boolean booleans = true;
+        for (Object value : values) {
+            if (value != null) {
+                numbers &= value instanceof Number;
+                strings &= value instanceof String;
+                booleans &= value instanceof Boolean;
+            }
+        }
+
+        boolean[] present = new boolean[values.length];
+        for (int row = 0; row < values.length; row++) {
+            present[row] = values[row] != null;
+        }
+
+        if (numbers || booleans) {
+            // false < true, just like Boolean.compareTo
+            double[] keys = new double[values.length];
+            for (int row = 0; row < values.length; row++) {
+                Object value = values[row];
+                if (value instanceof Number number) {
+                    keys[row] = number.doubleValue();
+                } else if (value instanceof Boolean bool) {
+                    keys[row] = bool ? 1 : 0;
+                }
+            }
+            return new SortKeys(Kind.NUMBER, rowIds, present, keys, null, null);
+        }
+        if (strings) {
+            String[] keys = new String[values.length];
+            for (int row = 0; row < values.length; row++) {
+                keys[row] = (String) values[row];
+            }
+            return new SortKeys(Kind.STRING, rowIds, present, null, keys, null);
+        }
+        return new SortKeys(Kind.MIXED, rowIds, present, null, null, values);
+    }
+
+    /**
+     * Total order of two rows: by key in the given direction, then by row id ascending.
+     */
+    public int compare(int r1, int r2, boolean descending) {
+        int result = compareKeys(r1, r2);
+        if (descending) {
+            result = -result;
+        }
+        return result != 0 ? result : Long.compare(rowIds[r1], rowIds[r2]);
+    }
+
+    private int compareKeys(int r1, int r2) {
+        if (kind == Kind.MIXED) {
+            return QueryEngine.compareValues(values[r1], values[r2]);
+        }
+        if (!present[r1] || !present[r2]) {
+            return Boolean.compare(present[r1], present[r2]);
+        }
+        return kind == Kind.NUMBER
+                ? Double.compare(numbers[r1], numbers[r2])
+                : strings[r1].compareTo(strings[r2]);
+    }
+
+    /**
+     * Sorts the given row indices in place.
+     */
+    public void sort(int[] rows, boolean descending, boolean parallel) {
+        int[] buffer = rows.clone();
+        if (parallel && rows.length > PARALLEL_SORT_GRANULARITY) {
+            ForkJoinPool.commonPool().invoke(new MergeSortTask(buffer, rows, 0, rows.length, descending));
+        } else {
+            mergeSort(buffer, rows, 0, rows.length, descending);
+        }
+    }
+
+    // Sorts src[from, to) into dst[from, to); both arrays start with the same contents
+    private void mergeSort(int[] src, int[] dst, int from, int to, boolean descending) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(dst, from, to, descending);
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(dst, src, from, mid, descending);
+        mergeSort(dst, src, mid, to, descending);
+        merge(src, dst, from, mid, to, descending);
+    }
+
+    private void insertionSort(int[] rows, int from, int to, boolean descending) {
+        for (int i = from + 1; i < to; i++) {
+            int row = rows[i];
+            int j = i - 1;
+            while (j >= from && compare(rows[j], row, descending) > 0) {
+                rows[j + 1] = rows[j];
+                j--;
+            }
+            rows[j + 1] = row;
+        }
+    }
+
+    private void merge(int[] src, int[] dst, int from, int mid, int to, boolean descending) {
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && compare(src[left], src[right], descending) <= 0)) {
+                dst[i] = src[left++];
+            } else {
+                dst[i] = src[right++];
+            }
+        }
+    }
+
+    private class MergeSortTask extends RecursiveAction {
+
+        private final int[] src;
+        private final int[] dst;
+        private final int from;
+        private final int to;
+        private final boolean descending;
+
+        MergeSortTask(int[] src, int[] dst, int from, int to, boolean descending) {
+            this.src = src;
+            this.dst = dst;
+            this.from = from;
+            this.to = to;
+            this.descending = descending;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_SORT_GRANULARITY) {
+                mergeSort(src, dst, from, to, descending);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new MergeSortTask(dst, src, from, mid, descending),
+                    new MergeSortTask(dst, src, mid, to, descending));
+            merge(src, dst, from, mid, to, descending);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.assignment.jsonquery.query;
+
+/**
+ * Which part of a sorted result to return: records after the cursor (if any),
+ * skipping {@code offset} of them and keeping at most {@code limit} (all if null).
+ */
+public record SortPage(int offset, Integer limit, SortCursor after) {
+
+    public static final SortPage ALL = new SortPage(0, null, null);
+
+    public boolean isAll() {
+        return offset == 0 && limit == null && after == null;
+    }
+}
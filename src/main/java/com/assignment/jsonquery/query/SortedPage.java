@@ -0,0 +1,10 @@
+package com.assignment.jsonquery.query;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of sorted records and the cursor for the next page, null on the last page.
+ */
+public record SortedPage(List<Map<String, Object>> records, SortCursor next) {
+}
@@ -1,11 +1,18 @@
 package com.assignment.jsonquery.repository;
 
 import com.assignment.jsonquery.entity.DatasetRecord;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface DatasetRecordRepository extends JpaRepository<DatasetRecord, Long> {
@@ -15,4 +22,27 @@ public interface DatasetRecordRepository extends JpaRepository<DatasetRecord, Lo
     Optional<DatasetRecord> findByDatasetNameAndRecordId(String datasetName, Long recordId);
 
     boolean existsByDatasetNameAndRecordId(String datasetName, Long recordId);
+
+    @Query("select r.recordId from DatasetRecord r where r.datasetName = :datasetName and r.recordId in :recordIds")
+    List<Long> findRecordIdsByDatasetNameAndRecordIdIn(@Param("datasetName") String datasetName,
+            @Param("recordIds") Collection<Long> recordIds);
+
+    // Cursor over a dataset in insertion order; must be consumed inside a transaction and closed
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.assignment.jsonquery.repository.RecordRow(r.id, r.recordData, r.jsonData) "
+            + "from DatasetRecord r where r.datasetName = :datasetName order by r.id")
+    Stream<RecordRow> streamRowsByDatasetName(@Param("datasetName") String datasetName);
+
+    @Query("select new com.assignment.jsonquery.repository.RecordRow(r.id, r.recordData, r.jsonData) "
+            + "from DatasetRecord r where r.datasetName = :datasetName and r.id in :ids")
+    List<RecordRow> findRowsByDatasetNameAndIdIn(@Param("datasetName") String datasetName,
+            @Param("ids") Collection<Long> ids);
+
+    long countByDatasetName(String datasetName);
+
+    // Bytes of the stored records of a dataset, binary or legacy JSON text, counted by the database
+    @Query(value = "select coalesce(sum(coalesce(octet_length(record_data), 0) "
+            + "+ coalesce(octet_length(json_data), 0)), 0) "
+            + "from dataset_records where dataset_name = :datasetName", nativeQuery = true)
+    long sumStoredBytes(@Param("datasetName") String datasetName);
 }
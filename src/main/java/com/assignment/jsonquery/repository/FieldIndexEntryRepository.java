@@ -0,0 +1,24 @@
+package com.assignment.jsonquery.repository;
+
+import com.assignment.jsonquery.entity.FieldIndexEntry;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface FieldIndexEntryRepository extends JpaRepository<FieldIndexEntry, Long> {
+
+    @Query("select new com.assignment.jsonquery.repository.IndexKey(e.rowId, e.stringValue) "
+            + "from FieldIndexEntry e where e.datasetName = :datasetName and e.fieldName = :fieldName")
+    List<IndexKey> findKeys(@Param("datasetName") String datasetName,
+            @Param("fieldName") String fieldName, Sort sort);
+
+    @Query("select distinct e.valueType from FieldIndexEntry e "
+            + "where e.datasetName = :datasetName and e.fieldName = :fieldName")
+    List<Integer> findValueTypes(@Param("datasetName") String datasetName,
+            @Param("fieldName") String fieldName);
+}
@@ -0,0 +1,15 @@
+package com.assignment.jsonquery.repository;
+
+import com.assignment.jsonquery.entity.FieldIndex;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface FieldIndexRepository extends JpaRepository<FieldIndex, Long> {
+
+    List<FieldIndex> findByDatasetName(String datasetName);
+
+    boolean existsByDatasetNameAndFieldName(String datasetName, String fieldName);
+}
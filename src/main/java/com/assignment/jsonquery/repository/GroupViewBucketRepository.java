@@ -0,0 +1,16 @@
+package com.assignment.jsonquery.repository;
+
+import com.assignment.jsonquery.entity.GroupViewBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface GroupViewBucketRepository extends JpaRepository<GroupViewBucket, Long> {
+
+    List<GroupViewBucket> findByViewIdOrderByFirstRowId(Long viewId);
+
+    List<GroupViewBucket> findByViewIdAndGroupKeyIn(Long viewId, Collection<String> groupKeys);
+}
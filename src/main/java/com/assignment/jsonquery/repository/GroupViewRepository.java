@@ -0,0 +1,25 @@
+package com.assignment.jsonquery.repository;
+
+import com.assignment.jsonquery.entity.GroupView;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface GroupViewRepository extends JpaRepository<GroupView, Long> {
+
+    Optional<GroupView> findByDatasetNameAndFieldName(String datasetName, String fieldName);
+
+    boolean existsByDatasetNameAndFieldName(String datasetName, String fieldName);
+
+    // Locked until the transaction ends, so that concurrent inserts update the buckets one after another
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select v from GroupView v where v.datasetName = :datasetName order by v.id")
+    List<GroupView> lockByDatasetName(@Param("datasetName") String datasetName);
+}
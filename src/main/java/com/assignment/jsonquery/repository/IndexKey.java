@@ -0,0 +1,7 @@
+package com.assignment.jsonquery.repository;
+
+/**
+ * Row id and group key of a field index entry, read without hydrating the entity.
+ */
+public record IndexKey(Long rowId, String key) {
+}
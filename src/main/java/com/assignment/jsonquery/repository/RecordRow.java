@@ -0,0 +1,15 @@
+package com.assignment.jsonquery.repository;
+
+/**
+ * Lightweight, unmanaged view of a stored record. Used by the streaming read
+ * path so that scanned rows never enter the persistence context.
+ * <p>
+ * Holds either the binary {@code recordData} or, for rows not migrated yet,
+ * the legacy {@code jsonData} text.
+ */
+public record RecordRow(Long id, byte[] recordData, String jsonData) {
+
+    public RecordRow(Long id, String jsonData) {
+        this(id, null, jsonData);
+    }
+}
@@ -1,7 +1,12 @@
 package com.assignment.jsonquery.service;
 
+import com.assignment.jsonquery.dto.IndexResponse;
 import com.assignment.jsonquery.dto.InsertRecordResponse;
+import com.assignment.jsonquery.dto.SortByResponse;
+import com.assignment.jsonquery.dto.ViewResponse;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -11,7 +16,39 @@ public interface DatasetService {
 
     Map<String, List<Map<String, Object>>> groupBy(String datasetName, String groupByField);
 
+    Map<String, List<Map<String, Object>>> groupBy(String datasetName, String groupByField,
+            String sortByField, String order, String groupOrder, String fields, String where);
+
+    Map<String, Map<String, Object>> aggregate(String datasetName, String groupByField, String aggregates,
+            String groupOrder, String where);
+
     List<Map<String, Object>> sortBy(String datasetName, String sortByField, String order);
 
+    SortByResponse sortBy(String datasetName, String sortByField, String order,
+            Integer limit, Integer offset, String after, String fields, String where);
+
     InsertRecordResponse batchInsert(String datasetName, List<Map<String, Object>> records);
+
+    IndexResponse createIndex(String datasetName, String fieldName);
+
+    ViewResponse createView(String datasetName, String fieldName, String aggregates);
+
+    // Like groupBy and aggregate, keyed by the group values as stored instead of their string form
+    Map<Object, List<Map<String, Object>>> groupByTyped(String datasetName, String groupByField, String sortByField,
+            String order, String groupOrder, String fields, String where);
+
+    Map<Object, Map<String, Object>> aggregateTyped(String datasetName, String groupByField, String aggregates,
+            String groupOrder, String where);
+
+    void streamGroupBy(String datasetName, String groupByField, String fields, String where, OutputStream out)
+            throws IOException;
+
+    void streamSortBy(String datasetName, String sortByField, String order, String fields, String where,
+            OutputStream out) throws IOException;
+
+    // Whether the stored records of the dataset exceed the memory budget of a sort and are not cached in memory
+    boolean needsExternalSort(String datasetName);
+
+    // Whether the stored records of the dataset exceed the memory budget of a group-by and are not cached in memory
+    boolean needsExternalGroupBy(String datasetName);
 }
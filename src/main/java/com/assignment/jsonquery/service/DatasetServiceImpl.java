@@ -1,27 +1,67 @@
 package com.assignment.jsonquery.service;
 
+import com.assignment.jsonquery.cache.ColumnarDataset;
+import com.assignment.jsonquery.cache.DatasetCache;
+import com.assignment.jsonquery.dto.IndexResponse;
 import com.assignment.jsonquery.dto.InsertRecordResponse;
-import com.assignment.jsonquery.entity.DatasetRecord;
+import com.assignment.jsonquery.dto.SortByResponse;
+import com.assignment.jsonquery.dto.ViewResponse;
 import com.assignment.jsonquery.exception.*;
-import com.assignment.jsonquery.repository.DatasetRecordRepository;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.assignment.jsonquery.repository.RecordRow;
+import com.assignment.jsonquery.query.Aggregate;
+import com.assignment.jsonquery.query.FieldPath;
+import com.assignment.jsonquery.query.Filter;
+import com.assignment.jsonquery.query.GroupOrder;
+import com.assignment.jsonquery.query.ListRecordTable;
+import com.assignment.jsonquery.query.ParsedRow;
+import com.assignment.jsonquery.query.Projection;
+import com.assignment.jsonquery.query.QueryEngine;
+import com.assignment.jsonquery.query.RecordTable;
+import com.assignment.jsonquery.query.SortCursor;
+import com.assignment.jsonquery.query.SortPage;
+import com.assignment.jsonquery.query.SortedPage;
+import com.assignment.jsonquery.storage.RecordStore;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static com.assignment.jsonquery.query.QueryEngine.groupKey;
+import static com.assignment.jsonquery.query.QueryEngine.newRecordArray;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DatasetServiceImpl implements DatasetService {
 
-    private final DatasetRecordRepository repository;
+    // Number of rows fetched per round trip when writing a streamed response
+    private static final int STREAM_CHUNK_SIZE = 500;
+
+    // Scan key of a row that fails the filter; null is a valid key
+    private static final Object NO_MATCH = new Object();
+
+    // Batch inserts are handed to the record store this many records at a time
+    private static final int INSERT_CHUNK_SIZE = 1000;
+
+    private final RecordStore recordStore;
     private final ObjectMapper objectMapper;
+    private final RecordCodec recordCodec;
+    private final FieldIndexService fieldIndexService;
+    private final GroupViewService groupViewService;
+    private final DatasetCache datasetCache;
+    private final QueryEngine queryEngine;
+    private final QueryMetrics queryMetrics;
+    private final ExternalSorter externalSorter;
+    private final ExternalGrouper externalGrouper;
 
     @Override
     @Transactional
@@ -38,21 +78,22 @@ public class DatasetServiceImpl implements DatasetService {
 
         Long recordId = extractRecordId(record);
 
-        if (repository.existsByDatasetNameAndRecordId(datasetName, recordId)) {
+        if (recordStore.exists(datasetName, recordId)) {
             throw new DuplicateRecordException(
                     String.format("Record with id %d already exists in dataset '%s'", recordId, datasetName));
         }
 
-        String jsonData = serializeRecord(record);
+        RecordStore.NewRecord newRecord = new RecordStore.NewRecord(recordId, recordCodec.encode(record));
 
-        DatasetRecord entity = DatasetRecord.builder()
-                .datasetName(datasetName)
-                .recordId(recordId)
-                .jsonData(jsonData)
-                .build();
+        DatasetCache.Write cacheWrite = datasetCache.beginWrite(datasetName);
 
-        repository.save(entity);
+        Long rowId = recordStore.append(datasetName, List.of(newRecord)).get(0);
+        List<ParsedRow> rows = List.of(new ParsedRow(rowId, record));
+        fieldIndexService.onRecordsInserted(datasetName, rows);
+        groupViewService.onRecordsInserted(datasetName, rows);
+        cacheWrite.add(rows);
 
+        queryMetrics.recordsInserted(1, 0);
         log.info("Record with id {} inserted into dataset '{}'", recordId, datasetName);
 
         return InsertRecordResponse.builder()
@@ -71,8 +112,9 @@ public class DatasetServiceImpl implements DatasetService {
             throw new IllegalArgumentException("Record list cannot be null or empty");
         }
 
-        List<DatasetRecord> entities = new ArrayList<>();
-        List<Long> insertedIds = new ArrayList<>();
+        // Dedupe the payload first: the first occurrence of an id wins, later ones are skipped
+        Map<Long, Map<String, Object>> candidates = new LinkedHashMap<>();
+        List<Long> skippedIds = new ArrayList<>();
 
         for (Map<String, Object> record : records) {
             if (record == null || record.isEmpty())
@@ -84,93 +126,729 @@ public class DatasetServiceImpl implements DatasetService {
 
             Long recordId = extractRecordId(record);
 
-            if (repository.existsByDatasetNameAndRecordId(datasetName, recordId)) {
-                log.warn("Record with id {} already exists in dataset '{}', skipping...", recordId, datasetName);
-                continue; // Skip duplicates in batch mode
+            if (candidates.putIfAbsent(recordId, record) != null) {
+                log.warn("Record with id {} appears more than once in the batch, skipping...", recordId);
+                skippedIds.add(recordId);
             }
+        }
+
+        Set<Long> existingIds = recordStore.findExistingRecordIds(datasetName, candidates.keySet());
+
+        List<Map<String, Object>> insertedRecords = new ArrayList<>();
+        List<Long> insertedIds = new ArrayList<>();
 
-            String jsonData = serializeRecord(record);
+        for (Map.Entry<Long, Map<String, Object>> candidate : candidates.entrySet()) {
+            Long recordId = candidate.getKey();
 
-            DatasetRecord entity = DatasetRecord.builder()
-                    .datasetName(datasetName)
-                    .recordId(recordId)
-                    .jsonData(jsonData)
-                    .build();
+            if (existingIds.contains(recordId)) {
+                log.warn("Record with id {} already exists in dataset '{}', skipping...", recordId, datasetName);
+                skippedIds.add(recordId); // Skip duplicates in batch mode
+                continue;
+            }
 
-            entities.add(entity);
+            insertedRecords.add(candidate.getValue());
             insertedIds.add(recordId);
         }
 
-        if (!entities.isEmpty()) {
-            repository.saveAll(entities);
-            log.info("{} records inserted into dataset '{}'", entities.size(), datasetName);
+        DatasetCache.Write cacheWrite = datasetCache.beginWrite(datasetName);
+
+        // Store in chunks so that writes are batched while the encoded records held at once stay bounded
+        for (int from = 0; from < insertedRecords.size(); from += INSERT_CHUNK_SIZE) {
+            int to = Math.min(from + INSERT_CHUNK_SIZE, insertedRecords.size());
+
+            List<RecordStore.NewRecord> newRecords = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                newRecords.add(new RecordStore.NewRecord(insertedIds.get(i), recordCodec.encode(insertedRecords.get(i))));
+            }
+
+            List<Long> rowIds = recordStore.append(datasetName, newRecords);
+            List<ParsedRow> rows = new ArrayList<>(rowIds.size());
+            for (int i = 0; i < rowIds.size(); i++) {
+                rows.add(new ParsedRow(rowIds.get(i), insertedRecords.get(from + i)));
+            }
+            fieldIndexService.onRecordsInserted(datasetName, rows);
+            groupViewService.onRecordsInserted(datasetName, rows);
+            cacheWrite.add(rows);
+        }
+
+        queryMetrics.recordsInserted(insertedIds.size(), skippedIds.size());
+        if (!insertedIds.isEmpty()) {
+            log.info("{} records inserted into dataset '{}'", insertedIds.size(), datasetName);
         }
 
         return InsertRecordResponse.builder()
-                .message(entities.size() + " records added successfully")
+                .message(insertedIds.size() + " records added successfully")
                 .dataset(datasetName)
-                .recordId(insertedIds.isEmpty() ? null : insertedIds.get(0)) // Return first ID or null
+                .insertedCount(insertedIds.size())
+                .skippedCount(skippedIds.size())
+                .insertedIds(insertedIds)
+                .skippedIds(skippedIds)
                 .build();
     }
 
     @Override
     @Transactional(readOnly = true)
     public Map<String, List<Map<String, Object>>> groupBy(String datasetName, String groupByField) {
+        return groupBy(datasetName, groupByField, null, null, null, null, null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, List<Map<String, Object>>> groupBy(String datasetName, String groupByField,
+            String sortByField, String order, String groupOrder, String fields, String where) {
         validateDatasetName(datasetName);
-        validateFieldName(groupByField, "groupBy");
+        FieldPath groupByPath = parseFieldPath(groupByField, "groupBy");
+        FieldPath sortByPath = (sortByField != null) ? parseFieldPath(sortByField, "sortBy") : null;
+
+        boolean descending = resolveSortOrder(order).equals("desc");
+        GroupOrder parsedOrder = GroupOrder.parse(groupOrder);
+        Projection projection = outputProjection(fields, groupByPath, sortByPath);
+        Function<RecordTable, Map<String, List<Map<String, Object>>>> query = queryMetrics.timedQuery(
+                table -> queryEngine.groupBy(queryEngine.project(table, projection), groupByField, sortByField,
+                        descending, parsedOrder));
+
+        Filter filter = Filter.parse(where);
+        if (filter != null) {
+            return queryFiltered(datasetName, filter, projection, query);
+        }
+        if (sortByField != null || parsedOrder != null) {
+            return queryTable(datasetName, projection, query);
+        }
 
-        List<Map<String, Object>> records = fetchAllRecords(datasetName);
+        Optional<ColumnarDataset> cached = queryMetrics.datasetCacheLookup(datasetCache.get(datasetName));
+        if (cached.isPresent()) {
+            return cached.get().read(query);
+        }
 
-        return records.stream()
-                .collect(Collectors.groupingBy(
-                        record -> {
-                            Object value = record.get(groupByField);
-                            if (value == null) {
-                                return "null";
-                            }
-                            return String.valueOf(value);
-                        },
-                        LinkedHashMap::new,
-                        Collectors.toList()));
+        Optional<Map<String, List<Long>>> indexed =
+                queryMetrics.indexLookup(fieldIndexService.groupRowIds(datasetName, groupByField));
+        if (indexed.isPresent()) {
+            return groupByIndex(datasetName, indexed.get(), projection);
+        }
+
+        return query.apply(loadTable(datasetName, projection));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Map<String, Object>> aggregate(String datasetName, String groupByField, String aggregates,
+            String groupOrder, String where) {
+        validateDatasetName(datasetName);
+        parseFieldPath(groupByField, "groupBy");
+
+        List<Aggregate> parsed = Aggregate.parseList(aggregates);
+        GroupOrder parsedOrder = GroupOrder.parse(groupOrder);
+
+        Function<RecordTable, Map<String, Map<String, Object>>> query = queryMetrics.timedQuery(
+                table -> queryEngine.aggregate(table, groupByField, parsed, parsedOrder));
+
+        Filter filter = Filter.parse(where);
+        if (filter != null) {
+            return queryFiltered(datasetName, filter, null, query);
+        }
+
+        // A view holds the aggregates per group, so it is read in time proportional to the groups
+        Optional<Map<String, Map<String, Object>>> viewed = queryMetrics.viewLookup(
+                groupViewService.aggregate(datasetName, groupByField, parsed, parsedOrder));
+        if (viewed.isPresent()) {
+            if (viewed.get().isEmpty()) {
+                throw new DatasetNotFoundException(
+                        String.format("No records found for dataset '%s'", datasetName));
+            }
+            return viewed.get();
+        }
+
+        if (parsedOrder != null) {
+            return queryTable(datasetName, null, query);
+        }
+
+        Optional<ColumnarDataset> cached = queryMetrics.datasetCacheLookup(datasetCache.get(datasetName));
+        if (cached.isPresent()) {
+            return cached.get().read(query);
+        }
+
+        // Plain counts are just the group sizes, which a field index has without reading any record
+        boolean countsOnly = parsed.stream()
+                .allMatch(aggregate -> aggregate.function() == Aggregate.Function.COUNT && aggregate.field() == null);
+        if (countsOnly) {
+            Optional<Map<String, List<Long>>> indexed =
+                    queryMetrics.indexLookup(fieldIndexService.groupRowIds(datasetName, groupByField));
+            if (indexed.isPresent()) {
+                if (indexed.get().isEmpty()) {
+                    throw new DatasetNotFoundException(
+                            String.format("No records found for dataset '%s'", datasetName));
+                }
+                Map<String, Map<String, Object>> results = new LinkedHashMap<>();
+                indexed.get().forEach((key, rowIds) -> results.put(key, Map.of("count", (long) rowIds.size())));
+                return results;
+            }
+        }
+
+        return query.apply(loadTable(datasetName));
+    }
+
+    /*
+     * Typed variants: field indexes and views key their groups by string, so they
+     * cannot tell 1 from "1" and are not used; the query runs on the dataset cache or
+     * a loaded table.
+     */
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Object, List<Map<String, Object>>> groupByTyped(String datasetName, String groupByField,
+            String sortByField, String order, String groupOrder, String fields, String where) {
+        validateDatasetName(datasetName);
+        FieldPath groupByPath = parseFieldPath(groupByField, "groupBy");
+        FieldPath sortByPath = (sortByField != null) ? parseFieldPath(sortByField, "sortBy") : null;
+
+        boolean descending = resolveSortOrder(order).equals("desc");
+        GroupOrder parsedOrder = GroupOrder.parse(groupOrder);
+        Projection projection = outputProjection(fields, groupByPath, sortByPath);
+        Function<RecordTable, Map<Object, List<Map<String, Object>>>> query = queryMetrics.timedQuery(
+                table -> queryEngine.groupByTyped(queryEngine.project(table, projection), groupByField, sortByField,
+                        descending, parsedOrder));
+
+        Filter filter = Filter.parse(where);
+        return (filter != null)
+                ? queryFiltered(datasetName, filter, projection, query)
+                : queryTable(datasetName, projection, query);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Object, Map<String, Object>> aggregateTyped(String datasetName, String groupByField,
+            String aggregates, String groupOrder, String where) {
+        validateDatasetName(datasetName);
+        parseFieldPath(groupByField, "groupBy");
+
+        List<Aggregate> parsed = Aggregate.parseList(aggregates);
+        GroupOrder parsedOrder = GroupOrder.parse(groupOrder);
+        Function<RecordTable, Map<Object, Map<String, Object>>> query = queryMetrics.timedQuery(
+                table -> queryEngine.aggregateTyped(table, groupByField, parsed, parsedOrder));
+
+        Filter filter = Filter.parse(where);
+        return (filter != null)
+                ? queryFiltered(datasetName, filter, null, query)
+                : queryTable(datasetName, null, query);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<Map<String, Object>> sortBy(String datasetName, String sortByField, String order) {
         validateDatasetName(datasetName);
-        validateFieldName(sortByField, "sortBy");
+        parseFieldPath(sortByField, "sortBy");
 
-        String sortOrder = (order != null) ? order.toLowerCase() : "asc";
-        if (!sortOrder.equals("asc") && !sortOrder.equals("desc")) {
-            throw new InvalidQueryParameterException("Order must be 'asc' or 'desc', got: " + order);
+        return sortPage(datasetName, sortByField, resolveSortOrder(order).equals("desc"), SortPage.ALL, null, null)
+                .records();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SortByResponse sortBy(String datasetName, String sortByField, String order,
+            Integer limit, Integer offset, String after, String fields, String where) {
+        validateDatasetName(datasetName);
+        FieldPath sortByPath = parseFieldPath(sortByField, "sortBy");
+
+        boolean descending = resolveSortOrder(order).equals("desc");
+
+        if (limit != null && limit < 1) {
+            throw new InvalidQueryParameterException("limit must be at least 1, got: " + limit);
+        }
+        if (offset != null && offset < 0) {
+            throw new InvalidQueryParameterException("offset cannot be negative, got: " + offset);
+        }
+        SortCursor cursor = (after != null) ? SortCursor.decode(after, objectMapper) : null;
+
+        SortedPage page = sortPage(datasetName, sortByField, descending,
+                new SortPage(offset != null ? offset : 0, limit, cursor), Filter.parse(where),
+                outputProjection(fields, sortByPath));
+
+        return SortByResponse.builder()
+                .sortedRecords(page.records())
+                .nextCursor(page.next() != null ? page.next().encode(objectMapper) : null)
+                .build();
+    }
+
+    private SortedPage sortPage(String datasetName, String sortByField, boolean descending, SortPage page,
+            Filter filter, Projection projection) {
+        Function<RecordTable, SortedPage> query = queryMetrics.timedQuery(
+                table -> queryEngine.sortBy(queryEngine.project(table, projection), sortByField, descending, page));
+        if (filter != null) {
+            return queryFiltered(datasetName, filter, projection, query);
+        }
+
+        Optional<ColumnarDataset> cached = queryMetrics.datasetCacheLookup(datasetCache.get(datasetName));
+        if (cached.isPresent()) {
+            return cached.get().read(query);
+        }
+
+        // The index holds row ids but not keys, so it cannot resume from a cursor
+        if (page.after() == null) {
+            Optional<List<Long>> indexed =
+                    queryMetrics.indexLookup(fieldIndexService.sortedRowIds(datasetName, sortByField, descending));
+            if (indexed.isPresent()) {
+                return sortByIndex(datasetName, sortByField, indexed.get(), page, projection);
+            }
+        }
+
+        return query.apply(loadTable(datasetName, projection));
+    }
+
+    // The requested fields plus the roots of the query's key fields, or null when all fields are requested
+    private static Projection outputProjection(String fields, FieldPath... keyFields) {
+        Projection projection = Projection.parse(fields);
+        return (projection == null) ? null : projection.including(Arrays.stream(keyFields)
+                .filter(Objects::nonNull)
+                .map(FieldPath::root)
+                .toList());
+    }
+
+    // Runs a query on the whole dataset, cached or freshly loaded with the projected fields
+    private <T> T queryTable(String datasetName, Projection projection, Function<RecordTable, T> query) {
+        Optional<ColumnarDataset> cached = queryMetrics.datasetCacheLookup(datasetCache.get(datasetName));
+        if (cached.isPresent()) {
+            return cached.get().read(query);
+        }
+        return query.apply(loadTable(datasetName, projection));
+    }
+
+    /**
+     * Runs a query on the records matching the filter. A cached dataset is filtered in
+     * memory. Otherwise, when field indexes can narrow the filter down, only the
+     * candidate rows are read from the database; failing that, the whole dataset is.
+     * Records are loaded with the projected fields plus those the filter reads.
+     */
+    private <T> T queryFiltered(String datasetName, Filter filter, Projection projection,
+            Function<RecordTable, T> query) {
+        Optional<ColumnarDataset> cached = queryMetrics.datasetCacheLookup(datasetCache.get(datasetName));
+        if (cached.isPresent()) {
+            return cached.get().read(table -> query.apply(queryEngine.filter(table, filter)));
+        }
+
+        Projection loaded = (projection == null) ? null : projection.including(filter.fields());
+        RecordTable table = queryMetrics.indexLookup(fieldIndexService.candidateRowIds(datasetName, filter))
+                .map(rowIds -> loadRows(datasetName, rowIds, loaded))
+                .orElseGet(() -> loadTable(datasetName, loaded));
+        return query.apply(queryEngine.filter(table, filter));
+    }
+
+    // Reads the given rows in insertion order; the result is partial and therefore never cached
+    private RecordTable loadRows(String datasetName, Set<Long> rowIds, Projection projection) {
+        List<Long> sortedRowIds = new ArrayList<>(rowIds);
+        Collections.sort(sortedRowIds);
+
+        Map<Long, RecordRow> rowsById = fetchRowsById(datasetName, sortedRowIds);
+        List<ParsedRow> rows = queryMetrics.time(QueryMetrics.Stage.DECODE, () -> {
+            List<ParsedRow> decoded = new ArrayList<>(rowsById.size());
+            for (Long rowId : sortedRowIds) {
+                RecordRow row = rowsById.get(rowId);
+                if (row != null) {
+                    decoded.add(new ParsedRow(rowId, deserializeRecord(row, projection)));
+                }
+            }
+            return decoded;
+        });
+        return new ListRecordTable(rows);
+    }
+
+    @Override
+    @Transactional
+    public IndexResponse createIndex(String datasetName, String fieldName) {
+        validateDatasetName(datasetName);
+        FieldPath path = parseFieldPath(fieldName, "index");
+
+        // Only the field the indexed path starts at is decoded
+        Projection projection = new Projection(Set.of(path.root()));
+        long indexed;
+        try (Stream<RecordRow> rows = recordStore.scan(datasetName)) {
+            Iterator<ParsedRow> iterator = rows
+                    .map(row -> new ParsedRow(row.id(), deserializeRecord(row, projection)))
+                    .iterator();
+
+            if (!iterator.hasNext()) {
+                throw new DatasetNotFoundException(
+                        String.format("No records found for dataset '%s'", datasetName));
+            }
+            indexed = fieldIndexService.createIndex(datasetName, fieldName, iterator);
+        }
+
+        return IndexResponse.builder()
+                .message("Index created successfully")
+                .dataset(datasetName)
+                .field(fieldName)
+                .indexedRecords(indexed)
+                .build();
+    }
+
+    @Override
+    @Transactional
+    public ViewResponse createView(String datasetName, String fieldName, String aggregates) {
+        validateDatasetName(datasetName);
+        FieldPath path = parseFieldPath(fieldName, "view");
+
+        List<Aggregate> parsed = Aggregate.parseList(aggregates != null ? aggregates : "count");
+
+        // Only the fields the grouped and aggregated paths start at are decoded
+        Set<String> fields = new HashSet<>();
+        fields.add(path.root());
+        parsed.stream()
+                .map(Aggregate::field)
+                .filter(Objects::nonNull)
+                .map(field -> FieldPath.parse(field).root())
+                .forEach(fields::add);
+        Projection projection = new Projection(fields);
+
+        long groups;
+        try (Stream<RecordRow> rows = recordStore.scan(datasetName)) {
+            Iterator<ParsedRow> iterator = rows
+                    .map(row -> new ParsedRow(row.id(), deserializeRecord(row, projection)))
+                    .iterator();
+
+            if (!iterator.hasNext()) {
+                throw new DatasetNotFoundException(
+                        String.format("No records found for dataset '%s'", datasetName));
+            }
+            groups = groupViewService.createView(datasetName, fieldName, parsed, iterator);
         }
 
-        List<Map<String, Object>> records = fetchAllRecords(datasetName);
+        return ViewResponse.builder()
+                .message("View created successfully")
+                .dataset(datasetName)
+                .field(fieldName)
+                .aggregates(parsed.stream().map(Aggregate::label).toList())
+                .groups(groups)
+                .build();
+    }
 
-        Comparator<Map<String, Object>> comparator = (r1, r2) -> {
-            Object v1 = r1.get(sortByField);
-            Object v2 = r2.get(sortByField);
-            return compareValues(v1, v2);
-        };
+    /*
+     * Index-backed paths: the group or sort order comes from the field index, so the
+     * records only need to be parsed once to be returned, never to extract or compare keys.
+     */
+
+    private Map<String, List<Map<String, Object>>> groupByIndex(String datasetName, Map<String, List<Long>> rowIds,
+            Projection projection) {
+        Map<String, List<Map<String, Object>>> grouped = new LinkedHashMap<>();
+        Map<Long, List<Map<String, Object>>> targets = new HashMap<>();
+        rowIds.forEach((key, ids) -> {
+            List<Map<String, Object>> group = new ArrayList<>(ids.size());
+            grouped.put(key, group);
+            ids.forEach(id -> targets.put(id, group));
+        });
+
+        // Rows arrive in id order, which is also the order of the ids within each group
+        scanEach(datasetName, row -> {
+            List<Map<String, Object>> group = targets.get(row.id());
+            if (group != null) {
+                group.add(deserializeRecord(row, projection));
+            }
+        });
 
-        if (sortOrder.equals("desc")) {
-            comparator = comparator.reversed();
+        if (grouped.isEmpty()) {
+            throw new DatasetNotFoundException(
+                    String.format("No records found for dataset '%s'", datasetName));
         }
+        return grouped;
+    }
 
-        records.sort(comparator);
+    private SortedPage sortByIndex(String datasetName, String sortByField, List<Long> sortedRowIds, SortPage page,
+            Projection projection) {
+        if (sortedRowIds.isEmpty()) {
+            throw new DatasetNotFoundException(
+                    String.format("No records found for dataset '%s'", datasetName));
+        }
+
+        if (page.isAll()) {
+            return new SortedPage(readAllInOrder(datasetName, sortedRowIds, projection), null);
+        }
+
+        // Only the rows of the requested page are read
+        int from = Math.min(page.offset(), sortedRowIds.size());
+        int to = (page.limit() == null) ? sortedRowIds.size()
+                : (int) Math.min((long) from + page.limit(), sortedRowIds.size());
+        List<Long> pageRowIds = sortedRowIds.subList(from, to);
+
+        List<Map<String, Object>> records = new ArrayList<>(pageRowIds.size());
+        Map<Long, RecordRow> rowsById = fetchRowsById(datasetName, pageRowIds);
+        for (Long rowId : pageRowIds) {
+            records.add(deserializeRecord(rowsById.get(rowId), projection));
+        }
+
+        SortCursor next = null;
+        if (to < sortedRowIds.size() && !records.isEmpty()) {
+            Object lastKey = FieldPath.parse(sortByField).get(records.get(records.size() - 1));
+            next = new SortCursor(lastKey, pageRowIds.get(pageRowIds.size() - 1));
+        }
+        return new SortedPage(records, next);
+    }
+
+    private List<Map<String, Object>> readAllInOrder(String datasetName, List<Long> sortedRowIds,
+            Projection projection) {
+        Map<Long, Integer> positions = new HashMap<>();
+        for (int i = 0; i < sortedRowIds.size(); i++) {
+            positions.put(sortedRowIds.get(i), i);
+        }
+
+        Map<String, Object>[] sorted = newRecordArray(sortedRowIds.size());
+        scanEach(datasetName, row -> {
+            Integer position = positions.get(row.id());
+            if (position != null) {
+                sorted[position] = deserializeRecord(row, projection);
+            }
+        });
+
+        List<Map<String, Object>> records = new ArrayList<>(sorted.length);
+        for (Map<String, Object> record : sorted) {
+            if (record != null) {
+                records.add(record);
+            }
+        }
         return records;
     }
 
+    /*
+     * Streaming variants: the dataset is scanned once through a cursor decoding only
+     * the group/sort key (and the fields the filter reads). With an index, the row ids
+     * come from the index and rows are re-read in chunks, their stored JSON copied into
+     * the response. Without one, the scan keeps the stored data itself in an
+     * ExternalGrouper or ExternalSorter, which partition or spill sorted runs to disk
+     * beyond their memory budget and read them back in order into the response. No
+     * record is ever held as a whole Map.
+     */
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamGroupBy(String datasetName, String groupByField, String fields, String where,
+            OutputStream out) throws IOException {
+        validateDatasetName(datasetName);
+        FieldPath groupByPath = parseFieldPath(groupByField, "groupBy");
+
+        Projection projection = outputProjection(fields, groupByPath);
+        Filter filter = Filter.parse(where);
+        Map<String, List<Long>> indexed = (filter == null)
+                ? fieldIndexService.groupRowIds(datasetName, groupByField).orElse(null)
+                : null;
+        if (indexed != null && indexed.isEmpty()) {
+            throw new DatasetNotFoundException(
+                    String.format("No records found for dataset '%s'", datasetName));
+        }
+
+        try (ExternalGrouper.Grouping grouping = externalGrouper.start()) {
+            if (indexed == null) {
+                groupScannedRows(datasetName, groupByPath, filter, grouping);
+            }
+
+            JsonGenerator generator = objectMapper.createGenerator(out);
+            generator.writeStartObject();
+            generator.writeObjectFieldStart("groupedRecords");
+            if (indexed != null) {
+                for (Map.Entry<String, List<Long>> group : indexed.entrySet()) {
+                    generator.writeArrayFieldStart(group.getKey());
+                    writeRows(generator, datasetName, group.getValue(), projection);
+                    generator.writeEndArray();
+                }
+            } else {
+                String[] currentGroup = new String[1];
+                grouping.forEachGrouped((groupKey, recordData, legacyJson) -> {
+                    if (!groupKey.equals(currentGroup[0])) {
+                        if (currentGroup[0] != null) {
+                            generator.writeEndArray();
+                        }
+                        generator.writeArrayFieldStart(groupKey);
+                        currentGroup[0] = groupKey;
+                    }
+                    recordCodec.write(recordData, legacyJson, projection, generator);
+                });
+                if (currentGroup[0] != null) {
+                    generator.writeEndArray();
+                }
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.flush();
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamSortBy(String datasetName, String sortByField, String order, String fields, String where,
+            OutputStream out) throws IOException {
+        validateDatasetName(datasetName);
+        FieldPath sortByPath = parseFieldPath(sortByField, "sortBy");
+
+        boolean descending = resolveSortOrder(order).equals("desc");
+        Projection projection = outputProjection(fields, sortByPath);
+
+        Filter filter = Filter.parse(where);
+        List<Long> indexed = (filter == null)
+                ? fieldIndexService.sortedRowIds(datasetName, sortByField, descending).orElse(null)
+                : null;
+        if (indexed != null && indexed.isEmpty()) {
+            throw new DatasetNotFoundException(
+                    String.format("No records found for dataset '%s'", datasetName));
+        }
+
+        try (ExternalSorter.Sort sort = externalSorter.start(descending)) {
+            if (indexed == null) {
+                sortScannedRows(datasetName, sortByPath, filter, sort);
+            }
+
+            JsonGenerator generator = objectMapper.createGenerator(out);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("sortedRecords");
+            if (indexed != null) {
+                writeRows(generator, datasetName, indexed, projection);
+            } else {
+                sort.forEachSorted((label, recordData, legacyJson) ->
+                        recordCodec.write(recordData, legacyJson, projection, generator));
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.flush();
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean needsExternalSort(String datasetName) {
+        validateDatasetName(datasetName);
+        // A cached dataset is already in memory and sorted there
+        return datasetCache.get(datasetName).isEmpty()
+                && !externalSorter.fitsInMemory(recordStore.storedSize(datasetName));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean needsExternalGroupBy(String datasetName) {
+        validateDatasetName(datasetName);
+        return datasetCache.get(datasetName).isEmpty()
+                && !externalGrouper.fitsInMemory(recordStore.storedSize(datasetName));
+    }
+
+    /**
+     * Adds the rows matching the filter (all rows without one) with their stored data
+     * to the grouping, which partitions them on disk once it outgrows its memory budget.
+     */
+    private void groupScannedRows(String datasetName, FieldPath groupByPath, Filter filter,
+            ExternalGrouper.Grouping grouping) {
+        Projection keyFields = scanProjection(groupByPath, filter);
+        long scanned = scanEach(datasetName, row -> {
+            Object key = scanKey(row, groupByPath, keyFields, filter);
+            if (key != NO_MATCH) {
+                grouping.add(groupKey(key), row.id(), row.recordData(), row.jsonData());
+            }
+        });
+        requireRecords(datasetName, scanned);
+        if (grouping.isSpilled()) {
+            queryMetrics.groupBySpilled();
+        }
+    }
+
+    /**
+     * Adds the rows matching the filter (all rows without one) with their stored data
+     * to the sort, which spills sorted runs to disk once it outgrows its memory budget.
+     */
+    private void sortScannedRows(String datasetName, FieldPath sortByPath, Filter filter, ExternalSorter.Sort sort) {
+        Projection keyFields = scanProjection(sortByPath, filter);
+        long scanned = scanEach(datasetName, row -> {
+            Object key = scanKey(row, sortByPath, keyFields, filter);
+            if (key != NO_MATCH) {
+                sort.add(key, row.id(), row.recordData(), row.jsonData());
+            }
+        });
+        requireRecords(datasetName, scanned);
+        queryMetrics.sortRunsSpilled(sort.spilledRuns());
+    }
+
+    // Passes every stored row of the dataset to the action, timed as a scan; returns the number of rows
+    private long scanEach(String datasetName, Consumer<RecordRow> action) {
+        return queryMetrics.time(QueryMetrics.Stage.SCAN, () -> {
+            long scanned = 0;
+            try (Stream<RecordRow> rows = recordStore.scan(datasetName)) {
+                for (Iterator<RecordRow> iterator = rows.iterator(); iterator.hasNext(); scanned++) {
+                    action.accept(iterator.next());
+                }
+            }
+            return scanned;
+        });
+    }
+
+    /**
+     * The key of a scanned row, or NO_MATCH when the row fails the filter. Without a
+     * filter the parser walks straight to the key; with one, the key field and the
+     * fields the filter reads are decoded.
+     */
+    private Object scanKey(RecordRow row, FieldPath keyPath, Projection keyFields, Filter filter) {
+        if (filter == null) {
+            return recordCodec.read(row.recordData(), row.jsonData(), keyPath);
+        }
+        Map<String, Object> record = deserializeRecord(row, keyFields);
+        return filter.test(record) ? keyPath.get(record) : NO_MATCH;
+    }
+
+    // The field the key path starts at and the fields the filter reads: all a scan needs to decode
+    private static Projection scanProjection(FieldPath keyPath, Filter filter) {
+        Projection projection = new Projection(Set.of(keyPath.root()));
+        return (filter == null) ? projection : projection.including(filter.fields());
+    }
+
+    // Writes the given rows in order, fetching them STREAM_CHUNK_SIZE at a time
+    private void writeRows(JsonGenerator generator, String datasetName, List<Long> rowIds, Projection projection)
+            throws IOException {
+        for (int from = 0; from < rowIds.size(); from += STREAM_CHUNK_SIZE) {
+            List<Long> chunk = rowIds.subList(from, Math.min(from + STREAM_CHUNK_SIZE, rowIds.size()));
+
+            Map<Long, RecordRow> rowsById = fetchRowsById(datasetName, chunk);
+            for (Long rowId : chunk) {
+                RecordRow row = rowsById.get(rowId);
+                if (row != null) {
+                    recordCodec.write(row.recordData(), row.jsonData(), projection, generator);
+                }
+            }
+            generator.flush();
+        }
+    }
+
+    // Stored data of the given rows, read STREAM_CHUNK_SIZE rows per query
+    private Map<Long, RecordRow> fetchRowsById(String datasetName, List<Long> rowIds) {
+        return queryMetrics.time(QueryMetrics.Stage.READ, () -> {
+            Map<Long, RecordRow> rowsById = new HashMap<>();
+            for (int from = 0; from < rowIds.size(); from += STREAM_CHUNK_SIZE) {
+                List<Long> chunk = rowIds.subList(from, Math.min(from + STREAM_CHUNK_SIZE, rowIds.size()));
+                for (RecordRow row : recordStore.findRows(datasetName, chunk)) {
+                    rowsById.put(row.id(), row);
+                }
+            }
+            return rowsById;
+        });
+    }
+
+
+    private static void requireRecords(String datasetName, long count) {
+        if (count == 0) {
+            throw new DatasetNotFoundException(
+                    String.format("No records found for dataset '%s'", datasetName));
+        }
+    }
+
     private void validateDatasetName(String datasetName) {
         if (datasetName == null || datasetName.isBlank()) {
             throw new IllegalArgumentException("Dataset name cannot be null or blank");
         }
     }
 
-    private void validateFieldName(String fieldName, String paramName) {
+    private String resolveSortOrder(String order) {
+        String sortOrder = (order != null) ? order.toLowerCase() : "asc";
+        if (!sortOrder.equals("asc") && !sortOrder.equals("desc")) {
+            throw new InvalidQueryParameterException("Order must be 'asc' or 'desc', got: " + order);
+        }
+        return sortOrder;
+    }
+
+    private FieldPath parseFieldPath(String fieldName, String paramName) {
         if (fieldName == null || fieldName.isBlank()) {
             throw new InvalidQueryParameterException(paramName + " parameter cannot be null or blank");
         }
+        return FieldPath.parse(fieldName);
     }
 
     private Long extractRecordId(Map<String, Object> record) {
@@ -185,57 +863,44 @@ public class DatasetServiceImpl implements DatasetService {
         }
     }
 
-    private String serializeRecord(Map<String, Object> record) {
-        try {
-            return objectMapper.writeValueAsString(record);
-        } catch (JsonProcessingException e) {
-            throw new IllegalArgumentException("Failed to serialize record to JSON: " + e.getMessage());
-        }
+    private Map<String, Object> deserializeRecord(RecordRow row, Projection projection) {
+        return recordCodec.decode(row.recordData(), row.jsonData(), projection);
     }
 
-    private Map<String, Object> deserializeRecord(String json) {
-        try {
-            return objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {
-            });
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to deserialize JSON record: " + e.getMessage());
-        }
+    private RecordTable loadTable(String datasetName) {
+        return loadTable(datasetName, null);
     }
 
-    private List<Map<String, Object>> fetchAllRecords(String datasetName) {
-        List<DatasetRecord> entities = repository.findByDatasetName(datasetName);
+    /**
+     * Reads and parses the whole dataset. Complete records are offered to the cache;
+     * with a projection only the projected fields are decoded and nothing is cached.
+     */
+    private RecordTable loadTable(String datasetName, Projection projection) {
+        long cacheToken = datasetCache.beginLoad(datasetName);
+
+        List<RecordRow> stored = queryMetrics.time(QueryMetrics.Stage.READ, () -> {
+            try (Stream<RecordRow> scan = recordStore.scan(datasetName)) {
+                return scan.toList();
+            }
+        });
 
-        if (entities.isEmpty()) {
+        if (stored.isEmpty()) {
             throw new DatasetNotFoundException(
                     String.format("No records found for dataset '%s'", datasetName));
         }
 
-        return entities.stream()
-                .map(entity -> deserializeRecord(entity.getJsonData()))
-                .collect(Collectors.toList());
-    }
-
-    @SuppressWarnings({ "unchecked", "rawtypes" })
-    private int compareValues(Object v1, Object v2) {
-        if (v1 == null && v2 == null)
-            return 0;
-        if (v1 == null)
-            return -1;
-        if (v2 == null)
-            return 1;
-
-        // Both are numbers
-        if (v1 instanceof Number && v2 instanceof Number) {
-            return Double.compare(((Number) v1).doubleValue(), ((Number) v2).doubleValue());
+        // Decoding dominates a cold load, so large datasets are decoded in parallel
+        Stream<RecordRow> source = queryEngine.isParallel(stored.size())
+                ? stored.parallelStream()
+                : stored.stream();
+        List<ParsedRow> rows = queryMetrics.time(QueryMetrics.Stage.DECODE, () -> source
+                .map(row -> new ParsedRow(row.id(), deserializeRecord(row, projection)))
+                .toList());
+
+        RecordTable table = new ListRecordTable(rows);
+        if (projection == null) {
+            datasetCache.offer(datasetName, cacheToken, table);
         }
-
-        // Both are Comparable of the same type
-        if (v1 instanceof Comparable && v2 instanceof Comparable
-                && v1.getClass().equals(v2.getClass())) {
-            return ((Comparable) v1).compareTo(v2);
-        }
-
-        // Fallback: compare as strings
-        return String.valueOf(v1).compareTo(String.valueOf(v2));
+        return table;
     }
 }
@@ -0,0 +1,273 @@
+package com.assignment.jsonquery.service;
+
+import com.assignment.jsonquery.config.DatasetProperties;
+import com.assignment.jsonquery.storage.RecordStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Groups stored records by key within a memory budget.
+ * <p>
+ * Records are collected per group in memory until their estimated size reaches
+ * {@code dataset.group.memory-budget}. From then on, every record goes to one of
+ * {@code dataset.group.spill-partitions} temporary files chosen by the hash of
+ * its group key, so that all records of a group share a partition. Reading the
+ * result processes one partition at a time: an {@link ExternalSorter} orders its
+ * records by group key and row id, so that the first record of each group carries
+ * the group's first row id, and a second sort orders all records by that row id.
+ * Memory therefore holds two sorts' budgets, however many groups there are.
+ * <p>
+ * Either way, groups come out in the order they were first seen and the records
+ * of a group in row order, just like the in-memory group-by.
+ */
+@Component
+@Slf4j
+public class ExternalGrouper {
+
+    // Estimated heap bytes of a collected record besides its stored bytes, and of a group besides its key
+    private static final int ENTRY_OVERHEAD = 48;
+    private static final int GROUP_OVERHEAD = 120;
+
+    private static final int PARTITION_BUFFER_SIZE = 16 * 1024;
+
+    private final DatasetProperties properties;
+    private final ExternalSorter externalSorter;
+
+    public ExternalGrouper(DatasetProperties properties, ExternalSorter externalSorter) {
+        this.properties = properties;
+        this.externalSorter = externalSorter;
+    }
+
+    // Whether the stored records, once decoded, fit the budget of an in-memory group-by
+    public boolean fitsInMemory(RecordStore.StoredSize size) {
+        return RecordCodec.decodedBytes(size) <= properties.getGroup().getMemoryBudget().toBytes();
+    }
+
+    public Grouping start() {
+        return new Grouping(properties.getGroup().getMemoryBudget().toBytes(),
+                properties.getGroup().getSpillPartitions());
+    }
+
+    /**
+     * One group-by: records are added in row order, then read back grouped once.
+     * Closing the grouping deletes its partition files.
+     */
+    public final class Grouping implements AutoCloseable {
+
+        private final long memoryBudget;
+        private final int partitionCount;
+        private final Map<String, List<Entry>> collected = new LinkedHashMap<>();
+        private long collectedBytes;
+        private List<Partition> partitions;
+
+        private Grouping(long memoryBudget, int partitionCount) {
+            this.memoryBudget = memoryBudget;
+            this.partitionCount = partitionCount;
+        }
+
+        public void add(String groupKey, long rowId, byte[] recordData, String legacyJson) {
+            try {
+                if (partitions != null) {
+                    partition(groupKey).write(groupKey, new Entry(rowId, recordData, legacyJson));
+                    return;
+                }
+
+                Entry entry = new Entry(rowId, recordData, legacyJson);
+                collected.computeIfAbsent(groupKey, key -> {
+                    collectedBytes += GROUP_OVERHEAD + 2L * key.length();
+                    return new ArrayList<>();
+                }).add(entry);
+                collectedBytes += entry.estimatedBytes();
+                if (collectedBytes >= memoryBudget) {
+                    spill();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to spill a group partition: " + e.getMessage(), e);
+            }
+        }
+
+        public boolean isSpilled() {
+            return partitions != null;
+        }
+
+        /**
+         * Passes the stored data of every added record to the consumer with its group
+         * key as the label. The records of a group are passed one after the other.
+         */
+        public void forEachGrouped(ExternalSorter.RecordConsumer consumer) throws IOException {
+            if (partitions == null) {
+                for (Map.Entry<String, List<Entry>> group : collected.entrySet()) {
+                    for (Entry entry : group.getValue()) {
+                        consumer.accept(group.getKey(), entry.recordData(), entry.legacyJson());
+                    }
+                }
+                return;
+            }
+
+            for (Partition partition : partitions) {
+                partition.finish();
+            }
+            try (ExternalSorter.Sort sort = externalSorter.start(false)) {
+                for (Partition partition : partitions) {
+                    try (ExternalSorter.Sort byGroup = externalSorter.start(false)) {
+                        partition.read((groupKey, entry) -> byGroup.add(groupKey, entry.rowId(), groupKey,
+                                entry.recordData(), entry.legacyJson()));
+                        byGroup.forEachSortedRow(new FirstRowIdKeyer(sort));
+                    }
+                }
+                sort.forEachSorted(consumer);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (partitions != null) {
+                for (Partition partition : partitions) {
+                    partition.delete();
+                }
+                partitions = null;
+            }
+            collected.clear();
+        }
+
+        // Moves the collected records to the partitions; records added later go straight there
+        private void spill() throws IOException {
+            partitions = new ArrayList<>(partitionCount);
+            for (int i = 0; i < partitionCount; i++) {
+                partitions.add(new Partition(createPartitionFile()));
+            }
+            for (Map.Entry<String, List<Entry>> group : collected.entrySet()) {
+                Partition partition = partition(group.getKey());
+                for (Entry entry : group.getValue()) {
+                    partition.write(group.getKey(), entry);
+                }
+            }
+            collected.clear();
+            collectedBytes = 0;
+        }
+
+        private Partition partition(String groupKey) {
+            return partitions.get(Math.floorMod(groupKey.hashCode(), partitions.size()));
+        }
+    }
+
+    private Path createPartitionFile() throws IOException {
+        String spillDir = properties.getGroup().getSpillDir();
+        if (spillDir == null || spillDir.isBlank()) {
+            return Files.createTempFile("group-partition-", ".bin");
+        }
+        return Files.createTempFile(Files.createDirectories(Path.of(spillDir)), "group-partition-", ".bin");
+    }
+
+    private record Entry(long rowId, byte[] recordData, String legacyJson) {
+
+        long estimatedBytes() {
+            return ENTRY_OVERHEAD + ((recordData != null) ? recordData.length : 2L * legacyJson.length());
+        }
+    }
+
+    /**
+     * Adds records, sorted by group key and then row id, to a sort keyed by the
+     * first row id of their group, which is that of the group's first record.
+     */
+    private static final class FirstRowIdKeyer implements ExternalSorter.RowConsumer {
+
+        private final ExternalSorter.Sort sort;
+        private String groupKey;
+        private long firstRowId;
+
+        FirstRowIdKeyer(ExternalSorter.Sort sort) {
+            this.sort = sort;
+        }
+
+        @Override
+        public void accept(long rowId, String label, byte[] recordData, String legacyJson) {
+            if (!label.equals(groupKey)) {
+                groupKey = label;
+                firstRowId = rowId;
+            }
+            sort.add(firstRowId, rowId, label, recordData, legacyJson);
+        }
+    }
+
+    @FunctionalInterface
+    private interface PartitionVisitor {
+        void visit(String groupKey, Entry entry) throws IOException;
+    }
+
+    /*
+     * Partition file format, per record:
+     *   string groupKey | long rowId | boolean legacy | int dataLength
+     *   | byte[dataLength] recordData or UTF-8 legacy JSON
+     * with strings written as in ExternalSorter's run files.
+     */
+    private static final class Partition {
+
+        private final Path path;
+        private DataOutputStream out;
+
+        Partition(Path path) throws IOException {
+            this.path = path;
+            this.out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(path), PARTITION_BUFFER_SIZE));
+        }
+
+        void write(String groupKey, Entry entry) throws IOException {
+            ExternalSorter.writeString(out, groupKey);
+            out.writeLong(entry.rowId());
+
+            boolean legacy = entry.recordData() == null;
+            byte[] data = legacy ? entry.legacyJson().getBytes(StandardCharsets.UTF_8) : entry.recordData();
+            out.writeBoolean(legacy);
+            out.writeInt(data.length);
+            out.write(data);
+        }
+
+        void finish() throws IOException {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+        }
+
+        void read(PartitionVisitor visitor) throws IOException {
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(path), PARTITION_BUFFER_SIZE))) {
+                while (true) {
+                    String groupKey;
+                    try {
+                        groupKey = ExternalSorter.readString(in);
+                    } catch (EOFException e) {
+                        return;
+                    }
+                    long rowId = in.readLong();
+                    boolean legacy = in.readBoolean();
+                    byte[] data = new byte[in.readInt()];
+                    in.readFully(data);
+                    visitor.visit(groupKey, legacy
+                            ? new Entry(rowId, null, new String(data, StandardCharsets.UTF_8))
+                            : new Entry(rowId, data, null));
+                }
+            }
+        }
+
+        void delete() {
+            try {
+                finish();
+            } catch (IOException e) {
+                log.warn("Failed to close group partition {}", path, e);
+            }
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Failed to delete group partition {}", path, e);
+            }
+        }
+    }
+}
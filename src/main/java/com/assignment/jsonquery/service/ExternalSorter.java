@@ -0,0 +1,350 @@
+package com.assignment.jsonquery.service;
+
+import com.assignment.jsonquery.config.DatasetProperties;
+import com.assignment.jsonquery.query.QueryEngine;
+import com.assignment.jsonquery.query.SortKeys;
+import com.assignment.jsonquery.storage.RecordStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Sorts stored records by key within a memory budget.
+ * <p>
+ * Records are collected in memory until their estimated size reaches
+ * {@code dataset.sort.memory-budget}. The run is then sorted and spilled to a
+ * temporary file, holding each record's key as Smile, its row id and its stored
+ * bytes as they are. Reading the result k-way merges the spilled runs and the
+ * records still in memory, so that memory holds one budget's worth of records
+ * plus one record per run, however large the dataset. Without a spill the
+ * records are sorted in memory. The order is that of {@link SortKeys}.
+ * <p>
+ * A record may carry a label, such as the group it belongs to, which is handed
+ * back with it.
+ */
+@Component
+@Slf4j
+public class ExternalSorter {
+
+    // Estimated heap bytes of a collected record besides its stored bytes and key
+    private static final int ENTRY_OVERHEAD = 64;
+
+    // Heap bytes per record of the typed sort keys of an in-memory sort
+    private static final int SORT_KEY_BYTES = 40;
+
+    private static final int RUN_BUFFER_SIZE = 64 * 1024;
+
+    private final ObjectMapper smileMapper;
+    private final DatasetProperties properties;
+
+    public ExternalSorter(DatasetProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.smileMapper = objectMapper.copyWith(new SmileFactory());
+    }
+
+    // Whether the stored records, decoded and with their sort keys, fit the budget of an in-memory sort
+    public boolean fitsInMemory(RecordStore.StoredSize size) {
+        long estimatedBytes = RecordCodec.decodedBytes(size) + size.records() * SORT_KEY_BYTES;
+        return estimatedBytes <= properties.getSort().getMemoryBudget().toBytes();
+    }
+
+    public Sort start(boolean descending) {
+        return new Sort(descending, properties.getSort().getMemoryBudget().toBytes());
+    }
+
+    @FunctionalInterface
+    public interface RecordConsumer {
+        void accept(String label, byte[] recordData, String legacyJson) throws IOException;
+    }
+
+    // Like RecordConsumer, for callers that also need the row id of each record
+    @FunctionalInterface
+    public interface RowConsumer {
+        void accept(long rowId, String label, byte[] recordData, String legacyJson) throws IOException;
+    }
+
+    /**
+     * One sort: records are added in any order, then read back sorted once. Closing
+     * the sort deletes its spilled runs.
+     */
+    public final class Sort implements AutoCloseable {
+
+        private final boolean descending;
+        private final long memoryBudget;
+        private final List<Entry> collected = new ArrayList<>();
+        private final List<SpilledRun> runs = new ArrayList<>();
+        private long collectedBytes;
+
+        private Sort(boolean descending, long memoryBudget) {
+            this.descending = descending;
+            this.memoryBudget = memoryBudget;
+        }
+
+        public void add(Object key, long rowId, byte[] recordData, String legacyJson) {
+            add(key, rowId, null, recordData, legacyJson);
+        }
+
+        public void add(Object key, long rowId, String label, byte[] recordData, String legacyJson) {
+            Entry entry = new Entry(key, rowId, label, recordData, legacyJson);
+            collected.add(entry);
+            collectedBytes += entry.estimatedBytes();
+            if (collectedBytes >= memoryBudget) {
+                try {
+                    spill();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to spill a sort run: " + e.getMessage(), e);
+                }
+            }
+        }
+
+        public int spilledRuns() {
+            return runs.size();
+        }
+
+        // Passes the stored data of every added record to the consumer, in sort order
+        public void forEachSorted(RecordConsumer consumer) throws IOException {
+            forEachSortedRow((rowId, label, recordData, legacyJson) -> consumer.accept(label, recordData, legacyJson));
+        }
+
+        // Passes every added record with its row id to the consumer, in sort order
+        public void forEachSortedRow(RowConsumer consumer) throws IOException {
+            List<RunReader> readers = new ArrayList<>(runs.size() + 1);
+            try {
+                for (SpilledRun run : runs) {
+                    readers.add(new FileRunReader(run));
+                }
+                readers.add(new MemoryRunReader(sorted()));
+
+                Comparator<RunReader> order = (r1, r2) -> compare(r1.current(), r2.current());
+                PriorityQueue<RunReader> heads = new PriorityQueue<>(readers.size(), order);
+                for (RunReader reader : readers) {
+                    if (reader.advance()) {
+                        heads.add(reader);
+                    }
+                }
+                while (!heads.isEmpty()) {
+                    RunReader reader = heads.poll();
+                    Entry entry = reader.current();
+                    consumer.accept(entry.rowId(), entry.label(), entry.recordData(), entry.legacyJson());
+                    if (reader.advance()) {
+                        heads.add(reader);
+                    }
+                }
+            } finally {
+                for (RunReader reader : readers) {
+                    reader.close();
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            for (SpilledRun run : runs) {
+                try {
+                    Files.deleteIfExists(run.path());
+                } catch (IOException e) {
+                    log.warn("Failed to delete sort run {}", run.path(), e);
+                }
+            }
+            runs.clear();
+            collected.clear();
+        }
+
+        private void spill() throws IOException {
+            List<Entry> run = sorted();
+            Path path = createRunFile();
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(path), RUN_BUFFER_SIZE))) {
+                for (Entry entry : run) {
+                    writeEntry(out, entry);
+                }
+            } catch (IOException e) {
+                Files.deleteIfExists(path);
+                throw e;
+            }
+            runs.add(new SpilledRun(path, run.size()));
+            collected.clear();
+            collectedBytes = 0;
+        }
+
+        // The collected records in sort order
+        private List<Entry> sorted() {
+            Object[] keys = new Object[collected.size()];
+            long[] rowIds = new long[collected.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = collected.get(i).key();
+                rowIds[i] = collected.get(i).rowId();
+            }
+            int[] order = new int[keys.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            SortKeys.of(keys, rowIds).sort(order, descending, false);
+
+            List<Entry> sorted = new ArrayList<>(order.length);
+            for (int index : order) {
+                sorted.add(collected.get(index));
+            }
+            return sorted;
+        }
+
+        // Same order as SortKeys: by key in the sort direction, then by row id ascending
+        private int compare(Entry e1, Entry e2) {
+            int result = QueryEngine.compareValues(e1.key(), e2.key());
+            if (descending) {
+                result = -result;
+            }
+            return result != 0 ? result : Long.compare(e1.rowId(), e2.rowId());
+        }
+    }
+
+    private Path createRunFile() throws IOException {
+        String spillDir = properties.getSort().getSpillDir();
+        if (spillDir == null || spillDir.isBlank()) {
+            return Files.createTempFile("sort-run-", ".bin");
+        }
+        return Files.createTempFile(Files.createDirectories(Path.of(spillDir)), "sort-run-", ".bin");
+    }
+
+    /*
+     * Run file format, per record:
+     *   int keyLength | byte[keyLength] key (Smile) | long rowId | string label (or none)
+     *   | boolean legacy | int dataLength | byte[dataLength] recordData or UTF-8 legacy JSON
+     * where a string is int length | byte[length] UTF-8, and a length of -1 is none.
+     */
+
+    private void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        byte[] key = smileMapper.writeValueAsBytes(entry.key());
+        out.writeInt(key.length);
+        out.write(key);
+        out.writeLong(entry.rowId());
+        writeString(out, entry.label());
+
+        boolean legacy = entry.recordData() == null;
+        byte[] data = legacy ? entry.legacyJson().getBytes(StandardCharsets.UTF_8) : entry.recordData();
+        out.writeBoolean(legacy);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private Entry readEntry(DataInputStream in) throws IOException {
+        byte[] key = new byte[in.readInt()];
+        in.readFully(key);
+        long rowId = in.readLong();
+        String label = readString(in);
+
+        boolean legacy = in.readBoolean();
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return legacy
+                ? new Entry(smileMapper.readValue(key, Object.class), rowId, label, null,
+                        new String(data, StandardCharsets.UTF_8))
+                : new Entry(smileMapper.readValue(key, Object.class), rowId, label, data, null);
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private record Entry(Object key, long rowId, String label, byte[] recordData, String legacyJson) {
+
+        long estimatedBytes() {
+            long data = (recordData != null) ? recordData.length : 2L * legacyJson.length();
+            long keyBytes = (key instanceof String string) ? 40 + 2L * string.length() : 16;
+            long labelBytes = (label != null) ? 40 + 2L * label.length() : 0;
+            return ENTRY_OVERHEAD + data + keyBytes + labelBytes;
+        }
+    }
+
+    private record SpilledRun(Path path, int entries) {
+    }
+
+    // A sorted run read one record at a time
+    private interface RunReader extends Closeable {
+
+        boolean advance() throws IOException;
+
+        Entry current();
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    private static final class MemoryRunReader implements RunReader {
+
+        private final Iterator<Entry> entries;
+        private Entry current;
+
+        MemoryRunReader(List<Entry> entries) {
+            this.entries = entries.iterator();
+        }
+
+        @Override
+        public boolean advance() {
+            current = entries.hasNext() ? entries.next() : null;
+            return current != null;
+        }
+
+        @Override
+        public Entry current() {
+            return current;
+        }
+    }
+
+    private final class FileRunReader implements RunReader {
+
+        private final DataInputStream in;
+        private int remaining;
+        private Entry current;
+
+        FileRunReader(SpilledRun run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run.path()), RUN_BUFFER_SIZE));
+            this.remaining = run.entries();
+        }
+
+        @Override
+        public boolean advance() throws IOException {
+            if (remaining == 0) {
+                current = null;
+                return false;
+            }
+            remaining--;
+            current = readEntry(in);
+            return true;
+        }
+
+        @Override
+        public Entry current() {
+            return current;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
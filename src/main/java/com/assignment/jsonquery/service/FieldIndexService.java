@@ -0,0 +1,275 @@
+package com.assignment.jsonquery.service;
+
+import com.assignment.jsonquery.entity.FieldIndex;
+import com.assignment.jsonquery.entity.FieldIndexEntry;
+import com.assignment.jsonquery.exception.IndexAlreadyExistsException;
+import com.assignment.jsonquery.query.FieldPath;
+import com.assignment.jsonquery.query.Filter;
+import com.assignment.jsonquery.query.ParsedRow;
+import com.assignment.jsonquery.repository.FieldIndexEntryRepository;
+import com.assignment.jsonquery.repository.FieldIndexRepository;
+import com.assignment.jsonquery.repository.IndexKey;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Maintains opt-in per-field indexes of a dataset. Each entry maps the value of
+ * the indexed field to the row holding the record, so group-by and sort-by on
+ * that field can be answered from the entries instead of scanning and parsing
+ * every stored record.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FieldIndexService {
+
+    // Entries are written in chunks while building an index over existing records
+    private static final int BUILD_CHUNK_SIZE = 1000;
+
+    private final FieldIndexRepository indexRepository;
+    private final FieldIndexEntryRepository entryRepository;
+    private final EntityManager entityManager;
+
+    /**
+     * Registers an index on the given field. The caller supplies the existing
+     * records so they can be indexed in the same transaction.
+     */
+    public long createIndex(String datasetName, String fieldName, Iterator<ParsedRow> existingRows) {
+        if (indexRepository.existsByDatasetNameAndFieldName(datasetName, fieldName)) {
+            throw new IndexAlreadyExistsException(
+                    String.format("Index on field '%s' already exists for dataset '%s'", fieldName, datasetName));
+        }
+
+        indexRepository.save(FieldIndex.builder()
+                .datasetName(datasetName)
+                .fieldName(fieldName)
+                .build());
+
+        FieldPath path = FieldPath.parse(fieldName);
+        long count = 0;
+        List<FieldIndexEntry> entries = new ArrayList<>(BUILD_CHUNK_SIZE);
+        while (existingRows.hasNext()) {
+            entries.add(toEntry(datasetName, path, existingRows.next()));
+            count++;
+            if (entries.size() == BUILD_CHUNK_SIZE) {
+                entryRepository.saveAll(entries);
+                entries = new ArrayList<>(BUILD_CHUNK_SIZE);
+            }
+        }
+        entryRepository.saveAll(entries);
+
+        log.info("Index on field '{}' created for dataset '{}' with {} entries", fieldName, datasetName, count);
+        return count;
+    }
+
+    /**
+     * Adds entries for newly inserted records to every index of the dataset.
+     */
+    public void onRecordsInserted(String datasetName, List<ParsedRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        List<FieldIndex> indexes = indexRepository.findByDatasetName(datasetName);
+        if (indexes.isEmpty()) {
+            return;
+        }
+
+        List<FieldIndexEntry> entries = new ArrayList<>(rows.size() * indexes.size());
+        for (FieldIndex index : indexes) {
+            FieldPath path = FieldPath.parse(index.getFieldName());
+            for (ParsedRow row : rows) {
+                entries.add(toEntry(datasetName, path, row));
+            }
+        }
+        entryRepository.saveAll(entries);
+    }
+
+    /**
+     * Row ids grouped by field value, groups in first-seen (insertion) order.
+     * Empty when the field is not indexed.
+     */
+    public Optional<Map<String, List<Long>>> groupRowIds(String datasetName, String fieldName) {
+        if (!indexRepository.existsByDatasetNameAndFieldName(datasetName, fieldName)) {
+            return Optional.empty();
+        }
+
+        Map<String, List<Long>> groups = new LinkedHashMap<>();
+        for (IndexKey key : entryRepository.findKeys(datasetName, fieldName, Sort.by("rowId"))) {
+            groups.computeIfAbsent(key.key(), k -> new ArrayList<>()).add(key.rowId());
+        }
+        return Optional.of(groups);
+    }
+
+    /**
+     * Row ids in sort order, with ties kept in insertion order. Empty when the field
+     * is not indexed or holds a mix of value types, whose ordering can only be
+     * decided by comparing the values themselves.
+     */
+    public Optional<List<Long>> sortedRowIds(String datasetName, String fieldName, boolean descending) {
+        if (!indexRepository.existsByDatasetNameAndFieldName(datasetName, fieldName)) {
+            return Optional.empty();
+        }
+
+        Set<Integer> types = new HashSet<>(entryRepository.findValueTypes(datasetName, fieldName));
+        types.remove(FieldIndexEntry.TYPE_NULL);
+        if (types.size() > 1 || types.contains(FieldIndexEntry.TYPE_OTHER)) {
+            return Optional.empty();
+        }
+
+        // Nulls sort first ascending and last descending, matching the in-memory comparator
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        String valueColumn = types.contains(FieldIndexEntry.TYPE_NUMBER) ? "numberValue" : "stringValue";
+        Sort sort = Sort.by(direction, "valueType", valueColumn).and(Sort.by("rowId"));
+
+        List<IndexKey> keys = entryRepository.findKeys(datasetName, fieldName, sort);
+        List<Long> rowIds = new ArrayList<>(keys.size());
+        for (IndexKey key : keys) {
+            rowIds.add(key.rowId());
+        }
+        return Optional.of(rowIds);
+    }
+
+    /**
+     * Ids of the rows that can match the filter, narrowed down with the indexes of
+     * the fields it tests. Every matching row is included, but so may be rows that
+     * do not match, so the filter still has to be applied to the records. Empty when
+     * the indexes cannot narrow the filter down.
+     */
+    public Optional<Set<Long>> candidateRowIds(String datasetName, Filter filter) {
+        return candidateRowIds(datasetName, filter, new HashMap<>());
+    }
+
+    private Optional<Set<Long>> candidateRowIds(String datasetName, Filter filter, Map<String, Boolean> indexed) {
+        if (filter instanceof Filter.And and) {
+            // Any narrowed operand narrows the conjunction
+            Set<Long> candidates = null;
+            for (Filter operand : and.operands()) {
+                Optional<Set<Long>> rowIds = candidateRowIds(datasetName, operand, indexed);
+                if (rowIds.isPresent()) {
+                    if (candidates == null) {
+                        candidates = rowIds.get();
+                    } else {
+                        candidates.retainAll(rowIds.get());
+                    }
+                }
+            }
+            return Optional.ofNullable(candidates);
+        }
+
+        if (filter instanceof Filter.Or or) {
+            // Only a disjunction of narrowed operands is narrowed
+            Set<Long> candidates = new HashSet<>();
+            for (Filter operand : or.operands()) {
+                Optional<Set<Long>> rowIds = candidateRowIds(datasetName, operand, indexed);
+                if (rowIds.isEmpty()) {
+                    return Optional.empty();
+                }
+                candidates.addAll(rowIds.get());
+            }
+            return Optional.of(candidates);
+        }
+
+        String field = filter instanceof Filter.Comparison comparison ? comparison.field()
+                : filter instanceof Filter.In in ? in.field()
+                : ((Filter.Exists) filter).field();
+        if (!indexed.computeIfAbsent(field,
+                f -> indexRepository.existsByDatasetNameAndFieldName(datasetName, f))) {
+            return Optional.empty();
+        }
+
+        if (filter instanceof Filter.Exists) {
+            return Optional.of(findRowIds(datasetName, field,
+                    (cb, entry) -> cb.notEqual(entry.get("valueType"), FieldIndexEntry.TYPE_NULL)));
+        }
+        if (filter instanceof Filter.In in) {
+            Set<Long> candidates = new HashSet<>();
+            for (Object literal : in.literals()) {
+                Optional<Set<Long>> rowIds = findRowIds(datasetName, field, Filter.Operator.EQ, literal);
+                if (rowIds.isEmpty()) {
+                    return Optional.empty();
+                }
+                candidates.addAll(rowIds.get());
+            }
+            return Optional.of(candidates);
+        }
+        Filter.Comparison comparison = (Filter.Comparison) filter;
+        return findRowIds(datasetName, field, comparison.operator(), comparison.literal());
+    }
+
+    // Empty for conditions the entries cannot answer: != and true/false literals
+    private Optional<Set<Long>> findRowIds(String datasetName, String fieldName, Filter.Operator operator,
+            Object literal) {
+        if (operator == Filter.Operator.NE || literal instanceof Boolean) {
+            return Optional.empty();
+        }
+        if (literal == null) {
+            return Optional.of(findRowIds(datasetName, fieldName,
+                    (cb, entry) -> cb.equal(entry.get("valueType"), FieldIndexEntry.TYPE_NULL)));
+        }
+
+        boolean number = literal instanceof Double;
+        int valueType = number ? FieldIndexEntry.TYPE_NUMBER : FieldIndexEntry.TYPE_STRING;
+        String valueColumn = number ? "numberValue" : "stringValue";
+        return Optional.of(findRowIds(datasetName, fieldName, (cb, entry) -> {
+            Path<Comparable<Object>> value = entry.get(valueColumn);
+            @SuppressWarnings("unchecked")
+            Comparable<Object> bound = (Comparable<Object>) literal;
+            Predicate condition = switch (operator) {
+                case LT -> cb.lessThan(value, bound);
+                case LE -> cb.lessThanOrEqualTo(value, bound);
+                case GT -> cb.greaterThan(value, bound);
+                case GE -> cb.greaterThanOrEqualTo(value, bound);
+                default -> cb.equal(value, bound);
+            };
+            return cb.and(cb.equal(entry.get("valueType"), valueType), condition);
+        }));
+    }
+
+    private Set<Long> findRowIds(String datasetName, String fieldName, EntryCondition condition) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<FieldIndexEntry> entry = query.from(FieldIndexEntry.class);
+        query.select(entry.get("rowId")).where(
+                cb.equal(entry.get("datasetName"), datasetName),
+                cb.equal(entry.get("fieldName"), fieldName),
+                condition.toPredicate(cb, entry));
+        return new HashSet<>(entityManager.createQuery(query).getResultList());
+    }
+
+    @FunctionalInterface
+    private interface EntryCondition {
+        Predicate toPredicate(CriteriaBuilder cb, Root<FieldIndexEntry> entry);
+    }
+
+    private FieldIndexEntry toEntry(String datasetName, FieldPath path, ParsedRow row) {
+        Object value = path.get(row.record());
+
+        FieldIndexEntry.FieldIndexEntryBuilder entry = FieldIndexEntry.builder()
+                .datasetName(datasetName)
+                .fieldName(path.toString())
+                .rowId(row.rowId())
+                .stringValue(String.valueOf(value));
+
+        if (value == null) {
+            entry.valueType(FieldIndexEntry.TYPE_NULL);
+        } else if (value instanceof Number number) {
+            entry.valueType(FieldIndexEntry.TYPE_NUMBER).numberValue(number.doubleValue());
+        } else if (value instanceof String) {
+            entry.valueType(FieldIndexEntry.TYPE_STRING);
+        } else {
+            entry.valueType(FieldIndexEntry.TYPE_OTHER);
+        }
+        return entry.build();
+    }
+}
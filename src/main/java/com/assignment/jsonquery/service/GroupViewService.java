@@ -0,0 +1,230 @@
+package com.assignment.jsonquery.service;
+
+import com.assignment.jsonquery.entity.GroupView;
+import com.assignment.jsonquery.entity.GroupViewBucket;
+import com.assignment.jsonquery.exception.ViewAlreadyExistsException;
+import com.assignment.jsonquery.query.Aggregate;
+import com.assignment.jsonquery.query.FieldPath;
+import com.assignment.jsonquery.query.GroupAccumulator;
+import com.assignment.jsonquery.query.GroupOrder;
+import com.assignment.jsonquery.query.ParsedRow;
+import com.assignment.jsonquery.query.QueryEngine;
+import com.assignment.jsonquery.repository.GroupViewBucketRepository;
+import com.assignment.jsonquery.repository.GroupViewRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.assignment.jsonquery.query.QueryEngine.groupKey;
+
+/**
+ * Maintains opt-in materialized group-by views: the aggregates of a dataset
+ * grouped by one field, stored per group. Inserts fold their records into the
+ * groups they fall in, so an aggregate query the view covers is answered by
+ * reading one row per group instead of every record of the dataset.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GroupViewService {
+
+    // Buckets are looked up this many group keys at a time when records are inserted
+    private static final int LOOKUP_CHUNK_SIZE = 500;
+
+    private final GroupViewRepository viewRepository;
+    private final GroupViewBucketRepository bucketRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Registers a view of the given aggregates grouped by the field. The caller
+     * supplies the existing records so that the view is filled in the same
+     * transaction. Returns the number of groups.
+     */
+    public long createView(String datasetName, String fieldName, List<Aggregate> aggregates,
+            Iterator<ParsedRow> existingRows) {
+        if (viewRepository.existsByDatasetNameAndFieldName(datasetName, fieldName)) {
+            throw new ViewAlreadyExistsException(
+                    String.format("View on field '%s' already exists for dataset '%s'", fieldName, datasetName));
+        }
+
+        GroupView view = viewRepository.save(GroupView.builder()
+                .datasetName(datasetName)
+                .fieldName(fieldName)
+                .aggregates(aggregates.stream().map(Aggregate::label).collect(Collectors.joining(",")))
+                .build());
+
+        Paths paths = Paths.of(fieldName, aggregates);
+        Map<String, Bucket> buckets = new LinkedHashMap<>();
+        while (existingRows.hasNext()) {
+            accumulate(buckets, paths, aggregates, existingRows.next());
+        }
+        List<GroupViewBucket> entities = new ArrayList<>(buckets.size());
+        buckets.forEach((key, bucket) -> entities.add(bucket.toEntity(view.getId(), key)));
+        bucketRepository.saveAll(entities);
+
+        log.info("View on field '{}' created for dataset '{}' with {} groups", fieldName, datasetName, buckets.size());
+        return buckets.size();
+    }
+
+    /**
+     * Folds newly inserted records into the views of the dataset, touching only the
+     * groups they fall in. The views are locked until the transaction ends.
+     */
+    public void onRecordsInserted(String datasetName, List<ParsedRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        for (GroupView view : viewRepository.lockByDatasetName(datasetName)) {
+            List<Aggregate> aggregates = aggregates(view);
+            Paths paths = Paths.of(view.getFieldName(), aggregates);
+            Map<String, Bucket> added = new LinkedHashMap<>();
+            for (ParsedRow row : rows) {
+                accumulate(added, paths, aggregates, row);
+            }
+
+            List<String> keys = new ArrayList<>(added.keySet());
+            List<GroupViewBucket> changed = new ArrayList<>(keys.size());
+            for (int from = 0; from < keys.size(); from += LOOKUP_CHUNK_SIZE) {
+                List<String> chunk = keys.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, keys.size()));
+                for (GroupViewBucket existing : bucketRepository.findByViewIdAndGroupKeyIn(view.getId(), chunk)) {
+                    GroupAccumulator merged = GroupAccumulator.fromBytes(aggregates, existing.getState());
+                    merged.merge(added.remove(existing.getGroupKey()).accumulator);
+                    existing.setState(merged.toBytes());
+                    changed.add(existing);
+                }
+            }
+            added.forEach((key, bucket) -> changed.add(bucket.toEntity(view.getId(), key)));
+            bucketRepository.saveAll(changed);
+        }
+    }
+
+    /**
+     * The aggregates of every group, groups in first-seen order unless a group order
+     * is given. Empty when the field has no view or its view lacks one of the
+     * aggregates, including the one the groups are ordered by.
+     */
+    public Optional<Map<String, Map<String, Object>>> aggregate(String datasetName, String fieldName,
+            List<Aggregate> requested, GroupOrder groupOrder) {
+        Optional<GroupView> found = viewRepository.findByDatasetNameAndFieldName(datasetName, fieldName);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+
+        GroupView view = found.get();
+        List<Aggregate> aggregates = aggregates(view);
+        List<Aggregate> needed = new ArrayList<>(requested);
+        if (groupOrder != null && groupOrder.aggregate() != null) {
+            needed.add(groupOrder.aggregate());
+        }
+        if (!covers(aggregates, needed)) {
+            return Optional.empty();
+        }
+
+        List<GroupViewBucket> buckets = bucketRepository.findByViewIdOrderByFirstRowId(view.getId());
+        Map<String, Map<String, Object>> values = new LinkedHashMap<>();
+        Map<String, Object> orderValues = new HashMap<>();
+        for (GroupViewBucket bucket : buckets) {
+            GroupAccumulator accumulator = GroupAccumulator.fromBytes(aggregates, bucket.getState());
+            Map<String, Object> all = accumulator.result();
+            all.put("count", accumulator.count());
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            for (Aggregate aggregate : requested) {
+                result.put(aggregate.label(), all.get(aggregate.label()));
+            }
+            values.put(bucket.getGroupKey(), result);
+
+            if (groupOrder != null) {
+                orderValues.put(bucket.getGroupKey(), groupOrder.aggregate() == null
+                        ? fromJson(bucket.getKeyJson())
+                        : all.get(groupOrder.aggregate().label()));
+            }
+        }
+        if (groupOrder == null) {
+            return Optional.of(values);
+        }
+
+        // Stable, so groups with equal order values keep their first-seen order
+        List<String> keys = new ArrayList<>(values.keySet());
+        Comparator<String> order = (k1, k2) -> QueryEngine.compareValues(orderValues.get(k1), orderValues.get(k2));
+        keys.sort(groupOrder.descending() ? order.reversed() : order);
+        Map<String, Map<String, Object>> ordered = new LinkedHashMap<>();
+        for (String key : keys) {
+            ordered.put(key, values.get(key));
+        }
+        return Optional.of(ordered);
+    }
+
+    // The plain count is kept for every group, whatever the view's aggregates
+    private static boolean covers(List<Aggregate> aggregates, List<Aggregate> needed) {
+        for (Aggregate aggregate : needed) {
+            boolean plainCount = aggregate.function() == Aggregate.Function.COUNT && aggregate.field() == null;
+            if (!plainCount && !aggregates.contains(aggregate)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void accumulate(Map<String, Bucket> buckets, Paths paths, List<Aggregate> aggregates, ParsedRow row) {
+        Object value = paths.key().get(row.record());
+        Bucket bucket = buckets.computeIfAbsent(groupKey(value),
+                key -> new Bucket(new GroupAccumulator(aggregates), toJson(value), row.rowId()));
+        bucket.accumulator.addRecord();
+        for (int slot = 0; slot < paths.aggregated().length; slot++) {
+            if (paths.aggregated()[slot] != null) {
+                bucket.accumulator.add(slot, paths.aggregated()[slot].get(row.record()));
+            }
+        }
+    }
+
+    private static List<Aggregate> aggregates(GroupView view) {
+        return Aggregate.parseList(view.getAggregates());
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize group key: " + e.getMessage(), e);
+        }
+    }
+
+    private Object fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, Object.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to parse group key: " + e.getMessage(), e);
+        }
+    }
+
+    // The grouped path and the path each aggregate reads (null for the plain count), parsed once per view
+    private record Paths(FieldPath key, FieldPath[] aggregated) {
+
+        static Paths of(String fieldName, List<Aggregate> aggregates) {
+            return new Paths(FieldPath.parse(fieldName), aggregates.stream()
+                    .map(aggregate -> aggregate.field() == null ? null : FieldPath.parse(aggregate.field()))
+                    .toArray(FieldPath[]::new));
+        }
+    }
+
+    // A group accumulated in memory, before it is merged into or stored as a bucket
+    private record Bucket(GroupAccumulator accumulator, String keyJson, long firstRowId) {
+
+        GroupViewBucket toEntity(Long viewId, String groupKey) {
+            return GroupViewBucket.builder()
+                    .viewId(viewId)
+                    .groupKey(groupKey)
+                    .keyJson(keyJson)
+                    .firstRowId(firstRowId)
+                    .state(accumulator.toBytes())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.assignment.jsonquery.service;
+
+import com.assignment.jsonquery.config.DatasetProperties;
+import com.assignment.jsonquery.dto.IngestJobResponse;
+import com.assignment.jsonquery.dto.InsertRecordResponse;
+import com.assignment.jsonquery.exception.IngestJobNotFoundException;
+import com.assignment.jsonquery.exception.ServerBusyException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Background ingestion of NDJSON uploads, one JSON record per line.
+ * <p>
+ * The upload is copied to a spool file as it arrives and the job id returned
+ * right away; a worker then parses the file line by line and commits every
+ * {@code dataset.ingest.chunk-size} records through
+ * {@link DatasetService#batchInsert} in their own transaction. Memory use
+ * therefore depends on the chunk size, not on the size of the upload, and
+ * committed chunks stay committed if a later one fails. Records that cannot be
+ * inserted are reported with their line number instead of failing the job.
+ */
+@Service
+@Slf4j
+public class IngestJobService {
+
+    private static final TypeReference<Map<String, Object>> RECORD_TYPE = new TypeReference<>() {
+    };
+
+    private final DatasetService datasetService;
+    private final WorkLimiter workLimiter;
+    private final ObjectMapper objectMapper;
+    private final DatasetProperties properties;
+    private final ExecutorService workers;
+
+    // Insertion ordered, so that the oldest finished jobs are forgotten first
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+
+    public IngestJobService(DatasetService datasetService, WorkLimiter workLimiter, ObjectMapper objectMapper,
+            DatasetProperties properties) {
+        this.datasetService = datasetService;
+        this.workLimiter = workLimiter;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.workers = Executors.newFixedThreadPool(properties.getIngest().getWorkers(),
+                new CustomizableThreadFactory("ingest-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Spools the upload and queues a job that inserts its records into the dataset.
+     */
+    public IngestJobResponse submit(String datasetName, InputStream upload) throws IOException {
+        if (datasetName == null || datasetName.isBlank()) {
+            throw new IllegalArgumentException("Dataset name cannot be null or blank");
+        }
+
+        Path spool = createSpoolFile();
+        try {
+            Files.copy(upload, spool, StandardCopyOption.REPLACE_EXISTING);
+            if (Files.size(spool) == 0) {
+                throw new IllegalArgumentException("Upload cannot be empty");
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+
+        Job job = new Job(UUID.randomUUID().toString(), datasetName);
+        synchronized (jobs) {
+            forgetFinishedJobs();
+            jobs.put(job.id, job);
+        }
+        workers.execute(() -> run(job, spool));
+
+        log.info("Queued ingest job {} for dataset '{}' ({} bytes)", job.id, datasetName, Files.size(spool));
+        return job.toResponse();
+    }
+
+    public IngestJobResponse status(String datasetName, String jobId) {
+        Job job;
+        synchronized (jobs) {
+            job = jobs.get(jobId);
+        }
+        if (job == null || !job.datasetName.equals(datasetName)) {
+            throw new IngestJobNotFoundException(
+                    String.format("Ingest job '%s' not found for dataset '%s'", jobId, datasetName));
+        }
+        return job.toResponse();
+    }
+
+    private void run(Job job, Path spool) {
+        job.start();
+        try (BufferedReader reader = Files.newBufferedReader(spool, StandardCharsets.UTF_8)) {
+            int chunkSize = properties.getIngest().getChunkSize();
+            Map<Long, Map<String, Object>> chunk = new LinkedHashMap<>();
+            Map<Long, Long> lineOfId = new HashMap<>();
+
+            String text;
+            long line = 0;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                job.recordRead();
+
+                Map<String, Object> record;
+                try {
+                    record = objectMapper.readValue(text, RECORD_TYPE);
+                } catch (JsonProcessingException e) {
+                    job.reject(line, null, "Invalid JSON: " + e.getOriginalMessage());
+                    continue;
+                }
+                if (record == null || record.isEmpty()) {
+                    job.reject(line, null, "Record cannot be null or empty");
+                    continue;
+                }
+                if (!record.containsKey("id")) {
+                    job.reject(line, null, "Record must contain an 'id' field");
+                    continue;
+                }
+                Long recordId = extractRecordId(record);
+                if (recordId == null) {
+                    job.reject(line, null, "'id' field must be a valid number, got: " + record.get("id"));
+                    continue;
+                }
+                if (chunk.putIfAbsent(recordId, record) != null) {
+                    job.reject(line, recordId, "Record appears more than once in the upload");
+                    continue;
+                }
+                lineOfId.put(recordId, line);
+
+                if (chunk.size() >= chunkSize) {
+                    commit(job, chunk, lineOfId);
+                }
+            }
+            commit(job, chunk, lineOfId);
+
+            job.finish(null);
+            log.info("Ingest job {} finished: {} records inserted into dataset '{}', {} rejected",
+                    job.id, job.inserted, job.datasetName, job.rejected);
+        } catch (Exception e) {
+            log.error("Ingest job {} for dataset '{}' failed", job.id, job.datasetName, e);
+            job.finish(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        } finally {
+            try {
+                Files.deleteIfExists(spool);
+            } catch (IOException e) {
+                log.warn("Could not delete spool file {}", spool, e);
+            }
+        }
+    }
+
+    // Inserts the chunk in one transaction and reports records that already existed
+    @SuppressWarnings("try")
+    private void commit(Job job, Map<Long, Map<String, Object>> chunk, Map<Long, Long> lineOfId) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        InsertRecordResponse response;
+        try (WorkLimiter.Permit permit = awaitIngestSlot()) {
+            response = datasetService.batchInsert(job.datasetName, new ArrayList<>(chunk.values()));
+        }
+
+        for (Long recordId : response.getSkippedIds()) {
+            job.reject(lineOfId.get(recordId), recordId,
+                    String.format("Record with id %d already exists in dataset '%s'", recordId, job.datasetName));
+        }
+        job.inserted(response.getInsertedCount());
+
+        chunk.clear();
+        lineOfId.clear();
+    }
+
+    // Unlike a request, a job has nobody to retry it, so it waits for as long as it takes
+    private WorkLimiter.Permit awaitIngestSlot() {
+        while (true) {
+            try {
+                return workLimiter.ingest();
+            } catch (ServerBusyException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private Path createSpoolFile() throws IOException {
+        String spoolDir = properties.getIngest().getSpoolDir();
+        if (spoolDir == null || spoolDir.isBlank()) {
+            return Files.createTempFile("ingest-", ".ndjson");
+        }
+        return Files.createTempFile(Files.createDirectories(Path.of(spoolDir)), "ingest-", ".ndjson");
+    }
+
+    private void forgetFinishedJobs() {
+        long finished = jobs.values().stream().filter(Job::isFinished).count();
+        Iterator<Job> oldest = jobs.values().iterator();
+        while (finished >= properties.getIngest().getRetainedJobs() && oldest.hasNext()) {
+            if (oldest.next().isFinished()) {
+                oldest.remove();
+                finished--;
+            }
+        }
+    }
+
+    private static Long extractRecordId(Map<String, Object> record) {
+        Object idObj = record.get("id");
+        if (idObj instanceof Number) {
+            return ((Number) idObj).longValue();
+        }
+        try {
+            return Long.parseLong(String.valueOf(idObj));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private class Job {
+
+        private final String id;
+        private final String datasetName;
+        private final List<IngestJobResponse.Rejection> rejections = new ArrayList<>();
+
+        private Status status = Status.QUEUED;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+        private long startNanos;
+        private long finishNanos;
+        private String error;
+        private long read;
+        private long inserted;
+        private long rejected;
+
+        private Job(String id, String datasetName) {
+            this.id = id;
+            this.datasetName = datasetName;
+        }
+
+        synchronized void start() {
+            status = Status.RUNNING;
+            startedAt = LocalDateTime.now();
+            startNanos = System.nanoTime();
+        }
+
+        synchronized void recordRead() {
+            read++;
+        }
+
+        synchronized void inserted(long count) {
+            inserted += count;
+        }
+
+        synchronized void reject(Long line, Long recordId, String reason) {
+            rejected++;
+            if (rejections.size() < properties.getIngest().getMaxReportedRejections()) {
+                rejections.add(new IngestJobResponse.Rejection(line, recordId, reason));
+            }
+        }
+
+        synchronized void finish(String error) {
+            this.status = error == null ? Status.COMPLETED : Status.FAILED;
+            this.error = error;
+            finishedAt = LocalDateTime.now();
+            finishNanos = System.nanoTime();
+        }
+
+        synchronized boolean isFinished() {
+            return finishedAt != null;
+        }
+
+        synchronized IngestJobResponse toResponse() {
+            Double recordsPerSecond = null;
+            if (startedAt != null) {
+                long elapsed = (finishedAt != null ? finishNanos : System.nanoTime()) - startNanos;
+                double seconds = Math.max(elapsed, 1) / (double) Duration.ofSeconds(1).toNanos();
+                recordsPerSecond = Math.round(read / seconds * 10) / 10.0;
+            }
+            return IngestJobResponse.builder()
+                    .jobId(id)
+                    .dataset(datasetName)
+                    .status(status.name())
+                    .recordsRead(read)
+                    .insertedCount(inserted)
+                    .rejectedCount(rejected)
+                    .recordsPerSecond(recordsPerSecond)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .error(error)
+                    .rejections(List.copyOf(rejections))
+                    .build();
+        }
+    }
+}
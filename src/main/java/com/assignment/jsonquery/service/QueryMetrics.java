@@ -0,0 +1,231 @@
+package com.assignment.jsonquery.service;
+
+import com.assignment.jsonquery.query.RecordTable;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer instrumentation of the query and ingest paths.
+ * <p>
+ * Each query stage is timed under {@code dataset.query.stage}, tagged with the
+ * stage. While a {@link Breakdown} is open on the current thread, the stage
+ * times are also added up there, so that a single request can report where its
+ * time went.
+ */
+@Component
+public class QueryMetrics {
+
+    private static final ThreadLocal<Breakdown> CURRENT = new ThreadLocal<>();
+
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+    private final DistributionSummary queryRecords;
+    private final Counter insertedRecords;
+    private final Counter skippedRecords;
+    private final Counter datasetCacheHits;
+    private final Counter datasetCacheMisses;
+    private final Counter indexHits;
+    private final Counter indexMisses;
+    private final Counter viewHits;
+    private final Counter viewMisses;
+    private final Counter spilledSortRuns;
+    private final Counter spilledGroupBys;
+
+    public QueryMetrics(MeterRegistry registry) {
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("dataset.query.stage")
+                    .description("Time spent in one stage of a query")
+                    .tag("stage", stage.tag())
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        queryRecords = DistributionSummary.builder("dataset.query.records")
+                .description("Records a query ran over, after filtering")
+                .baseUnit("records")
+                .publishPercentileHistogram()
+                .register(registry);
+        insertedRecords = Counter.builder("dataset.ingest.records")
+                .description("Records inserted or skipped as duplicates")
+                .baseUnit("records")
+                .tag("outcome", "inserted")
+                .register(registry);
+        skippedRecords = Counter.builder("dataset.ingest.records")
+                .description("Records inserted or skipped as duplicates")
+                .baseUnit("records")
+                .tag("outcome", "skipped")
+                .register(registry);
+        datasetCacheHits = lookupCounter(registry, "dataset.cache.lookups", "hit");
+        datasetCacheMisses = lookupCounter(registry, "dataset.cache.lookups", "miss");
+        indexHits = lookupCounter(registry, "dataset.index.lookups", "hit");
+        indexMisses = lookupCounter(registry, "dataset.index.lookups", "miss");
+        viewHits = lookupCounter(registry, "dataset.view.lookups", "hit");
+        viewMisses = lookupCounter(registry, "dataset.view.lookups", "miss");
+        spilledSortRuns = Counter.builder("dataset.sort.spilled.runs")
+                .description("Sorted runs written to disk by sorts that outgrew their memory budget")
+                .baseUnit("runs")
+                .register(registry);
+        spilledGroupBys = Counter.builder("dataset.group.spilled")
+                .description("Group-bys that outgrew their memory budget and were partitioned on disk")
+                .register(registry);
+    }
+
+    /**
+     * Starts adding up stage times on the current thread. Close the breakdown on the
+     * same thread when the request is done.
+     */
+    public Breakdown startBreakdown() {
+        Breakdown breakdown = new Breakdown(CURRENT.get());
+        CURRENT.set(breakdown);
+        return breakdown;
+    }
+
+    public <T> T time(Stage stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            record(stage, System.nanoTime() - start);
+        }
+    }
+
+    // The query timed as the execute stage, counting the records it runs over
+    public <T> Function<RecordTable, T> timedQuery(Function<RecordTable, T> query) {
+        return table -> {
+            queryRecords.record(table.size());
+            return time(Stage.EXECUTE, () -> query.apply(table));
+        };
+    }
+
+    // Counted once the surrounding transaction commits, so rolled back inserts are left out
+    public void recordsInserted(long inserted, long skipped) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            insertedRecords.increment(inserted);
+            skippedRecords.increment(skipped);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                insertedRecords.increment(inserted);
+                skippedRecords.increment(skipped);
+            }
+        });
+    }
+
+    // Passes a dataset cache lookup through, counting it as a hit or a miss
+    public <T> Optional<T> datasetCacheLookup(Optional<T> cached) {
+        (cached.isPresent() ? datasetCacheHits : datasetCacheMisses).increment();
+        return cached;
+    }
+
+    // Passes a field index lookup through, counting it as a hit or a miss
+    public <T> Optional<T> indexLookup(Optional<T> indexed) {
+        (indexed.isPresent() ? indexHits : indexMisses).increment();
+        return indexed;
+    }
+
+    // Passes a group-by view lookup through, counting it as a hit or a miss
+    public <T> Optional<T> viewLookup(Optional<T> viewed) {
+        (viewed.isPresent() ? viewHits : viewMisses).increment();
+        return viewed;
+    }
+
+    public void sortRunsSpilled(int runs) {
+        spilledSortRuns.increment(runs);
+    }
+
+    public void groupBySpilled() {
+        spilledGroupBys.increment();
+    }
+
+    private void record(Stage stage, long nanos) {
+        stageTimers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+        Breakdown breakdown = CURRENT.get();
+        if (breakdown != null) {
+            breakdown.add(stage, nanos);
+        }
+    }
+
+    private static Counter lookupCounter(MeterRegistry registry, String name, String result) {
+        return Counter.builder(name)
+                .description("Lookups answered (hit) or not (miss)")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    public enum Stage {
+        // Reading stored records
+        READ,
+        // Parsing stored records
+        DECODE,
+        // Reading and parsing in one pass, for scans that keep only what they need
+        SCAN,
+        // Filtering, grouping, sorting and aggregating
+        EXECUTE,
+        // Writing the response
+        SERIALIZE;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Stage times of one request, in nanoseconds.
+     */
+    public static final class Breakdown implements AutoCloseable {
+
+        private final Breakdown previous;
+        private final long start = System.nanoTime();
+        private final long[] nanos = new long[Stage.values().length];
+
+        private Breakdown(Breakdown previous) {
+            this.previous = previous;
+        }
+
+        private void add(Stage stage, long elapsed) {
+            nanos[stage.ordinal()] += elapsed;
+        }
+
+        /**
+         * The stages that took any time and the total so far, as a
+         * {@code Server-Timing} header value.
+         */
+        public String toServerTiming() {
+            StringJoiner header = new StringJoiner(", ");
+            for (Stage stage : Stage.values()) {
+                if (nanos[stage.ordinal()] > 0) {
+                    header.add(entry(stage.tag(), nanos[stage.ordinal()]));
+                }
+            }
+            header.add(entry("total", System.nanoTime() - start));
+            return header.toString();
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+
+        private static String entry(String name, long elapsed) {
+            return String.format(Locale.ROOT, "%s;dur=%.3f", name, elapsed / 1_000_000.0);
+        }
+    }
+}
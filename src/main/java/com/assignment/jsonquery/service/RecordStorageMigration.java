@@ -0,0 +1,75 @@
+package com.assignment.jsonquery.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts records stored as JSON text to the binary format at startup, before
+ * the application accepts requests. Reads handle both formats, so a migration
+ * that is interrupted simply continues on the next start.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RecordStorageMigration implements SmartInitializingSingleton {
+
+    // Rows converted per transaction
+    private static final int MIGRATION_CHUNK_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RecordCodec recordCodec;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        allowNullJsonData();
+        long migrated = migrate();
+        if (migrated > 0) {
+            log.info("Migrated {} records from JSON text to binary storage", migrated);
+        }
+    }
+
+    public long migrate() {
+        long migrated = 0;
+        int converted;
+        do {
+            converted = transactionTemplate.execute(status -> migrateChunk());
+            migrated += converted;
+        } while (converted == MIGRATION_CHUNK_SIZE);
+        return migrated;
+    }
+
+    private int migrateChunk() {
+        List<Object[]> updates = new ArrayList<>();
+        jdbcTemplate.query(
+                "select id, json_data from dataset_records where record_data is null order by id limit ?",
+                rs -> {
+                    byte[] recordData = recordCodec.encode(recordCodec.decode(null, rs.getString("json_data")));
+                    updates.add(new Object[] { recordData, rs.getLong("id") });
+                },
+                MIGRATION_CHUNK_SIZE);
+
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "update dataset_records set record_data = ?, json_data = null where id = ?", updates);
+        }
+        return updates.size();
+    }
+
+    // Schema updates add the new column but keep the NOT NULL constraint the JSON column had before
+    private void allowNullJsonData() {
+        try {
+            jdbcTemplate.execute("alter table dataset_records alter column json_data set null");
+        } catch (DataAccessException e) {
+            log.warn("Could not make dataset_records.json_data nullable: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.assignment.jsonquery.service;
+
+import com.assignment.jsonquery.config.DatasetProperties;
+import com.assignment.jsonquery.exception.ServerBusyException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Separate concurrency limits for ingest and query work.
+ * <p>
+ * Request threads are not the scarce resource once they are virtual, so without
+ * a limit a burst of large batch inserts would all run at once and hold every
+ * database connection. Queries get their own slots, so they keep running while
+ * the ingest slots are taken. A request that cannot get a slot within
+ * {@code dataset.concurrency.acquire-timeout} is rejected with a
+ * {@link ServerBusyException}.
+ */
+@Component
+@Slf4j
+public class WorkLimiter {
+
+    private static final Permit NO_LIMIT = () -> {
+    };
+
+    private final DatasetProperties properties;
+    private final Semaphore ingestSlots;
+    private final Semaphore querySlots;
+
+    public WorkLimiter(DatasetProperties properties) {
+        this.properties = properties;
+        this.ingestSlots = new Semaphore(properties.getConcurrency().getMaxIngest(), true);
+        this.querySlots = new Semaphore(properties.getConcurrency().getMaxQuery(), true);
+    }
+
+    /**
+     * Waits for an ingest slot. Close the returned permit when the work is done.
+     */
+    public Permit ingest() {
+        return acquire(ingestSlots, "ingest");
+    }
+
+    /**
+     * Waits for a query slot. Close the returned permit when the work is done.
+     */
+    public Permit query() {
+        return acquire(querySlots, "query");
+    }
+
+    private Permit acquire(Semaphore slots, String kind) {
+        if (!properties.getConcurrency().isEnabled()) {
+            return NO_LIMIT;
+        }
+
+        boolean acquired;
+        try {
+            acquired = slots.tryAcquire(properties.getConcurrency().getAcquireTimeout().toMillis(),
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            log.warn("No {} slot became free in time, rejecting request", kind);
+            throw new ServerBusyException("Too many " + kind + " requests in progress. Please retry later.");
+        }
+        return slots::release;
+    }
+
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,214 @@
+package com.assignment.jsonquery.storage;
+
+import com.assignment.jsonquery.exception.DuplicateRecordException;
+import com.assignment.jsonquery.repository.RecordRow;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The segments of one dataset, oldest first, and an index from record id to row
+ * id. A row id is the segment number in the upper 32 bits and the record's offset
+ * within the segment in the lower 32, so row ids increase in insertion order. New
+ * records go to the last segment until it would outgrow the segment size.
+ */
+class DatasetSegments implements AutoCloseable {
+
+    private static final String SUFFIX = ".seg";
+
+    private final String datasetName;
+    private final Path directory;
+    private final long maxSegmentBytes;
+
+    // Replaced, never modified, so that scans can iterate without locking
+    private volatile List<Segment> segments;
+    private final Map<Long, Long> rowIdsByRecordId = new HashMap<>();
+
+    private DatasetSegments(String datasetName, Path directory, long maxSegmentBytes, List<Segment> segments) {
+        this.datasetName = datasetName;
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.segments = segments;
+    }
+
+    /**
+     * Opens the segments in the directory, rebuilding the record id index from the
+     * record headers. A missing directory is an empty dataset.
+     */
+    static DatasetSegments open(String datasetName, Path directory, long maxSegmentBytes) throws IOException {
+        DatasetSegments dataset = new DatasetSegments(datasetName, directory, maxSegmentBytes, List.of());
+        if (!Files.isDirectory(directory)) {
+            return dataset;
+        }
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+
+        List<Segment> segments = new ArrayList<>(files.size());
+        for (Path file : files) {
+            long segmentNumber = segments.size();
+            segments.add(Segment.open(file, (recordId, offset) ->
+                    dataset.rowIdsByRecordId.put(recordId, rowId(segmentNumber, offset))));
+        }
+        dataset.segments = List.copyOf(segments);
+        return dataset;
+    }
+
+    // Number of records in all segments and bytes of their data, without the record headers
+    synchronized RecordStore.StoredSize storedSize() {
+        long records = rowIdsByRecordId.size();
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.size() - Segment.FIRST_RECORD;
+        }
+        return new RecordStore.StoredSize(records, bytes - records * Segment.HEADER_BYTES);
+    }
+
+    synchronized boolean contains(long recordId) {
+        return rowIdsByRecordId.containsKey(recordId);
+    }
+
+    /**
+     * Appends the records, all or none: ids already stored or repeated within the
+     * records are rejected before anything is written.
+     */
+    synchronized List<Long> append(List<RecordStore.NewRecord> records) {
+        Set<Long> seen = new HashSet<>();
+        for (RecordStore.NewRecord record : records) {
+            if (rowIdsByRecordId.containsKey(record.recordId()) || !seen.add(record.recordId())) {
+                throw new DuplicateRecordException(String.format("Record with id %d already exists in dataset '%s'",
+                        record.recordId(), datasetName));
+            }
+        }
+
+        try {
+            List<Long> rowIds = new ArrayList<>(records.size());
+            int from = 0;
+            while (from < records.size()) {
+                Segment segment = segmentWithRoomFor(recordBytes(records.get(from)));
+                long segmentNumber = segments.size() - 1;
+
+                // Fill the segment with as many of the records as fit, written in one go
+                long offset = segment.size();
+                int to = from;
+                long bytes = 0;
+                while (to < records.size()
+                        && (to == from || offset + bytes + recordBytes(records.get(to)) <= maxSegmentBytes)) {
+                    bytes += recordBytes(records.get(to));
+                    to++;
+                }
+
+                ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(bytes));
+                for (int i = from; i < to; i++) {
+                    RecordStore.NewRecord record = records.get(i);
+                    long rowId = rowId(segmentNumber, offset + buffer.position());
+                    buffer.putInt(record.recordData().length)
+                            .putLong(record.recordId())
+                            .put(record.recordData());
+                    rowIds.add(rowId);
+                }
+                buffer.flip();
+                segment.append(buffer);
+
+                for (int i = from; i < to; i++) {
+                    rowIdsByRecordId.put(records.get(i).recordId(), rowIds.get(i));
+                }
+                from = to;
+            }
+            return rowIds;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to dataset '" + datasetName + "'", e);
+        }
+    }
+
+    /**
+     * All records in insertion order, up to the size the segments had when the scan
+     * started.
+     */
+    Stream<RecordRow> scan() {
+        List<Segment> snapshot = segments;
+        long[] sizes = new long[snapshot.size()];
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = snapshot.get(i).size();
+        }
+
+        Iterator<RecordRow> rows = new Iterator<>() {
+            private int segmentNumber;
+            private long offset = Segment.FIRST_RECORD;
+
+            @Override
+            public boolean hasNext() {
+                while (segmentNumber < sizes.length && offset >= sizes[segmentNumber]) {
+                    segmentNumber++;
+                    offset = Segment.FIRST_RECORD;
+                }
+                return segmentNumber < sizes.length;
+            }
+
+            @Override
+            public RecordRow next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Segment segment = snapshot.get(segmentNumber);
+                RecordRow row = new RecordRow(rowId(segmentNumber, offset), segment.recordData(offset), null);
+                offset += Segment.HEADER_BYTES + segment.length(offset);
+                return row;
+            }
+        };
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    // Unknown row ids are left out
+    RecordRow find(long rowId) {
+        List<Segment> snapshot = segments;
+        int segmentNumber = (int) (rowId >>> 32);
+        long offset = rowId & 0xFFFFFFFFL;
+        if (segmentNumber >= snapshot.size() || offset < Segment.FIRST_RECORD
+                || offset + Segment.HEADER_BYTES > snapshot.get(segmentNumber).size()) {
+            return null;
+        }
+        return new RecordRow(rowId, snapshot.get(segmentNumber).recordData(offset), null);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.close();
+        }
+    }
+
+    private Segment segmentWithRoomFor(long recordBytes) throws IOException {
+        List<Segment> current = segments;
+        if (!current.isEmpty()) {
+            Segment last = current.get(current.size() - 1);
+            if (last.isEmpty() || last.size() + recordBytes <= maxSegmentBytes) {
+                return last;
+            }
+        }
+
+        Files.createDirectories(directory);
+        Segment segment = Segment.create(directory.resolve(String.format("%08d%s", current.size(), SUFFIX)));
+        List<Segment> extended = new ArrayList<>(current);
+        extended.add(segment);
+        segments = List.copyOf(extended);
+        return segment;
+    }
+
+    private static long recordBytes(RecordStore.NewRecord record) {
+        return Segment.HEADER_BYTES + (long) record.recordData().length;
+    }
+
+    private static long rowId(long segmentNumber, long offset) {
+        return (segmentNumber << 32) | offset;
+    }
+}
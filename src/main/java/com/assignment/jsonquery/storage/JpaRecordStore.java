@@ -0,0 +1,98 @@
+package com.assignment.jsonquery.storage;
+
+import com.assignment.jsonquery.entity.DatasetRecord;
+import com.assignment.jsonquery.repository.DatasetRecordRepository;
+import com.assignment.jsonquery.repository.RecordRow;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Stores records as rows of {@code dataset_records}; the row id is the primary
+ * key. Writes take part in the caller's transaction. Must be called within a
+ * transaction, since scans are database cursors.
+ * <p>
+ * The stored size of a dataset is counted by the database once, on first use,
+ * and then kept up to date by appends. Rolled back appends are still counted,
+ * which is fine for the estimate it is.
+ */
+@Component
+@ConditionalOnProperty(name = "dataset.storage.type", havingValue = "jpa", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JpaRecordStore implements RecordStore {
+
+    // Number of record ids checked for duplicates per query
+    private static final int DUPLICATE_CHECK_CHUNK_SIZE = 1000;
+
+    private final DatasetRecordRepository repository;
+    private final EntityManager entityManager;
+    private final Map<String, StoredSize> storedSizes = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean exists(String datasetName, long recordId) {
+        return repository.existsByDatasetNameAndRecordId(datasetName, recordId);
+    }
+
+    @Override
+    public Set<Long> findExistingRecordIds(String datasetName, Collection<Long> recordIds) {
+        Set<Long> existing = new HashSet<>();
+        List<Long> ids = new ArrayList<>(recordIds);
+        for (int from = 0; from < ids.size(); from += DUPLICATE_CHECK_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + DUPLICATE_CHECK_CHUNK_SIZE, ids.size()));
+            existing.addAll(repository.findRecordIdsByDatasetNameAndRecordIdIn(datasetName, chunk));
+        }
+        return existing;
+    }
+
+    /**
+     * Saves the records as one JDBC batch, then flushes and clears the persistence
+     * context so that it does not grow over the chunks of a large insert.
+     */
+    @Override
+    public List<Long> append(String datasetName, List<NewRecord> records) {
+        List<DatasetRecord> entities = new ArrayList<>(records.size());
+        long bytes = 0;
+        for (NewRecord record : records) {
+            bytes += record.recordData().length;
+            entities.add(DatasetRecord.builder()
+                    .datasetName(datasetName)
+                    .recordId(record.recordId())
+                    .recordData(record.recordData())
+                    .build());
+        }
+
+        List<DatasetRecord> saved = repository.saveAll(entities);
+        List<Long> rowIds = new ArrayList<>(saved.size());
+        for (DatasetRecord entity : saved) {
+            rowIds.add(entity.getId());
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+
+        long appendedBytes = bytes;
+        storedSizes.computeIfPresent(datasetName, (name, size) -> size.plus(records.size(), appendedBytes));
+        return rowIds;
+    }
+
+    @Override
+    public Stream<RecordRow> scan(String datasetName) {
+        return repository.streamRowsByDatasetName(datasetName);
+    }
+
+    @Override
+    public List<RecordRow> findRows(String datasetName, Collection<Long> rowIds) {
+        return repository.findRowsByDatasetNameAndIdIn(datasetName, rowIds);
+    }
+
+    @Override
+    public StoredSize storedSize(String datasetName) {
+        return storedSizes.computeIfAbsent(datasetName,
+                name -> new StoredSize(repository.countByDatasetName(name), repository.sumStoredBytes(name)));
+    }
+}
@@ -0,0 +1,55 @@
+package com.assignment.jsonquery.storage;
+
+import com.assignment.jsonquery.repository.RecordRow;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Where the encoded records of the datasets are kept. Each stored record gets a
+ * row id, unique within its dataset and increasing in insertion order; field
+ * indexes and the dataset cache refer to records by that id.
+ * <p>
+ * The implementation is chosen with {@code dataset.storage.type}: {@code jpa}
+ * (the default) stores rows in the {@code dataset_records} table, {@code segment}
+ * in append-only segment files per dataset.
+ */
+public interface RecordStore {
+
+    boolean exists(String datasetName, long recordId);
+
+    // The given record ids that are already stored in the dataset
+    Set<Long> findExistingRecordIds(String datasetName, Collection<Long> recordIds);
+
+    /**
+     * Stores the records and returns their row ids, in the same order.
+     */
+    List<Long> append(String datasetName, List<NewRecord> records);
+
+    /**
+     * All rows of the dataset in insertion order, empty if there are none. The
+     * stream must be closed.
+     */
+    Stream<RecordRow> scan(String datasetName);
+
+    // The rows with the given ids, in no particular order; unknown ids are left out
+    List<RecordRow> findRows(String datasetName, Collection<Long> rowIds);
+
+    // Approximate number and size of the dataset's stored records, zero if there are none; cheap to ask
+    StoredSize storedSize(String datasetName);
+
+    record NewRecord(Long recordId, byte[] recordData) {
+    }
+
+    // A count of records and the bytes of their stored data, without storage headers
+    record StoredSize(long records, long bytes) {
+
+        public static final StoredSize EMPTY = new StoredSize(0, 0);
+
+        public StoredSize plus(long moreRecords, long moreBytes) {
+            return new StoredSize(records + moreRecords, bytes + moreBytes);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.assignment.jsonquery.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * One append-only segment file: the {@link #MAGIC} bytes, then the records, each
+ * stored as
+ * <pre>
+ *   int length | long recordId | byte[length] recordData
+ * </pre>
+ * Records are appended through the file channel and read through a read-only
+ * memory mapping, which is extended when a read reaches beyond it. Reads only see
+ * records up to {@link #size()}, which appends advance once a record is completely
+ * written.
+ */
+@Slf4j
+class Segment implements AutoCloseable {
+
+    // Identifies the file format, and keeps offset 0 (and so row id 0) free of records
+    private static final byte[] MAGIC = "JQSEG001".getBytes(StandardCharsets.US_ASCII);
+
+    static final long FIRST_RECORD = MAGIC.length;
+    static final int HEADER_BYTES = Integer.BYTES + Long.BYTES;
+
+    private final Path path;
+    private final FileChannel channel;
+    private volatile long size;
+    private volatile MappedByteBuffer mapped;
+
+    private Segment(Path path, FileChannel channel, long size) {
+        this.path = path;
+        this.channel = channel;
+        this.size = size;
+    }
+
+    static Segment create(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        Segment segment = new Segment(path, channel, 0);
+        segment.append(ByteBuffer.wrap(MAGIC));
+        return segment;
+    }
+
+    /**
+     * Opens an existing segment, passing each record's id and offset to the visitor.
+     * A record left incomplete by a crash while it was written is cut off.
+     */
+    static Segment open(Path path, RecordVisitor visitor) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileSize = channel.size();
+        Segment segment = new Segment(path, channel, fileSize);
+
+        ByteBuffer buffer = segment.view();
+        byte[] magic = new byte[MAGIC.length];
+        if (fileSize >= MAGIC.length) {
+            buffer.get(0, magic);
+        }
+        if (!Arrays.equals(magic, MAGIC)) {
+            channel.close();
+            throw new IOException("Not a segment file: " + path);
+        }
+
+        long offset = FIRST_RECORD;
+        while (offset + HEADER_BYTES <= fileSize) {
+            int length = buffer.getInt((int) offset);
+            if (length < 0 || offset + HEADER_BYTES + length > fileSize) {
+                break;
+            }
+            visitor.visit(buffer.getLong((int) offset + Integer.BYTES), offset);
+            offset += HEADER_BYTES + length;
+        }
+
+        if (offset < fileSize) {
+            log.warn("Truncating incomplete record at offset {} of segment {}", offset, path);
+            channel.truncate(offset);
+            segment.size = offset;
+            segment.mapped = null;
+        }
+        return segment;
+    }
+
+    long size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == FIRST_RECORD;
+    }
+
+    /**
+     * Writes the already encoded records at the end of the segment. Only one thread
+     * may append at a time.
+     */
+    void append(ByteBuffer records) throws IOException {
+        long position = size;
+        while (records.hasRemaining()) {
+            position += channel.write(records, position);
+        }
+        size = position;
+    }
+
+    // Length of the record data at the offset
+    int length(long offset) {
+        return view().getInt((int) offset);
+    }
+
+    // Copies the record data out of the mapping; the decoder needs it on the heap
+    byte[] recordData(long offset) {
+        ByteBuffer buffer = view();
+        byte[] data = new byte[buffer.getInt((int) offset)];
+        buffer.get((int) offset + HEADER_BYTES, data);
+        return data;
+    }
+
+    // The mapping, extended to the current size if records were appended since it was made
+    private ByteBuffer view() {
+        MappedByteBuffer current = mapped;
+        long currentSize = size;
+        if (current == null || current.capacity() < currentSize) {
+            synchronized (this) {
+                current = mapped;
+                if (current == null || current.capacity() < currentSize) {
+                    try {
+                        current = channel.map(FileChannel.MapMode.READ_ONLY, 0, currentSize);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to map segment " + path, e);
+                    }
+                    mapped = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+
+    @FunctionalInterface
+    interface RecordVisitor {
+        void visit(long recordId, long offset);
+    }
+}
@@ -0,0 +1,116 @@
+package com.assignment.jsonquery.storage;
+
+import com.assignment.jsonquery.config.DatasetProperties;
+import com.assignment.jsonquery.repository.RecordRow;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Stores each dataset as append-only segment files under
+ * {@code dataset.storage.dir}/segments, bypassing JPA entirely. Records are read
+ * through memory mappings of the files, so a scan is a walk over mapped memory
+ * with no query, entity or persistence context involved.
+ * <p>
+ * A dataset is opened on first use by reading the record headers of its
+ * segments to rebuild the index from record id to row id. Writes are not part of
+ * any transaction: appended records stay stored even if the surrounding
+ * transaction rolls back. They reach the page cache immediately and the disk when
+ * the operating system flushes it, or at the latest on shutdown.
+ */
+@Component
+@ConditionalOnProperty(name = "dataset.storage.type", havingValue = "segment")
+@Slf4j
+public class SegmentRecordStore implements RecordStore {
+
+    private final Path root;
+    private final long maxSegmentBytes;
+    private final Map<String, DatasetSegments> datasets = new ConcurrentHashMap<>();
+
+    public SegmentRecordStore(DatasetProperties properties) {
+        this.root = Path.of(properties.getStorage().getDir(), "segments");
+        this.maxSegmentBytes = properties.getStorage().getSegmentSize().toBytes();
+        if (maxSegmentBytes <= 0 || maxSegmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "dataset.storage.segment-size must be between 1B and 2GB, got: " + maxSegmentBytes + "B");
+        }
+        log.info("Storing records in segment files under {}", root.toAbsolutePath());
+    }
+
+    @Override
+    public boolean exists(String datasetName, long recordId) {
+        return dataset(datasetName).contains(recordId);
+    }
+
+    @Override
+    public Set<Long> findExistingRecordIds(String datasetName, Collection<Long> recordIds) {
+        DatasetSegments dataset = dataset(datasetName);
+        Set<Long> existing = new HashSet<>();
+        for (Long recordId : recordIds) {
+            if (dataset.contains(recordId)) {
+                existing.add(recordId);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public List<Long> append(String datasetName, List<NewRecord> records) {
+        return dataset(datasetName).append(records);
+    }
+
+    @Override
+    public Stream<RecordRow> scan(String datasetName) {
+        return dataset(datasetName).scan();
+    }
+
+    @Override
+    public List<RecordRow> findRows(String datasetName, Collection<Long> rowIds) {
+        DatasetSegments dataset = dataset(datasetName);
+        List<RecordRow> rows = new ArrayList<>(rowIds.size());
+        for (Long rowId : rowIds) {
+            RecordRow row = dataset.find(rowId);
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public StoredSize storedSize(String datasetName) {
+        return dataset(datasetName).storedSize();
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Map.Entry<String, DatasetSegments> dataset : datasets.entrySet()) {
+            try {
+                dataset.getValue().close();
+            } catch (IOException e) {
+                log.warn("Failed to close the segments of dataset '{}'", dataset.getKey(), e);
+            }
+        }
+    }
+
+    private DatasetSegments dataset(String datasetName) {
+        return datasets.computeIfAbsent(datasetName, name -> {
+            try {
+                return DatasetSegments.open(name, root.resolve(URLEncoder.encode(name, StandardCharsets.UTF_8)),
+                        maxSegmentBytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open the segments of dataset '" + name + "'", e);
+            }
+        });
+    }
+}
@@ -0,0 +1,76 @@
+package com.assignment.jsonquery;
+
+import com.assignment.jsonquery.exception.IndexAlreadyExistsException;
+import com.assignment.jsonquery.query.Aggregate;
+import com.assignment.jsonquery.service.DatasetService;
+import com.assignment.jsonquery.service.GroupViewService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+class PersistentStorageTest {
+
+    private static final String DATASET = "persistent_dataset";
+
+    @TempDir
+    Path storageDir;
+
+    @Test
+    void persistentProfile_shouldKeepDatasetsIndexesAndViewsAcrossRestarts() {
+        assertDatasetSurvivesRestart();
+    }
+
+    @Test
+    void segmentStorage_shouldKeepDatasetsIndexesAndViewsAcrossRestarts() {
+        assertDatasetSurvivesRestart("--dataset.storage.type=segment");
+    }
+
+    private void assertDatasetSurvivesRestart(String... args) {
+        try (ConfigurableApplicationContext context = start(args)) {
+            DatasetService datasetService = context.getBean(DatasetService.class);
+            datasetService.batchInsert(DATASET, List.of(
+                    Map.of("id", 1, "dept", "Engineering", "age", 30),
+                    Map.of("id", 2, "dept", "Sales", "age", 25)));
+            datasetService.createIndex(DATASET, "dept");
+            datasetService.createView(DATASET, "dept", "count,sum(age)");
+        }
+
+        try (ConfigurableApplicationContext context = start(args)) {
+            DatasetService datasetService = context.getBean(DatasetService.class);
+            assertThat(datasetService.sortBy(DATASET, "age", "asc"))
+                    .extracting(record -> record.get("id"))
+                    .containsExactly(2, 1);
+            assertThat(datasetService.groupBy(DATASET, "dept")).containsOnlyKeys("Engineering", "Sales");
+            assertThatThrownBy(() -> datasetService.createIndex(DATASET, "dept"))
+                    .isInstanceOf(IndexAlreadyExistsException.class);
+
+            // The view picks up where it left off
+            datasetService.insertRecord(DATASET, Map.of("id", 3, "dept", "Sales", "age", 41));
+            assertThat(datasetService.aggregate(DATASET, "dept", "count,sum(age)", null, null))
+                    .containsExactly(
+                            entry("Engineering", Map.of("count", 1L, "sum(age)", 30L)),
+                            entry("Sales", Map.of("count", 2L, "sum(age)", 66L)));
+            assertThat(context.getBean(GroupViewService.class)
+                    .aggregate(DATASET, "dept", Aggregate.parseList("sum(age)"), null)).isPresent();
+        }
+    }
+
+    private ConfigurableApplicationContext start(String... args) {
+        List<String> arguments = new ArrayList<>(List.of(args));
+        arguments.add("--dataset.storage.dir=" + storageDir);
+        arguments.add("--logging.level.root=WARN");
+        return new SpringApplicationBuilder(JsonQueryApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("persistent")
+                .run(arguments.toArray(String[]::new));
+    }
+}
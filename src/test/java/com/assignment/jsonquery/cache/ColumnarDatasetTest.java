@@ -0,0 +1,128 @@
+package com.assignment.jsonquery.cache;
+
+import com.assignment.jsonquery.config.DatasetProperties;
+import com.assignment.jsonquery.query.FieldPath;
+import com.assignment.jsonquery.query.GroupKeyDictionary;
+import com.assignment.jsonquery.query.ListRecordTable;
+import com.assignment.jsonquery.query.ParsedRow;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ColumnarDatasetTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void shouldReadBackRecordsExactlyAsParsed() throws Exception {
+        List<ParsedRow> rows = List.of(
+                row(1, "{\"id\":1,\"name\":\"John\",\"age\":30,\"salary\":5000000000,\"score\":9.5,\"active\":true}"),
+                row(2, "{\"name\":\"Jane\",\"id\":2,\"tags\":[\"a\",\"b\"],\"age\":null}"),
+                row(3, "{\"id\":3,\"age\":\"unknown\",\"address\":{\"city\":\"Pune\"}}"));
+
+        ColumnarDataset dataset = ColumnarDataset.of(new ListRecordTable(rows));
+
+        assertThat(dataset.size()).isEqualTo(3);
+        for (int row = 0; row < rows.size(); row++) {
+            Map<String, Object> record = dataset.record(row);
+            assertThat(record).isEqualTo(rows.get(row).record());
+            assertThat(record.keySet()).containsExactlyElementsOf(rows.get(row).record().keySet());
+            assertThat(dataset.rowId(row)).isEqualTo(rows.get(row).rowId());
+        }
+        assertThat(dataset.record(0).get("salary")).isInstanceOf(Long.class);
+        assertThat(dataset.record(0).get("age")).isInstanceOf(Integer.class);
+    }
+
+    @Test
+    void shouldStoreHomogeneousFieldsInTypedColumns() throws Exception {
+        ColumnarDataset dataset = ColumnarDataset.of(new ListRecordTable(List.of(
+                row(1, "{\"id\":1,\"dept\":\"Engineering\",\"score\":1.5}"),
+                row(2, "{\"id\":2,\"dept\":\"Engineering\"}"),
+                row(3, "{\"id\":3,\"dept\":\"Marketing\",\"score\":2.5,\"mixed\":1}"),
+                row(4, "{\"id\":4,\"mixed\":\"one\"}"))));
+
+        assertThat(dataset.column("id")).isInstanceOf(LongColumn.class);
+        assertThat(dataset.column("score")).isInstanceOf(DoubleColumn.class);
+        assertThat(dataset.column("mixed")).isInstanceOf(ObjectColumn.class);
+
+        StringColumn dept = (StringColumn) dataset.column("dept");
+        assertThat(dept.dictionarySize()).isEqualTo(2);
+        assertThat(dept.code(0)).isEqualTo(dept.code(1));
+        assertThat(dept.isNull(3)).isTrue();
+        assertThat(dataset.value(1, "score")).isNull();
+        assertThat(dataset.value(3, "mixed")).isEqualTo("one");
+    }
+
+    @Test
+    void groupIdsFromTypedColumnsShouldMatchBoxedValues() throws Exception {
+        List<ParsedRow> rows = List.of(
+                row(1, "{\"id\":1,\"dept\":\"Sales\",\"score\":1.5,\"big\":5000000000,\"mixed\":1}"),
+                row(2, "{\"id\":2,\"dept\":\"Ops\",\"score\":2.5,\"big\":7,\"mixed\":\"1\"}"),
+                row(3, "{\"id\":1,\"score\":1.5,\"big\":5000000000}"),
+                row(4, "{\"id\":4,\"dept\":\"Sales\",\"mixed\":null}"));
+        ListRecordTable parsed = new ListRecordTable(rows);
+        ColumnarDataset dataset = ColumnarDataset.of(parsed);
+
+        for (String field : List.of("id", "dept", "score", "big", "mixed", "missing")) {
+            FieldPath path = FieldPath.parse(field);
+            GroupKeyDictionary fromColumns = new GroupKeyDictionary();
+            GroupKeyDictionary fromValues = new GroupKeyDictionary();
+            for (int row = 0; row < rows.size(); row++) {
+                assertThat(dataset.groupId(row, path, fromColumns)).isEqualTo(parsed.groupId(row, path, fromValues));
+            }
+            for (int id = 0; id < fromValues.size(); id++) {
+                assertThat(fromColumns.value(id)).isEqualTo(fromValues.value(id));
+            }
+        }
+    }
+
+    @Test
+    void shouldRejectOutOfOrderAppends() throws Exception {
+        ColumnarDataset dataset = ColumnarDataset.of(new ListRecordTable(List.of(row(10, "{\"id\":1}"))));
+
+        assertThat(dataset.append(List.of(row(12, "{\"id\":3}"), row(11, "{\"id\":2}")))).isTrue();
+        assertThat(dataset.append(List.of(row(5, "{\"id\":4}")))).isFalse();
+        assertThat(dataset.size()).isEqualTo(3);
+        assertThat(dataset.value(1, "id")).isEqualTo(2);
+    }
+
+    @Test
+    void cacheShouldEvictLeastRecentlyUsedDatasetWhenOverBudget() throws Exception {
+        ColumnarDataset sample = ColumnarDataset.of(new ListRecordTable(List.of(row(1, "{\"id\":1,\"name\":\"x\"}"))));
+        DatasetProperties properties = new DatasetProperties();
+        properties.getCache().setMaxSize(DataSize.ofBytes(sample.estimatedBytes() * 2 + 1));
+        DatasetCache cache = new DatasetCache(properties);
+
+        for (String name : List.of("a", "b", "c")) {
+            cache.offer(name, cache.beginLoad(name), new ListRecordTable(List.of(row(1, "{\"id\":1,\"name\":\"x\"}"))));
+            if (name.equals("b")) {
+                cache.get("a");
+            }
+        }
+
+        assertThat(cache.get("a")).isPresent();
+        assertThat(cache.get("b")).isEmpty();
+        assertThat(cache.get("c")).isPresent();
+    }
+
+    @Test
+    void cacheShouldNotKeepLoadThatRacedWithWrite() throws Exception {
+        DatasetCache cache = new DatasetCache(new DatasetProperties());
+
+        long token = cache.beginLoad("test");
+        cache.beginWrite("test").add(List.of(row(2, "{\"id\":2}")));
+        cache.offer("test", token, new ListRecordTable(List.of(row(1, "{\"id\":1}"))));
+
+        assertThat(cache.get("test")).isEmpty();
+    }
+
+    private ParsedRow row(long rowId, String json) throws Exception {
+        return new ParsedRow(rowId, objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {
+        }));
+    }
+}
@@ -10,14 +10,16 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.Matchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest
+@SpringBootTest(properties = "dataset.metrics.server-timing=true")
 @AutoConfigureMockMvc
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 class DatasetControllerTest {
@@ -165,10 +167,22 @@ class DatasetControllerTest {
 
         @Test
         @Order(11)
-        void shouldRejectQueryWithBothParameters() throws Exception {
+        void shouldRejectPagingAndAggregatesWithGroupedSort() throws Exception {
                 mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
                                 .param("groupBy", "department")
-                                .param("sortBy", "age"))
+                                .param("sortBy", "age")
+                                .param("limit", "1"))
+                                .andExpect(status().isBadRequest());
+
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("groupBy", "department")
+                                .param("sortBy", "age")
+                                .param("agg", "count"))
+                                .andExpect(status().isBadRequest());
+
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("sortBy", "age")
+                                .param("groupOrder", "key"))
                                 .andExpect(status().isBadRequest());
         }
 
@@ -204,4 +218,521 @@ class DatasetControllerTest {
                                 .andExpect(status().isNotFound())
                                 .andExpect(jsonPath("$.error").value("Not Found"));
         }
+
+        @Test
+        @Order(16)
+        void shouldStreamGroupByDepartment() throws Exception {
+                MvcResult result = mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("groupBy", "department")
+                                .param("stream", "true"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+
+                mockMvc.perform(asyncDispatch(result))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.groupedRecords.Engineering", hasSize(2)))
+                                .andExpect(jsonPath("$.groupedRecords.Marketing", hasSize(1)));
+        }
+
+        @Test
+        @Order(17)
+        void shouldStreamSortByAgeDescending() throws Exception {
+                MvcResult result = mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("sortBy", "age")
+                                .param("order", "desc")
+                                .param("stream", "true"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+
+                mockMvc.perform(asyncDispatch(result))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.sortedRecords", hasSize(3)))
+                                .andExpect(jsonPath("$.sortedRecords[0].age").value(30))
+                                .andExpect(jsonPath("$.sortedRecords[1].age").value(28))
+                                .andExpect(jsonPath("$.sortedRecords[2].age").value(25));
+        }
+
+        @Test
+        @Order(18)
+        void shouldReturn404WhenStreamingNonexistentDataset() throws Exception {
+                MvcResult result = mockMvc.perform(get(BASE_URL + "/nonexistent/query")
+                                .param("sortBy", "age")
+                                .param("stream", "true"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+
+                mockMvc.perform(asyncDispatch(result))
+                                .andExpect(status().isNotFound());
+        }
+
+        @Test
+        @Order(19)
+        void shouldCreateFieldIndexes() throws Exception {
+                mockMvc.perform(post(BASE_URL + "/" + DATASET + "/index/department"))
+                                .andExpect(status().isCreated())
+                                .andExpect(jsonPath("$.field").value("department"))
+                                .andExpect(jsonPath("$.indexedRecords").value(3));
+
+                mockMvc.perform(post(BASE_URL + "/" + DATASET + "/index/age"))
+                                .andExpect(status().isCreated());
+        }
+
+        @Test
+        @Order(20)
+        void shouldRejectDuplicateFieldIndex() throws Exception {
+                mockMvc.perform(post(BASE_URL + "/" + DATASET + "/index/department"))
+                                .andExpect(status().isConflict());
+        }
+
+        @Test
+        @Order(21)
+        void shouldKeepFieldIndexCurrentOnInsert() throws Exception {
+                Map<String, Object> record = Map.of(
+                                "id", 4,
+                                "name", "Bob Wilson",
+                                "age", 35,
+                                "department", "Marketing");
+
+                mockMvc.perform(post(BASE_URL + "/" + DATASET + "/record")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(record)))
+                                .andExpect(status().isCreated());
+
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("groupBy", "department"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.groupedRecords.Engineering", hasSize(2)))
+                                .andExpect(jsonPath("$.groupedRecords.Marketing", hasSize(2)))
+                                .andExpect(jsonPath("$.groupedRecords.Marketing[1].name").value("Bob Wilson"));
+
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("sortBy", "age")
+                                .param("order", "desc"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.sortedRecords", hasSize(4)))
+                                .andExpect(jsonPath("$.sortedRecords[0].age").value(35))
+                                .andExpect(jsonPath("$.sortedRecords[3].age").value(25));
+        }
+
+        @Test
+        @Order(22)
+        void shouldReturn404WhenIndexingNonexistentDataset() throws Exception {
+                mockMvc.perform(post(BASE_URL + "/nonexistent/index/department"))
+                                .andExpect(status().isNotFound());
+        }
+
+        @Test
+        @Order(23)
+        void shouldReportInsertedAndSkippedIdsForBatch() throws Exception {
+                List<Map<String, Object>> batch = List.of(
+                                Map.of("id", 4, "name", "Already There", "age", 40, "department", "HR"),
+                                Map.of("id", 5, "name", "Carol White", "age", 41, "department", "HR"),
+                                Map.of("id", 5, "name", "Carol Again", "age", 41, "department", "HR"),
+                                Map.of("id", 6, "name", "Dan Green", "age", 33, "department", "Sales"));
+
+                mockMvc.perform(post(BASE_URL + "/" + DATASET + "/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(batch)))
+                                .andExpect(status().isCreated())
+                                .andExpect(jsonPath("$.message").value("2 records added successfully"))
+                                .andExpect(jsonPath("$.insertedCount").value(2))
+                                .andExpect(jsonPath("$.insertedIds", contains(5, 6)))
+                                .andExpect(jsonPath("$.skippedCount").value(2))
+                                .andExpect(jsonPath("$.skippedIds", contains(5, 4)))
+                                .andExpect(jsonPath("$.recordId").doesNotExist());
+        }
+
+        @Test
+        @Order(24)
+        void shouldPageSortedRecordsWithLimitAndCursor() throws Exception {
+                MvcResult firstPage = mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("sortBy", "age")
+                                .param("limit", "2"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.sortedRecords", hasSize(2)))
+                                .andExpect(jsonPath("$.sortedRecords[0].age").value(25))
+                                .andExpect(jsonPath("$.sortedRecords[1].age").value(28))
+                                .andExpect(jsonPath("$.nextCursor").exists())
+                                .andReturn();
+
+                String cursor = objectMapper.readTree(firstPage.getResponse().getContentAsString())
+                                .get("nextCursor").asText();
+
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("sortBy", "age")
+                                .param("limit", "2")
+                                .param("after", cursor))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.sortedRecords[0].age").value(30))
+                                .andExpect(jsonPath("$.sortedRecords[1].age").value(33));
+
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("sortBy", "age")
+                                .param("order", "desc")
+                                .param("offset", "4")
+                                .param("limit", "5"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.sortedRecords", hasSize(2)))
+                                .andExpect(jsonPath("$.sortedRecords[1].age").value(25))
+                                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+        }
+
+        @Test
+        @Order(25)
+        void shouldRejectInvalidPagingParameters() throws Exception {
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("sortBy", "age")
+                                .param("limit", "0"))
+                                .andExpect(status().isBadRequest());
+
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("sortBy", "age")
+                                .param("after", "not-a-cursor"))
+                                .andExpect(status().isBadRequest());
+
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("groupBy", "department")
+                                .param("limit", "2"))
+                                .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @Order(26)
+        void shouldReturnAggregatesPerGroup() throws Exception {
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("groupBy", "department")
+                                .param("agg", "count,sum(age),avg(age),min(age),max(age)"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.groupedAggregates.Engineering.count").value(2))
+                                .andExpect(jsonPath("$.groupedAggregates.Engineering['sum(age)']").value(55))
+                                .andExpect(jsonPath("$.groupedAggregates.Engineering['avg(age)']").value(27.5))
+                                .andExpect(jsonPath("$.groupedAggregates.Engineering['min(age)']").value(25))
+                                .andExpect(jsonPath("$.groupedAggregates.Engineering['max(age)']").value(30))
+                                .andExpect(jsonPath("$.groupedAggregates.HR.count").value(1))
+                                .andExpect(jsonPath("$.groupedRecords").doesNotExist());
+        }
+
+        @Test
+        @Order(27)
+        void shouldRejectAggregatesWithoutGroupBy() throws Exception {
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("sortBy", "age")
+                                .param("agg", "count"))
+                                .andExpect(status().isBadRequest());
+
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("groupBy", "department")
+                                .param("agg", "median(age)"))
+                                .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @Order(28)
+        void shouldFilterRecordsWithWhere() throws Exception {
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("sortBy", "age")
+                                .param("where", "department = Engineering OR department in ('HR')"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.sortedRecords[*].age", contains(25, 30, 41)));
+
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("groupBy", "department")
+                                .param("where", "age >= 30 AND age < 40"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.groupedRecords.Engineering[*].age", contains(30)))
+                                .andExpect(jsonPath("$.groupedRecords.Marketing[*].age", contains(35)))
+                                .andExpect(jsonPath("$.groupedRecords.Sales[*].age", contains(33)))
+                                .andExpect(jsonPath("$.groupedRecords.HR").doesNotExist());
+
+                MvcResult result = mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("sortBy", "age")
+                                .param("order", "desc")
+                                .param("where", "exists(department) AND department != Marketing")
+                                .param("stream", "true"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                mockMvc.perform(asyncDispatch(result))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.sortedRecords[*].age", contains(41, 33, 30, 25)));
+        }
+
+        @Test
+        @Order(29)
+        void shouldRejectInvalidWhere() throws Exception {
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("sortBy", "age")
+                                .param("where", "age >"))
+                                .andExpect(status().isBadRequest());
+
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("sortBy", "age")
+                                .param("where", "age < true"))
+                                .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @Order(30)
+        void shouldGroupAndSortInOneQuery() throws Exception {
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("groupBy", "department")
+                                .param("sortBy", "age")
+                                .param("order", "desc")
+                                .param("groupOrder", "key:desc"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.groupedRecords.keys()",
+                                                contains("Sales", "Marketing", "HR", "Engineering")))
+                                .andExpect(jsonPath("$.groupedRecords.Engineering[*].age", contains(30, 25)))
+                                .andExpect(jsonPath("$.groupedRecords.Marketing[*].age", contains(35, 28)));
+
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("groupBy", "department")
+                                .param("agg", "count")
+                                .param("groupOrder", "avg(age):desc"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.groupedAggregates.keys()",
+                                                contains("HR", "Sales", "Marketing", "Engineering")))
+                                .andExpect(jsonPath("$.groupedAggregates.HR.count").value(1))
+                                .andExpect(jsonPath("$.groupedAggregates.HR['avg(age)']").doesNotExist());
+        }
+
+        @Test
+        @Order(31)
+        void shouldReturnOnlyRequestedFields() throws Exception {
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("sortBy", "age")
+                                .param("fields", "name")
+                                .param("where", "department = Engineering"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.sortedRecords[*].name", contains("Jane Smith", "John Doe")))
+                                .andExpect(jsonPath("$.sortedRecords[*].age", contains(25, 30)))
+                                .andExpect(jsonPath("$.sortedRecords[*].department").isEmpty())
+                                .andExpect(jsonPath("$.sortedRecords[*].id").isEmpty());
+
+                MvcResult result = mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("groupBy", "department")
+                                .param("fields", "id")
+                                .param("stream", "true"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                mockMvc.perform(asyncDispatch(result))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.groupedRecords.Engineering[*].id", contains(1, 2)))
+                                .andExpect(jsonPath("$.groupedRecords.Engineering[*].department",
+                                                contains("Engineering", "Engineering")))
+                                .andExpect(jsonPath("$.groupedRecords.Engineering[*].name").isEmpty());
+
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("groupBy", "department")
+                                .param("agg", "count")
+                                .param("fields", "name"))
+                                .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @Order(32)
+        void shouldRevalidateQueriesWithETagUntilDatasetChanges() throws Exception {
+                String dataset = "cached_dataset";
+                mockMvc.perform(post(BASE_URL + "/" + dataset + "/record")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(Map.of("id", 1, "department", "Engineering"))))
+                                .andExpect(status().isCreated());
+
+                MvcResult first = mockMvc.perform(get(BASE_URL + "/" + dataset + "/query")
+                                .param("groupBy", "department"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().exists("ETag"))
+                                .andExpect(jsonPath("$.groupedRecords.Engineering", hasSize(1)))
+                                .andReturn();
+                String etag = first.getResponse().getHeader("ETag");
+
+                mockMvc.perform(get(BASE_URL + "/" + dataset + "/query")
+                                .param("groupBy", "department")
+                                .header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+
+                mockMvc.perform(get(BASE_URL + "/" + dataset + "/query")
+                                .param("sortBy", "id")
+                                .header("If-None-Match", etag))
+                                .andExpect(status().isOk());
+
+                mockMvc.perform(post(BASE_URL + "/" + dataset + "/record")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(Map.of("id", 2, "department", "Engineering"))))
+                                .andExpect(status().isCreated());
+
+                mockMvc.perform(get(BASE_URL + "/" + dataset + "/query")
+                                .param("groupBy", "department")
+                                .header("If-None-Match", etag))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", not(etag)))
+                                .andExpect(jsonPath("$.groupedRecords.Engineering", hasSize(2)));
+
+                mockMvc.perform(get("/api/cache/results"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.hits").isNumber())
+                                .andExpect(jsonPath("$.misses", greaterThanOrEqualTo(2)));
+        }
+
+        @Test
+        @Order(33)
+        void shouldIngestNdjsonInBackgroundAndReportRejections() throws Exception {
+                String dataset = "ingested_dataset";
+                String upload = """
+                                {"id": 1, "department": "Engineering"}
+                                {"id": 2, "department"
+                                {"department": "Sales"}
+
+                                {"id": 3, "department": "Marketing"}
+                                {"id": 1, "department": "HR"}
+                                """;
+
+                MvcResult submitted = mockMvc.perform(post(BASE_URL + "/" + dataset + "/ingest")
+                                .contentType("application/x-ndjson")
+                                .content(upload))
+                                .andExpect(status().isAccepted())
+                                .andExpect(header().exists("Location"))
+                                .andExpect(jsonPath("$.jobId").isNotEmpty())
+                                .andReturn();
+                String jobId = objectMapper.readTree(submitted.getResponse().getContentAsString()).get("jobId").asText();
+
+                String status = "QUEUED";
+                for (int attempt = 0; attempt < 100 && !status.equals("COMPLETED"); attempt++) {
+                        Thread.sleep(50);
+                        MvcResult polled = mockMvc.perform(get(BASE_URL + "/" + dataset + "/ingest/" + jobId))
+                                        .andExpect(status().isOk())
+                                        .andReturn();
+                        status = objectMapper.readTree(polled.getResponse().getContentAsString()).get("status").asText();
+                }
+
+                mockMvc.perform(get(BASE_URL + "/" + dataset + "/ingest/" + jobId))
+                                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                                .andExpect(jsonPath("$.recordsRead").value(5))
+                                .andExpect(jsonPath("$.insertedCount").value(2))
+                                .andExpect(jsonPath("$.rejectedCount").value(3))
+                                .andExpect(jsonPath("$.rejections[*].line", contains(2, 3, 6)))
+                                .andExpect(jsonPath("$.rejections[2].recordId").value(1));
+
+                mockMvc.perform(get(BASE_URL + "/" + dataset + "/query")
+                                .param("sortBy", "id"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.sortedRecords[*].id", contains(1, 3)));
+
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/ingest/" + jobId))
+                                .andExpect(status().isNotFound());
+        }
+
+        @Test
+        @Order(34)
+        void shouldReportQueryStagesInServerTimingAndMetrics() throws Exception {
+                mockMvc.perform(get(BASE_URL + "/" + DATASET + "/query")
+                                .param("sortBy", "age")
+                                .param("where", "age >= 30"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Server-Timing", containsString("execute;dur=")))
+                                .andExpect(header().string("Server-Timing", containsString("serialize;dur=")))
+                                .andExpect(header().string("Server-Timing", containsString("total;dur=")));
+
+                mockMvc.perform(get("/actuator/metrics/dataset.query.stage")
+                                .param("tag", "stage:execute"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.measurements[?(@.statistic == 'COUNT')].value",
+                                                contains(greaterThan(0.0))));
+
+                mockMvc.perform(get("/actuator/metrics/dataset.ingest.records")
+                                .param("tag", "outcome:inserted"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.measurements[0].value", greaterThan(0.0)));
+        }
+
+        @Test
+        @Order(35)
+        void shouldGroupSortAndFilterByNestedPaths() throws Exception {
+                String dataset = "nested_dataset";
+                mockMvc.perform(post(BASE_URL + "/" + dataset + "/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(List.of(
+                                                Map.of("id", 1, "address", Map.of("city", "Oslo"),
+                                                                "stats", Map.of("score", 7), "tags", List.of("b", "x")),
+                                                Map.of("id", 2, "address", Map.of("city", "Rome"),
+                                                                "stats", Map.of("score", 9), "tags", List.of("a")),
+                                                Map.of("id", 3, "address", Map.of("city", "Oslo"),
+                                                                "stats", Map.of("score", 3), "tags", List.of())))))
+                                .andExpect(status().isCreated());
+
+                mockMvc.perform(get(BASE_URL + "/" + dataset + "/query")
+                                .param("groupBy", "address.city")
+                                .param("sortBy", "stats.score")
+                                .param("fields", "id"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.groupedRecords.keys()", contains("Oslo", "Rome")))
+                                .andExpect(jsonPath("$.groupedRecords.Oslo[*].id", contains(3, 1)))
+                                .andExpect(jsonPath("$.groupedRecords.Oslo[0].address.city").value("Oslo"));
+
+                mockMvc.perform(get(BASE_URL + "/" + dataset + "/query")
+                                .param("sortBy", "stats.score")
+                                .param("order", "desc")
+                                .param("where", "address.city = Oslo"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.sortedRecords[*].id", contains(1, 3)));
+
+                MvcResult result = mockMvc.perform(get(BASE_URL + "/" + dataset + "/query")
+                                .param("sortBy", "tags[0]")
+                                .param("stream", "true"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+                mockMvc.perform(asyncDispatch(result))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.sortedRecords[*].id", contains(3, 2, 1)));
+
+                mockMvc.perform(get(BASE_URL + "/" + dataset + "/query")
+                                .param("groupBy", "address.city")
+                                .param("agg", "count,max(stats.score)"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.groupedAggregates.Oslo.count").value(2))
+                                .andExpect(jsonPath("$.groupedAggregates.Oslo['max(stats.score)']").value(7));
+
+                mockMvc.perform(get(BASE_URL + "/" + dataset + "/query")
+                                .param("groupBy", "tags[x]"))
+                                .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        @Order(36)
+        void shouldKeepGroupKeyTypesWhenAsked() throws Exception {
+                String dataset = "typed_keys_dataset";
+                mockMvc.perform(post(BASE_URL + "/" + dataset + "/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[{\"id\":1,\"code\":1},{\"id\":2,\"code\":\"1\"},"
+                                                + "{\"id\":3,\"code\":1.5},{\"id\":4,\"code\":1}]"))
+                                .andExpect(status().isCreated());
+
+                mockMvc.perform(get(BASE_URL + "/" + dataset + "/query")
+                                .param("groupBy", "code"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.groupedRecords.keys()", contains("1", "1.5")))
+                                .andExpect(jsonPath("$.groupedRecords['1'][*].id", contains(1, 2, 4)));
+
+                mockMvc.perform(get(BASE_URL + "/" + dataset + "/query")
+                                .param("groupBy", "code")
+                                .param("typedKeys", "true"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.groupedRecords").doesNotExist())
+                                .andExpect(content().string(containsString(
+                                                "\"groups\":[{\"key\":1,\"records\":[")))
+                                .andExpect(jsonPath("$.groups[*].key", contains(1, "1", 1.5)))
+                                .andExpect(jsonPath("$.groups[0].records[*].id", contains(1, 4)));
+
+                mockMvc.perform(get(BASE_URL + "/" + dataset + "/query")
+                                .param("groupBy", "code")
+                                .param("agg", "count")
+                                .param("typedKeys", "true"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.groups[*].key", contains(1, "1", 1.5)))
+                                .andExpect(jsonPath("$.groups[*].aggregates.count", contains(2, 1, 1)));
+
+                mockMvc.perform(get(BASE_URL + "/" + dataset + "/query")
+                                .param("sortBy", "code")
+                                .param("typedKeys", "true"))
+                                .andExpect(status().isBadRequest());
+        }
 }
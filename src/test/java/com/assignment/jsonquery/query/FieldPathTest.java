@@ -0,0 +1,54 @@
+package com.assignment.jsonquery.query;
+
+import com.assignment.jsonquery.exception.InvalidQueryParameterException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+class FieldPathTest {
+
+    private final Map<String, Object> record = Map.of(
+            "name", "Ann",
+            "address", Map.of("city", "Oslo"),
+            "stats", Map.of("scores", List.of(Map.of("value", 7), Map.of("value", 9))),
+            "tags", List.of("a", "b"));
+
+    @Test
+    void get_shouldWalkKeysAndArrayIndices() {
+        assertThat(FieldPath.parse("name").get(record)).isEqualTo("Ann");
+        assertThat(FieldPath.parse("address.city").get(record)).isEqualTo("Oslo");
+        assertThat(FieldPath.parse("tags[1]").get(record)).isEqualTo("b");
+        assertThat(FieldPath.parse("stats.scores[1].value").get(record)).isEqualTo(9);
+        assertThat(FieldPath.parse("stats.scores").get(record)).isInstanceOf(List.class);
+
+        FieldPath path = FieldPath.parse("stats.scores[0].value");
+        assertThat(path.root()).isEqualTo("stats");
+        assertThat(path.isTopLevel()).isFalse();
+        assertThat(path.depth()).isEqualTo(3);
+        assertThat(path).hasToString("stats.scores[0].value");
+    }
+
+    @Test
+    void get_shouldYieldNullWhenPathDoesNotFit() {
+        assertThat(FieldPath.parse("missing.city").get(record)).isNull();
+        assertThat(FieldPath.parse("address.zip").get(record)).isNull();
+        assertThat(FieldPath.parse("tags[2]").get(record)).isNull();
+        assertThat(FieldPath.parse("name[0]").get(record)).isNull();
+        assertThat(FieldPath.parse("tags.first").get(record)).isNull();
+        assertThat(FieldPath.parse("address[0]").get(record)).isNull();
+    }
+
+    @Test
+    void parse_shouldRejectMalformedPaths() {
+        for (String path : new String[] { "", ".city", "address.", "address..city", "tags[", "tags[]", "tags[-1]",
+                "tags[x]", "tags[0]x", "tags]", "[0]" }) {
+            assertThatThrownBy(() -> FieldPath.parse(path))
+                    .as(path)
+                    .isInstanceOf(InvalidQueryParameterException.class)
+                    .hasMessageContaining("Invalid field path");
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.assignment.jsonquery.query;
+
+import com.assignment.jsonquery.exception.InvalidQueryParameterException;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+class FilterTest {
+
+    private final List<Map<String, Object>> records = List.of(
+            record("id", 1, "dept", "Engineering", "age", 30, "remote", true),
+            record("id", 2, "dept", "Engineering", "age", 25.0),
+            record("id", 3, "dept", "Marketing", "age", "n/a"),
+            record("id", 4, "dept", "Sales", "age", null),
+            record("id", 5, "dept", "HR", "age", 41, "remote", false));
+
+    @Test
+    void parse_shouldApplyTypedComparisonsWithPrecedence() {
+        assertThat(matchingIds("dept = Engineering")).containsExactly(1, 2);
+        assertThat(matchingIds("age = 25")).containsExactly(2);
+        assertThat(matchingIds("age > 26")).containsExactly(1, 5);
+        assertThat(matchingIds("age <= 30 AND dept != Engineering")).isEmpty();
+        assertThat(matchingIds("age != 30")).containsExactly(2, 3, 4, 5);
+        assertThat(matchingIds("age = null OR age = 'n/a'")).containsExactly(3, 4);
+        assertThat(matchingIds("dept in (Sales, 'HR') or remote = true and age < 100")).containsExactly(1, 4, 5);
+        assertThat(matchingIds("(dept in (Sales, 'HR') or remote = true) and age < 100")).containsExactly(1, 5);
+        assertThat(matchingIds("exists(remote) AND NOT_A_FIELD = null")).containsExactly(1, 5);
+        assertThat(matchingIds("dept > \"Marketing\"")).containsExactly(4);
+        assertThat(matchingIds("age in (30, 41.0, null)")).containsExactly(1, 4, 5);
+    }
+
+    @Test
+    void parse_shouldRejectMalformedConditions() {
+        for (String invalid : List.of("age >", "age < true", "= 3", "dept = 'open", "(age = 1", "age = 1 extra",
+                "age in ()", "age ~ 3")) {
+            assertThatThrownBy(() -> Filter.parse(invalid))
+                    .as(invalid)
+                    .isInstanceOf(InvalidQueryParameterException.class);
+        }
+        assertThat(Filter.parse(" ")).isNull();
+    }
+
+    // Tests every record both on its own and as a table row, which must agree
+    private List<Object> matchingIds(String where) {
+        Filter filter = Filter.parse(where);
+        RecordTable table = new ListRecordTable(records.stream().map(r -> new ParsedRow(0L, r)).toList());
+        for (int row = 0; row < records.size(); row++) {
+            assertThat(filter.test(table, row)).as(where).isEqualTo(filter.test(records.get(row)));
+        }
+        return records.stream().filter(filter::test).map(r -> r.get("id")).toList();
+    }
+
+    private static Map<String, Object> record(Object... keyValues) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            record.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return record;
+    }
+}
@@ -0,0 +1,180 @@
+package com.assignment.jsonquery.query;
+
+import com.assignment.jsonquery.config.DatasetProperties;
+import com.assignment.jsonquery.exception.InvalidQueryParameterException;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+class QueryEngineTest {
+
+    private final QueryEngine queryEngine = new QueryEngine(new DatasetProperties());
+
+    @Test
+    void sortBy_topKPagesShouldMatchFullSort() {
+        RecordTable table = randomTable(500, 42);
+
+        for (boolean descending : new boolean[] { false, true }) {
+            List<Map<String, Object>> full = queryEngine.sortBy(table, "score", descending);
+
+            for (int offset : new int[] { 0, 7, 499, 600 }) {
+                SortedPage page = queryEngine.sortBy(table, "score", descending, new SortPage(offset, 25, null));
+                int to = Math.min(offset + 25, full.size());
+                assertThat(page.records()).isEqualTo(full.subList(Math.min(offset, to), to));
+                assertThat(page.next() == null).isEqualTo(to >= full.size());
+            }
+        }
+    }
+
+    @Test
+    void sortBy_cursorPagesShouldWalkFullSortWithoutGapsOrRepeats() {
+        RecordTable table = randomTable(300, 7);
+
+        for (boolean descending : new boolean[] { false, true }) {
+            List<Map<String, Object>> full = queryEngine.sortBy(table, "score", descending);
+
+            List<Map<String, Object>> walked = new ArrayList<>();
+            SortCursor cursor = null;
+            do {
+                SortedPage page = queryEngine.sortBy(table, "score", descending, new SortPage(0, 40, cursor));
+                walked.addAll(page.records());
+                cursor = page.next();
+            } while (cursor != null);
+
+            assertThat(walked).isEqualTo(full);
+        }
+    }
+
+    @Test
+    void aggregate_shouldComputeAggregatesPerGroupInFirstSeenOrder() {
+        RecordTable table = new ListRecordTable(List.of(
+                row(1, "dept", "Engineering", "salary", 100, "rating", 4.5),
+                row(2, "dept", "Marketing", "salary", 70, "rating", null),
+                row(3, "dept", "Engineering", "salary", 120, "rating", 3.5),
+                row(4, "dept", "Engineering", "salary", "n/a", "rating", 5)));
+
+        Map<String, Map<String, Object>> result = queryEngine.aggregate(table, "dept",
+                Aggregate.parseList("count,sum(salary),avg(salary),min(rating),max(rating),count(rating)"));
+
+        assertThat(result.keySet()).containsExactly("Engineering", "Marketing");
+        assertThat(result.get("Engineering")).containsExactly(
+                entry("count", 3L),
+                entry("sum(salary)", 220L),
+                entry("avg(salary)", 110.0),
+                entry("min(rating)", 3.5),
+                entry("max(rating)", 5.0),
+                entry("count(rating)", 3L));
+        assertThat(result.get("Marketing"))
+                .containsEntry("count", 1L)
+                .containsEntry("sum(salary)", 70L)
+                .containsEntry("min(rating)", null)
+                .containsEntry("count(rating)", 0L);
+    }
+
+    @Test
+    void groupByTyped_shouldKeepValuesOfDifferentTypesApart() {
+        RecordTable table = new ListRecordTable(List.of(
+                row(1, "code", 1),
+                row(2, "code", "1"),
+                row(3, "code", 1L),
+                row(4, "code", 1.0),
+                row(5, "code", null),
+                row(6, "code", "1"),
+                row(7, "code", "null")));
+
+        Map<Object, List<Map<String, Object>>> typed = queryEngine.groupByTyped(table, "code", null, false, null);
+        assertThat(typed.keySet()).containsExactly(1, "1", 1.0, null, "null");
+        assertThat(typed.get(1)).extracting(r -> r.get("id")).containsExactly(1, 3);
+
+        // Keyed by string, values that print the same share a group with their rows in row order
+        Map<String, List<Map<String, Object>>> labelled = queryEngine.groupBy(table, "code");
+        assertThat(labelled.keySet()).containsExactly("1", "1.0", "null");
+        assertThat(labelled.get("1")).extracting(r -> r.get("id")).containsExactly(1, 2, 3, 6);
+        assertThat(labelled.get("null")).extracting(r -> r.get("id")).containsExactly(5, 7);
+
+        assertThat(queryEngine.aggregateTyped(table, "code", Aggregate.parseList("count"), null))
+                .containsEntry(1, Map.of("count", 2L))
+                .containsEntry("1", Map.of("count", 2L))
+                .containsEntry(null, Map.of("count", 1L));
+        assertThat(queryEngine.aggregate(table, "code", Aggregate.parseList("count")))
+                .containsEntry("1", Map.of("count", 4L));
+    }
+
+    @Test
+    void parallelPathShouldMatchSequentialResults() {
+        DatasetProperties parallelProperties = new DatasetProperties();
+        parallelProperties.getQuery().setParallelThreshold(1);
+        QueryEngine parallelEngine = new QueryEngine(parallelProperties);
+        RecordTable table = randomTable(2_000, 11);
+        List<Aggregate> aggregates = Aggregate.parseList("count,sum(id),avg(score),min(score),max(score)");
+
+        assertThat(parallelEngine.groupBy(table, "score")).containsExactlyEntriesOf(queryEngine.groupBy(table, "score"));
+        assertThat(parallelEngine.aggregate(table, "score", aggregates))
+                .containsExactlyEntriesOf(queryEngine.aggregate(table, "score", aggregates));
+        for (boolean descending : new boolean[] { false, true }) {
+            assertThat(parallelEngine.sortBy(table, "score", descending))
+                    .isEqualTo(queryEngine.sortBy(table, "score", descending));
+        }
+    }
+
+    @Test
+    void groupBy_shouldSortWithinGroupsAndOrderGroups() {
+        RecordTable table = new ListRecordTable(List.of(
+                row(1, "dept", "Engineering", "age", 30),
+                row(2, "dept", "Marketing", "age", 28),
+                row(3, "dept", "Engineering", "age", 25),
+                row(4, "dept", "HR", "age", 41),
+                row(5, "dept", "Engineering", "age", 35)));
+
+        Map<String, List<Map<String, Object>>> result = queryEngine.groupBy(table, "dept", "age", false,
+                GroupOrder.parse("count:desc"));
+
+        assertThat(result.keySet()).containsExactly("Engineering", "Marketing", "HR");
+        assertThat(result.get("Engineering")).extracting(r -> r.get("age")).containsExactly(25, 30, 35);
+
+        DatasetProperties parallelProperties = new DatasetProperties();
+        parallelProperties.getQuery().setParallelThreshold(1);
+        QueryEngine parallelEngine = new QueryEngine(parallelProperties);
+        RecordTable random = randomTable(2_000, 5);
+        for (String order : new String[] { "key", "key:desc", "max(id):desc" }) {
+            assertThat(parallelEngine.groupBy(random, "score", "id", true, GroupOrder.parse(order)))
+                    .containsExactlyEntriesOf(queryEngine.groupBy(random, "score", "id", true, GroupOrder.parse(order)));
+        }
+    }
+
+    @Test
+    void aggregate_shouldRejectInvalidSpecifications() {
+        assertThatThrownBy(() -> Aggregate.parseList("median(age)"))
+                .isInstanceOf(InvalidQueryParameterException.class);
+        assertThatThrownBy(() -> Aggregate.parseList("sum"))
+                .isInstanceOf(InvalidQueryParameterException.class);
+        assertThatThrownBy(() -> Aggregate.parseList("count,avg(age"))
+                .isInstanceOf(InvalidQueryParameterException.class);
+    }
+
+    private static ParsedRow row(long rowId, Object... keyValues) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("id", (int) rowId);
+        for (int i = 0; i < keyValues.length; i += 2) {
+            record.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return new ParsedRow(rowId, record);
+    }
+
+    // Scores drawn from a small range so that ties and nulls are common
+    private static RecordTable randomTable(int size, long seed) {
+        Random random = new Random(seed);
+        List<ParsedRow> rows = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("id", i);
+            if (random.nextInt(10) > 0) {
+                record.put("score", random.nextInt(20));
+            }
+            rows.add(new ParsedRow(100L + i, record));
+        }
+        return new ListRecordTable(rows);
+    }
+}
@@ -0,0 +1,47 @@
+package com.assignment.jsonquery.query;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SortKeysTest {
+
+    @Test
+    void sort_shouldMatchCompareValuesOrderForEveryKeyType() {
+        Random random = new Random(3);
+        List<IntFunction<Object>> generators = List.of(
+                i -> random.nextInt(50),
+                i -> i % 2 == 0 ? (Object) random.nextInt(50) : (Object) (random.nextInt(50) + 0.5),
+                i -> "k" + random.nextInt(50),
+                i -> random.nextBoolean(),
+                i -> i % 3 == 0 ? (Object) ("s" + random.nextInt(10)) : (Object) random.nextInt(10));
+
+        for (IntFunction<Object> generator : generators) {
+            for (int size : new int[] { 0, 1, 40, 20_000 }) {
+                Object[] values = new Object[size];
+                long[] rowIds = new long[size];
+                for (int i = 0; i < size; i++) {
+                    values[i] = random.nextInt(8) == 0 ? null : generator.apply(i);
+                    rowIds[i] = 1000L + i;
+                }
+                SortKeys keys = SortKeys.of(values, rowIds);
+
+                for (boolean descending : new boolean[] { false, true }) {
+                    Comparator<Integer> expected = (r1, r2) -> QueryEngine.compareValues(values[r1], values[r2]);
+                    List<Integer> reference = new ArrayList<>(IntStream.range(0, size).boxed().toList());
+                    reference.sort(descending ? expected.reversed() : expected);
+
+                    for (boolean parallel : new boolean[] { false, true }) {
+                        int[] rows = IntStream.range(0, size).toArray();
+                        keys.sort(rows, descending, parallel);
+                        assertThat(rows).containsExactly(reference.stream().mapToInt(Integer::intValue).toArray());
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,10 +1,18 @@
 package com.assignment.jsonquery.service;
 
+import com.assignment.jsonquery.cache.ColumnarDataset;
+import com.assignment.jsonquery.cache.DatasetCache;
+import com.assignment.jsonquery.config.DatasetProperties;
 import com.assignment.jsonquery.dto.InsertRecordResponse;
-import com.assignment.jsonquery.entity.DatasetRecord;
+import com.assignment.jsonquery.dto.SortByResponse;
 import com.assignment.jsonquery.exception.*;
-import com.assignment.jsonquery.repository.DatasetRecordRepository;
+import com.assignment.jsonquery.repository.RecordRow;
+import com.assignment.jsonquery.query.ListRecordTable;
+import com.assignment.jsonquery.query.QueryEngine;
+import com.assignment.jsonquery.storage.RecordStore;
+import com.assignment.jsonquery.storage.RecordStore.StoredSize;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,22 +20,55 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
 
+import java.io.ByteArrayOutputStream;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class DatasetServiceImplTest {
 
     @Mock
-    private DatasetRecordRepository repository;
+    private RecordStore recordStore;
 
     @Spy
     private ObjectMapper objectMapper = new ObjectMapper();
 
+    @Spy
+    private RecordCodec recordCodec = new RecordCodec(new ObjectMapper());
+
+    @Mock
+    private FieldIndexService fieldIndexService;
+
+    @Mock
+    private GroupViewService groupViewService;
+
+    @Spy
+    private DatasetCache datasetCache = new DatasetCache(new DatasetProperties());
+
+    @Spy
+    private QueryEngine queryEngine = new QueryEngine(new DatasetProperties());
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private QueryMetrics queryMetrics = new QueryMetrics(meterRegistry);
+
+    @Spy
+    private ExternalSorter externalSorter = new ExternalSorter(new DatasetProperties(), new ObjectMapper());
+
+    @Spy
+    private ExternalGrouper externalGrouper = new ExternalGrouper(new DatasetProperties(), externalSorter);
+
     @InjectMocks
     private DatasetServiceImpl datasetService;
 
@@ -44,20 +85,20 @@ class DatasetServiceImplTest {
 
     @Test
     void insertRecord_shouldReturnSuccessResponse() {
-        when(repository.existsByDatasetNameAndRecordId("test", 1L)).thenReturn(false);
-        when(repository.save(any(DatasetRecord.class))).thenReturn(DatasetRecord.builder().id(1L).build());
+        when(recordStore.exists("test", 1L)).thenReturn(false);
+        when(recordStore.append(eq("test"), anyList())).thenReturn(List.of(1L));
 
         InsertRecordResponse response = datasetService.insertRecord("test", sampleRecord);
 
         assertThat(response.getMessage()).isEqualTo("Record added successfully");
         assertThat(response.getDataset()).isEqualTo("test");
         assertThat(response.getRecordId()).isEqualTo(1L);
-        verify(repository).save(any(DatasetRecord.class));
+        verify(recordStore).append(eq("test"), anyList());
     }
 
     @Test
     void insertRecord_shouldThrowOnDuplicate() {
-        when(repository.existsByDatasetNameAndRecordId("test", 1L)).thenReturn(true);
+        when(recordStore.exists("test", 1L)).thenReturn(true);
 
         assertThatThrownBy(() -> datasetService.insertRecord("test", sampleRecord))
                 .isInstanceOf(DuplicateRecordException.class);
@@ -86,15 +127,12 @@ class DatasetServiceImplTest {
 
     @Test
     void groupBy_shouldGroupRecords() {
-        List<DatasetRecord> entities = List.of(
-                DatasetRecord.builder().id(1L).datasetName("test").recordId(1L)
-                        .jsonData("{\"id\":1,\"name\":\"John\",\"department\":\"Engineering\"}").build(),
-                DatasetRecord.builder().id(2L).datasetName("test").recordId(2L)
-                        .jsonData("{\"id\":2,\"name\":\"Jane\",\"department\":\"Engineering\"}").build(),
-                DatasetRecord.builder().id(3L).datasetName("test").recordId(3L)
-                        .jsonData("{\"id\":3,\"name\":\"Alice\",\"department\":\"Marketing\"}").build());
+        List<RecordRow> rows = List.of(
+                new RecordRow(1L, "{\"id\":1,\"name\":\"John\",\"department\":\"Engineering\"}"),
+                new RecordRow(2L, "{\"id\":2,\"name\":\"Jane\",\"department\":\"Engineering\"}"),
+                new RecordRow(3L, "{\"id\":3,\"name\":\"Alice\",\"department\":\"Marketing\"}"));
 
-        when(repository.findByDatasetName("test")).thenReturn(entities);
+        when(recordStore.scan("test")).thenReturn(rows.stream());
 
         Map<String, List<Map<String, Object>>> result = datasetService.groupBy("test", "department");
 
@@ -103,9 +141,31 @@ class DatasetServiceImplTest {
         assertThat(result.get("Marketing")).hasSize(1);
     }
 
+    @Test
+    void groupBy_shouldRecordStageTimesAndCacheLookups() {
+        List<RecordRow> rows = List.of(
+                new RecordRow(1L, "{\"id\":1,\"department\":\"Engineering\"}"),
+                new RecordRow(2L, "{\"id\":2,\"department\":\"Marketing\"}"),
+                new RecordRow(3L, "{\"id\":3,\"department\":\"Engineering\"}"));
+
+        when(recordStore.scan("test")).thenReturn(rows.stream());
+
+        // Loaded from the store, then answered from the dataset cache
+        datasetService.groupBy("test", "department");
+        datasetService.groupBy("test", "department");
+
+        assertThat(meterRegistry.get("dataset.cache.lookups").tag("result", "miss").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("dataset.cache.lookups").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("dataset.query.stage").tag("stage", "read").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("dataset.query.stage").tag("stage", "decode").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("dataset.query.stage").tag("stage", "execute").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("dataset.query.records").summary().totalAmount()).isEqualTo(6);
+        verify(recordStore, times(1)).scan("test");
+    }
+
     @Test
     void groupBy_shouldThrowOnEmptyDataset() {
-        when(repository.findByDatasetName("empty")).thenReturn(List.of());
+        when(recordStore.scan("empty")).thenReturn(Stream.empty());
 
         assertThatThrownBy(() -> datasetService.groupBy("empty", "department"))
                 .isInstanceOf(DatasetNotFoundException.class);
@@ -113,15 +173,12 @@ class DatasetServiceImplTest {
 
     @Test
     void sortBy_shouldSortAscending() {
-        List<DatasetRecord> entities = List.of(
-                DatasetRecord.builder().id(1L).datasetName("test").recordId(1L)
-                        .jsonData("{\"id\":1,\"age\":30}").build(),
-                DatasetRecord.builder().id(2L).datasetName("test").recordId(2L)
-                        .jsonData("{\"id\":2,\"age\":25}").build(),
-                DatasetRecord.builder().id(3L).datasetName("test").recordId(3L)
-                        .jsonData("{\"id\":3,\"age\":28}").build());
+        List<RecordRow> rows = List.of(
+                new RecordRow(1L, "{\"id\":1,\"age\":30}"),
+                new RecordRow(2L, "{\"id\":2,\"age\":25}"),
+                new RecordRow(3L, "{\"id\":3,\"age\":28}"));
 
-        when(repository.findByDatasetName("test")).thenReturn(entities);
+        when(recordStore.scan("test")).thenReturn(rows.stream());
 
         List<Map<String, Object>> result = datasetService.sortBy("test", "age", "asc");
 
@@ -133,13 +190,11 @@ class DatasetServiceImplTest {
 
     @Test
     void sortBy_shouldSortDescending() {
-        List<DatasetRecord> entities = List.of(
-                DatasetRecord.builder().id(1L).datasetName("test").recordId(1L)
-                        .jsonData("{\"id\":1,\"age\":30}").build(),
-                DatasetRecord.builder().id(2L).datasetName("test").recordId(2L)
-                        .jsonData("{\"id\":2,\"age\":25}").build());
+        List<RecordRow> rows = List.of(
+                new RecordRow(1L, "{\"id\":1,\"age\":30}"),
+                new RecordRow(2L, "{\"id\":2,\"age\":25}"));
 
-        when(repository.findByDatasetName("test")).thenReturn(entities);
+        when(recordStore.scan("test")).thenReturn(rows.stream());
 
         List<Map<String, Object>> result = datasetService.sortBy("test", "age", "desc");
 
@@ -149,9 +204,8 @@ class DatasetServiceImplTest {
 
     @Test
     void sortBy_shouldThrowOnInvalidOrder() {
-        List<DatasetRecord> entities = List.of(
-                DatasetRecord.builder().id(1L).datasetName("test").recordId(1L)
-                        .jsonData("{\"id\":1,\"age\":30}").build());
+        List<RecordRow> rows = List.of(
+                new RecordRow(1L, "{\"id\":1,\"age\":30}"));
 
         // The validation happens before fetching, so no stubbing needed for invalid
         // order
@@ -161,13 +215,11 @@ class DatasetServiceImplTest {
 
     @Test
     void sortBy_shouldDefaultToAscWhenOrderIsNull() {
-        List<DatasetRecord> entities = List.of(
-                DatasetRecord.builder().id(1L).datasetName("test").recordId(1L)
-                        .jsonData("{\"id\":1,\"age\":30}").build(),
-                DatasetRecord.builder().id(2L).datasetName("test").recordId(2L)
-                        .jsonData("{\"id\":2,\"age\":25}").build());
+        List<RecordRow> rows = List.of(
+                new RecordRow(1L, "{\"id\":1,\"age\":30}"),
+                new RecordRow(2L, "{\"id\":2,\"age\":25}"));
 
-        when(repository.findByDatasetName("test")).thenReturn(entities);
+        when(recordStore.scan("test")).thenReturn(rows.stream());
 
         List<Map<String, Object>> result = datasetService.sortBy("test", "age", null);
 
@@ -177,16 +229,182 @@ class DatasetServiceImplTest {
 
     @Test
     void groupBy_shouldHandleNullFieldValues() {
-        List<DatasetRecord> entities = List.of(
-                DatasetRecord.builder().id(1L).datasetName("test").recordId(1L)
-                        .jsonData("{\"id\":1,\"department\":\"Engineering\"}").build(),
-                DatasetRecord.builder().id(2L).datasetName("test").recordId(2L)
-                        .jsonData("{\"id\":2}").build());
+        List<RecordRow> rows = List.of(
+                new RecordRow(1L, "{\"id\":1,\"department\":\"Engineering\"}"),
+                new RecordRow(2L, "{\"id\":2}"));
 
-        when(repository.findByDatasetName("test")).thenReturn(entities);
+        when(recordStore.scan("test")).thenReturn(rows.stream());
 
         Map<String, List<Map<String, Object>>> result = datasetService.groupBy("test", "department");
 
         assertThat(result).containsKeys("Engineering", "null");
     }
+
+    @Test
+    void streamSortBy_shouldWriteStoredJsonInSortedOrder() throws Exception {
+        when(recordStore.scan("test")).thenReturn(Stream.of(
+                new RecordRow(10L, "{\"id\":1,\"age\":30}"),
+                new RecordRow(11L, "{\"id\":2,\"age\":25}"),
+                new RecordRow(12L, "{\"id\":3,\"age\":28}")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        datasetService.streamSortBy("test", "age", "asc", null, null, out);
+
+        // The sorted records are written from the sort itself, not read again
+        assertThat(out.toString()).isEqualTo(
+                "{\"sortedRecords\":[{\"id\":2,\"age\":25},{\"id\":3,\"age\":28},{\"id\":1,\"age\":30}]}");
+        verify(recordStore, never()).findRows(anyString(), any());
+    }
+
+    @Test
+    void needsExternalSortOrGroupBy_shouldCompareDecodedSizeWithBudgets() {
+        // 64MB budgets: 10MB stored in 100,000 records decodes to about 66MB, 70MB with sort keys
+        when(recordStore.storedSize("small")).thenReturn(new StoredSize(1000, 100_000));
+        when(recordStore.storedSize("large")).thenReturn(new StoredSize(100_000, DataSize.ofMegabytes(10).toBytes()));
+
+        assertThat(datasetService.needsExternalSort("small")).isFalse();
+        assertThat(datasetService.needsExternalSort("large")).isTrue();
+        assertThat(datasetService.needsExternalGroupBy("small")).isFalse();
+        assertThat(datasetService.needsExternalGroupBy("large")).isTrue();
+    }
+
+    @Test
+    void needsExternalSortOrGroupBy_shouldNotAskStoreForCachedDataset() {
+        when(datasetCache.get("cached")).thenReturn(Optional.of(ColumnarDataset.of(new ListRecordTable(List.of()))));
+
+        assertThat(datasetService.needsExternalSort("cached")).isFalse();
+        assertThat(datasetService.needsExternalGroupBy("cached")).isFalse();
+        verify(recordStore, never()).storedSize(anyString());
+    }
+
+    @Test
+    void streamGroupBy_shouldWriteStoredJsonGroupedInFirstSeenOrder() throws Exception {
+        when(recordStore.scan("test")).thenReturn(Stream.of(
+                new RecordRow(10L, "{\"id\":1,\"department\":\"Engineering\"}"),
+                new RecordRow(11L, "{\"id\":2,\"department\":\"Marketing\"}"),
+                new RecordRow(12L, "{\"id\":3,\"department\":\"Engineering\"}")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        datasetService.streamGroupBy("test", "department", null, null, out);
+
+        assertThat(out.toString()).isEqualTo("{\"groupedRecords\":{"
+                + "\"Engineering\":[{\"id\":1,\"department\":\"Engineering\"},{\"id\":3,\"department\":\"Engineering\"}],"
+                + "\"Marketing\":[{\"id\":2,\"department\":\"Marketing\"}]}}");
+        verify(recordStore, never()).findRows(anyString(), any());
+    }
+
+    @Test
+    void streamGroupBy_shouldThrowOnEmptyDataset() {
+        when(recordStore.scan("empty")).thenReturn(Stream.empty());
+
+        assertThatThrownBy(() -> datasetService.streamGroupBy("empty", "department", null, null, new ByteArrayOutputStream()))
+                .isInstanceOf(DatasetNotFoundException.class);
+    }
+
+    @Test
+    void groupBy_shouldUseFieldIndexWhenPresent() {
+        Map<String, List<Long>> indexed = new LinkedHashMap<>();
+        indexed.put("Marketing", List.of(11L));
+        indexed.put("Engineering", List.of(10L, 12L));
+        when(fieldIndexService.groupRowIds("test", "department")).thenReturn(Optional.of(indexed));
+        when(recordStore.scan("test")).thenReturn(Stream.of(
+                new RecordRow(10L, "{\"id\":1,\"department\":\"Engineering\"}"),
+                new RecordRow(11L, "{\"id\":2,\"department\":\"Marketing\"}"),
+                new RecordRow(12L, "{\"id\":3,\"department\":\"Engineering\"}")));
+
+        Map<String, List<Map<String, Object>>> result = datasetService.groupBy("test", "department");
+
+        assertThat(result.keySet()).containsExactly("Marketing", "Engineering");
+        assertThat(result.get("Engineering")).extracting(r -> r.get("id")).containsExactly(1, 3);
+        verify(datasetCache, never()).beginLoad("test");
+    }
+
+    @Test
+    void sortBy_shouldUseFieldIndexWhenPresent() {
+        when(fieldIndexService.sortedRowIds("test", "age", true)).thenReturn(Optional.of(List.of(10L, 12L, 11L)));
+        when(recordStore.scan("test")).thenReturn(Stream.of(
+                new RecordRow(10L, "{\"id\":1,\"age\":30}"),
+                new RecordRow(11L, "{\"id\":2,\"age\":25}"),
+                new RecordRow(12L, "{\"id\":3,\"age\":28}")));
+
+        List<Map<String, Object>> result = datasetService.sortBy("test", "age", "desc");
+
+        assertThat(result).extracting(r -> r.get("age")).containsExactly(30, 28, 25);
+        verify(datasetCache, never()).beginLoad("test");
+    }
+
+    @Test
+    void createIndex_shouldThrowOnEmptyDataset() {
+        when(recordStore.scan("empty")).thenReturn(Stream.empty());
+
+        assertThatThrownBy(() -> datasetService.createIndex("empty", "department"))
+                .isInstanceOf(DatasetNotFoundException.class);
+    }
+
+    @Test
+    void batchInsert_shouldSkipExistingAndRepeatedIds() {
+        when(recordStore.findExistingRecordIds("test", Set.of(1L, 2L, 3L))).thenReturn(Set.of(2L));
+        when(recordStore.append(eq("test"), anyList())).thenAnswer(invocation -> invocation.<List<RecordStore.NewRecord>>getArgument(1)
+                .stream().map(RecordStore.NewRecord::recordId).toList());
+
+        List<Map<String, Object>> batch = List.of(
+                Map.of("id", 1, "name", "John"),
+                Map.of("id", 2, "name", "Jane"),
+                Map.of("id", 1, "name", "John again"),
+                Map.of("id", 3, "name", "Alice"));
+
+        InsertRecordResponse response = datasetService.batchInsert("test", batch);
+
+        assertThat(response.getInsertedCount()).isEqualTo(2);
+        assertThat(response.getInsertedIds()).containsExactly(1L, 3L);
+        assertThat(response.getSkippedCount()).isEqualTo(2);
+        assertThat(response.getSkippedIds()).containsExactly(1L, 2L);
+        assertThat(response.getRecordId()).isNull();
+        verify(recordStore, never()).exists(anyString(), anyLong());
+    }
+
+    @Test
+    void groupBy_shouldServeRepeatedQueriesFromCache() {
+        List<RecordRow> rows = List.of(
+                new RecordRow(1L, "{\"id\":1,\"department\":\"Engineering\",\"age\":30}"),
+                new RecordRow(2L, "{\"id\":2,\"department\":\"Marketing\",\"age\":25}"));
+
+        when(recordStore.scan("test")).thenReturn(rows.stream());
+
+        Map<String, List<Map<String, Object>>> first = datasetService.groupBy("test", "department");
+        Map<String, List<Map<String, Object>>> second = datasetService.groupBy("test", "department");
+        List<Map<String, Object>> sorted = datasetService.sortBy("test", "age", "asc");
+
+        assertThat(second).isEqualTo(first);
+        assertThat(sorted).extracting(r -> r.get("id")).containsExactly(2, 1);
+        verify(recordStore, times(1)).scan("test");
+    }
+
+    @Test
+    void sortBy_shouldReadOnlyRequestedPageFromFieldIndex() {
+        when(fieldIndexService.sortedRowIds("test", "age", false)).thenReturn(Optional.of(List.of(11L, 12L, 10L)));
+        when(recordStore.findRows("test", List.of(11L, 12L))).thenReturn(List.of(
+                new RecordRow(12L, "{\"id\":3,\"age\":28}"),
+                new RecordRow(11L, "{\"id\":2,\"age\":25}")));
+
+        SortByResponse response = datasetService.sortBy("test", "age", "asc", 2, null, null, null, null);
+
+        assertThat(response.getSortedRecords()).extracting(r -> r.get("age")).containsExactly(25, 28);
+        assertThat(response.getNextCursor()).isNotNull();
+        verify(recordStore, never()).scan("test");
+    }
+
+    @Test
+    void sortBy_withWhereShouldReadOnlyIndexCandidates() {
+        when(fieldIndexService.candidateRowIds(eq("test"), any())).thenReturn(Optional.of(Set.of(10L, 12L)));
+        when(recordStore.findRows("test", List.of(10L, 12L))).thenReturn(List.of(
+                new RecordRow(12L, "{\"id\":3,\"age\":28,\"department\":\"Engineering\"}"),
+                new RecordRow(10L, "{\"id\":1,\"age\":30,\"department\":\"Marketing\"}")));
+
+        SortByResponse response = datasetService.sortBy("test", "age", "asc", null, null, null, null,
+                "department = Engineering");
+
+        assertThat(response.getSortedRecords()).extracting(r -> r.get("id")).containsExactly(3);
+        verify(datasetCache, never()).beginLoad("test");
+    }
 }
@@ -0,0 +1,111 @@
+package com.assignment.jsonquery.service;
+
+import com.assignment.jsonquery.config.DatasetProperties;
+import com.assignment.jsonquery.storage.RecordStore.StoredSize;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ExternalGrouperTest {
+
+    @TempDir
+    Path spillDir;
+
+    @Test
+    void spilledGroupingShouldKeepFirstSeenGroupOrder() throws Exception {
+        Random random = new Random(7);
+        int size = 5000;
+        String[] keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "g" + random.nextInt(800);
+        }
+
+        List<String> inMemory = group(grouper(DataSize.ofMegabytes(8)), keys, false);
+        List<String> spilled = group(grouper(DataSize.ofKilobytes(16)), keys, true);
+
+        assertThat(spilled).isEqualTo(inMemory);
+        assertThat(inMemory).isEqualTo(firstSeenOrder(keys));
+
+        try (Stream<Path> files = Files.list(spillDir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void spilledGroupingShouldHandleFarMoreGroupsThanFitTheBudget() throws Exception {
+        // About 21,000 groups: a table of their first row ids alone would take megabytes against a 16KB budget
+        Random random = new Random(3);
+        int size = 30_000;
+        String[] keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "group-" + random.nextInt(40_000);
+        }
+
+        assertThat(group(grouper(DataSize.ofKilobytes(16)), keys, true)).isEqualTo(firstSeenOrder(keys));
+        try (Stream<Path> files = Files.list(spillDir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void fitsInMemoryShouldEstimateDecodedRecords() {
+        ExternalGrouper grouper = grouper(DataSize.ofMegabytes(1));
+
+        // A record of 100 stored bytes is estimated at 6 * 100 + 64 bytes decoded
+        long fitting = DataSize.ofMegabytes(1).toBytes() / (6 * 100 + 64);
+        assertThat(grouper.fitsInMemory(new StoredSize(fitting, fitting * 100))).isTrue();
+        assertThat(grouper.fitsInMemory(new StoredSize(fitting + 1, (fitting + 1) * 100))).isFalse();
+        assertThat(grouper.fitsInMemory(new StoredSize(1, DataSize.ofKilobytes(200).toBytes()))).isFalse();
+    }
+
+    // Groups in first-seen order, each group's records in row order
+    private static List<String> firstSeenOrder(String[] keys) {
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            groups.computeIfAbsent(keys[i], k -> new ArrayList<>()).add(i);
+        }
+        List<String> flattened = new ArrayList<>();
+        groups.forEach((key, rows) -> rows.forEach(row -> flattened.add(key + ":" + row)));
+        return flattened;
+    }
+
+    private List<String> group(ExternalGrouper grouper, String[] keys, boolean expectSpill) throws Exception {
+        List<String> grouped = new ArrayList<>();
+        try (ExternalGrouper.Grouping grouping = grouper.start()) {
+            for (int i = 0; i < keys.length; i++) {
+                // Every third record is legacy JSON text
+                if (i % 3 == 0) {
+                    grouping.add(keys[i], 100L + i, null, "{\"index\":" + i + "}");
+                } else {
+                    grouping.add(keys[i], 100L + i, ByteBuffer.allocate(4).putInt(i).array(), null);
+                }
+            }
+            assertThat(grouping.isSpilled()).isEqualTo(expectSpill);
+
+            grouping.forEachGrouped((groupKey, recordData, legacyJson) -> grouped.add(groupKey + ":"
+                    + (recordData != null
+                            ? ByteBuffer.wrap(recordData).getInt()
+                            : Integer.parseInt(legacyJson.replaceAll("\\D", "")))));
+        }
+        return grouped;
+    }
+
+    private ExternalGrouper grouper(DataSize memoryBudget) {
+        DatasetProperties properties = new DatasetProperties();
+        properties.getGroup().setMemoryBudget(memoryBudget);
+        properties.getGroup().setSpillPartitions(8);
+        properties.getGroup().setSpillDir(spillDir.toString());
+        properties.getSort().setMemoryBudget(DataSize.ofKilobytes(16));
+        properties.getSort().setSpillDir(spillDir.toString());
+        return new ExternalGrouper(properties, new ExternalSorter(properties, new ObjectMapper()));
+    }
+}
@@ -0,0 +1,111 @@
+package com.assignment.jsonquery.service;
+
+import com.assignment.jsonquery.config.DatasetProperties;
+import com.assignment.jsonquery.query.SortKeys;
+import com.assignment.jsonquery.storage.RecordStore.StoredSize;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ExternalSorterTest {
+
+    @TempDir
+    Path spillDir;
+
+    @Test
+    void spilledRunsShouldMergeInSortKeysOrder() throws Exception {
+        ExternalSorter sorter = sorter(DataSize.ofKilobytes(8));
+        Random random = new Random(11);
+        List<IntFunction<Object>> generators = List.of(
+                i -> random.nextInt(100),
+                i -> random.nextInt(100) + 0.25,
+                i -> "k" + random.nextInt(100),
+                i -> Map.of("nested", random.nextInt(5)));
+
+        for (IntFunction<Object> generator : generators) {
+            int size = 3000;
+            Object[] keys = new Object[size];
+            long[] rowIds = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = random.nextInt(10) == 0 ? null : generator.apply(i);
+                rowIds[i] = 500L + i;
+            }
+
+            for (boolean descending : new boolean[] { false, true }) {
+                int[] expected = IntStream.range(0, size).toArray();
+                SortKeys.of(keys, rowIds).sort(expected, descending, false);
+
+                List<Integer> actual = new ArrayList<>();
+                try (ExternalSorter.Sort sort = sorter.start(descending)) {
+                    for (int i = 0; i < size; i++) {
+                        // Every third record is legacy JSON text
+                        if (i % 3 == 0) {
+                            sort.add(keys[i], rowIds[i], null, "{\"index\":" + i + "}");
+                        } else {
+                            sort.add(keys[i], rowIds[i], ByteBuffer.allocate(4).putInt(i).array(), null);
+                        }
+                    }
+                    assertThat(sort.spilledRuns()).isGreaterThan(1);
+
+                    sort.forEachSorted((label, recordData, legacyJson) -> actual.add(recordData != null
+                            ? ByteBuffer.wrap(recordData).getInt()
+                            : Integer.parseInt(legacyJson.replaceAll("\\D", ""))));
+                }
+
+                assertThat(actual).containsExactly(Arrays.stream(expected).boxed().toArray(Integer[]::new));
+                try (Stream<Path> files = Files.list(spillDir)) {
+                    assertThat(files).isEmpty();
+                }
+            }
+        }
+    }
+
+    @Test
+    void sortWithinBudgetShouldNotSpill() throws Exception {
+        ExternalSorter sorter = sorter(DataSize.ofMegabytes(1));
+
+        List<String> sorted = new ArrayList<>();
+        try (ExternalSorter.Sort sort = sorter.start(false)) {
+            sort.add("b", 1, null, "{\"id\":1}");
+            sort.add("a", 2, null, "{\"id\":2}");
+            sort.add(null, 3, null, "{\"id\":3}");
+            sort.add("a", 0, null, "{\"id\":4}");
+            sort.forEachSorted((label, recordData, legacyJson) -> sorted.add(legacyJson));
+            assertThat(sort.spilledRuns()).isZero();
+        }
+
+        assertThat(sorted).containsExactly("{\"id\":3}", "{\"id\":4}", "{\"id\":2}", "{\"id\":1}");
+    }
+
+    @Test
+    void fitsInMemoryShouldEstimateDecodedRecordsWithSortKeys() {
+        ExternalSorter sorter = sorter(DataSize.ofMegabytes(1));
+
+        // A record of 100 stored bytes is estimated at 6 * 100 + 64 bytes decoded, plus 40 of sort key
+        long fitting = DataSize.ofMegabytes(1).toBytes() / (6 * 100 + 64 + 40);
+        assertThat(sorter.fitsInMemory(new StoredSize(fitting, fitting * 100))).isTrue();
+        assertThat(sorter.fitsInMemory(new StoredSize(fitting + 1, (fitting + 1) * 100))).isFalse();
+
+        // Far less than the budget is stored, but not once decoded
+        assertThat(sorter.fitsInMemory(new StoredSize(1, DataSize.ofKilobytes(200).toBytes()))).isFalse();
+        assertThat(sorter.fitsInMemory(StoredSize.EMPTY)).isTrue();
+    }
+
+    private ExternalSorter sorter(DataSize memoryBudget) {
+        DatasetProperties properties = new DatasetProperties();
+        properties.getSort().setMemoryBudget(memoryBudget);
+        properties.getSort().setSpillDir(spillDir.toString());
+        return new ExternalSorter(properties, new ObjectMapper());
+    }
+}
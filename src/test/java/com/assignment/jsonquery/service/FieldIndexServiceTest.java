@@ -0,0 +1,48 @@
+package com.assignment.jsonquery.service;
+
+import com.assignment.jsonquery.query.Filter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class FieldIndexServiceTest {
+
+    private static final String DATASET = "index_filter_dataset";
+
+    @Autowired
+    private FieldIndexService fieldIndexService;
+
+    @Autowired
+    private DatasetService datasetService;
+
+    @Test
+    void candidateRowIds_shouldNarrowIndexedConditionsOnly() {
+        datasetService.batchInsert(DATASET, List.of(
+                Map.of("id", 1, "dept", "Engineering", "age", 30),
+                Map.of("id", 2, "dept", "Engineering", "age", 25),
+                Map.of("id", 3, "dept", "Marketing", "age", 41),
+                Map.of("id", 4, "dept", "Sales")));
+        datasetService.createIndex(DATASET, "dept");
+        datasetService.createIndex(DATASET, "age");
+
+        assertThat(candidates("dept = Engineering")).isEqualTo(2);
+        assertThat(candidates("age > 26 AND unindexed = 1")).isEqualTo(2);
+        assertThat(candidates("age >= 30 AND dept in (Engineering, Sales)")).isEqualTo(1);
+        assertThat(candidates("dept < 'N' OR age = null")).isEqualTo(4);
+        assertThat(candidates("exists(age)")).isEqualTo(3);
+
+        assertThat(fieldIndexService.candidateRowIds(DATASET, Filter.parse("dept != Sales"))).isEmpty();
+        assertThat(fieldIndexService.candidateRowIds(DATASET, Filter.parse("age > 26 OR unindexed = 1"))).isEmpty();
+    }
+
+    private int candidates(String where) {
+        return fieldIndexService.candidateRowIds(DATASET, Filter.parse(where)).orElseThrow().size();
+    }
+}
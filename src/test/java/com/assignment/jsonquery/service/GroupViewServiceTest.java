@@ -0,0 +1,80 @@
+package com.assignment.jsonquery.service;
+
+import com.assignment.jsonquery.exception.ViewAlreadyExistsException;
+import com.assignment.jsonquery.query.Aggregate;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class GroupViewServiceTest {
+
+    private static final String VIEWED = "view_dataset";
+    private static final String PLAIN = "view_reference_dataset";
+    private static final String AGGREGATES = "count,sum(salary),avg(age),min(age),max(salary),count(age)";
+
+    @Autowired
+    private GroupViewService groupViewService;
+
+    @Autowired
+    private DatasetService datasetService;
+
+    @Test
+    void aggregate_shouldMatchScanAfterIncrementalInserts() {
+        List<Map<String, Object>> initial = List.of(
+                record(1, "Engineering", 30, 100),
+                record(2, "Sales", 25, 80),
+                record(3, 10, 41, 75.5));
+        List<Map<String, Object>> later = List.of(
+                record(4, "Sales", 35, 90),
+                record(5, 9, null, 60),
+                record(6, "Marketing", 28, Long.MAX_VALUE));
+
+        insert(VIEWED, initial);
+        datasetService.createView(VIEWED, "dept", AGGREGATES);
+        insert(VIEWED, later);
+        insert(PLAIN, initial);
+        insert(PLAIN, later);
+
+        for (String groupOrder : Arrays.asList(null, "key", "key:desc", "sum(salary):desc", "count")) {
+            assertThat(datasetService.aggregate(VIEWED, "dept", "avg(age),count", groupOrder, null))
+                    .containsExactlyEntriesOf(datasetService.aggregate(PLAIN, "dept", "avg(age),count", groupOrder,
+                            null));
+            assertThat(datasetService.aggregate(VIEWED, "dept", AGGREGATES, groupOrder, null))
+                    .containsExactlyEntriesOf(datasetService.aggregate(PLAIN, "dept", AGGREGATES, groupOrder, null));
+        }
+        assertThat(groupViewService.aggregate(VIEWED, "dept", Aggregate.parseList("count,max(salary)"), null))
+                .isPresent();
+    }
+
+    @Test
+    void aggregate_shouldOnlyAnswerAggregatesOfTheView() {
+        insert(VIEWED, List.of(record(1, "Engineering", 30, 100)));
+        datasetService.createView(VIEWED, "dept", null);
+
+        assertThat(groupViewService.aggregate(VIEWED, "dept", Aggregate.parseList("count"), null)).isPresent();
+        assertThat(groupViewService.aggregate(VIEWED, "dept", Aggregate.parseList("sum(age)"), null)).isEmpty();
+        assertThat(groupViewService.aggregate(VIEWED, "age", Aggregate.parseList("count"), null)).isEmpty();
+        assertThatThrownBy(() -> datasetService.createView(VIEWED, "dept", "sum(age)"))
+                .isInstanceOf(ViewAlreadyExistsException.class);
+    }
+
+    private void insert(String dataset, List<Map<String, Object>> records) {
+        datasetService.batchInsert(dataset, records);
+    }
+
+    private static Map<String, Object> record(int id, Object dept, Integer age, Number salary) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("id", id);
+        record.put("dept", dept);
+        record.put("age", age);
+        record.put("salary", salary);
+        return record;
+    }
+}
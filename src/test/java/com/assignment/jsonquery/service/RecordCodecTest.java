@@ -0,0 +1,89 @@
+package com.assignment.jsonquery.service;
+
+import com.assignment.jsonquery.query.FieldPath;
+import com.assignment.jsonquery.query.Projection;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RecordCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RecordCodec codec = new RecordCodec(objectMapper);
+
+    @Test
+    void decode_shouldReturnSameValuesAsParsingJsonText() throws Exception {
+        String json = "{\"id\":1,\"name\":\"Jane\",\"big\":12345678901,\"huge\":123456789012345678901234567890,"
+                + "\"rating\":9.5,\"active\":true,\"missing\":null,\"nested\":{\"a\":[1,\"x\",2.0]}}";
+        Map<String, Object> parsed = codec.decode(null, json);
+
+        Map<String, Object> decoded = codec.decode(codec.encode(parsed), null);
+
+        assertThat(decoded).containsExactlyEntriesOf(parsed);
+        assertThat(decoded.get("big")).isInstanceOf(Long.class);
+        assertThat(decoded.get("huge")).isInstanceOf(BigInteger.class);
+        assertThat(codec.encode(parsed).length).isLessThan(json.length());
+    }
+
+    @Test
+    void write_shouldCopyBinaryAndLegacyRecordsAsJson() throws Exception {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("id", 2);
+        record.put("tags", List.of("a", "b"));
+
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.writeStartArray();
+            codec.write(codec.encode(record), null, generator);
+            codec.write(null, "{\"id\":3}", generator);
+            generator.writeEndArray();
+        }
+
+        assertThat(out.toString()).isEqualTo("[{\"id\":2,\"tags\":[\"a\",\"b\"]},{\"id\":3}]");
+    }
+
+    @Test
+    void projectedDecodeAndWrite_shouldSkipOtherFields() throws Exception {
+        String json = "{\"id\":4,\"blob\":{\"rows\":[[1,2],[3,{\"x\":null}]]},\"name\":\"Ann\",\"age\":null}";
+        byte[] recordData = codec.encode(codec.decode(null, json));
+        Projection projection = Projection.parse("name, age, absent");
+
+        for (byte[] data : new byte[][] { recordData, null }) {
+            Map<String, Object> decoded = codec.decode(data, json, projection);
+            assertThat(decoded).containsExactly(entry("name", "Ann"), entry("age", null));
+
+            StringWriter out = new StringWriter();
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                codec.write(data, json, projection, generator);
+            }
+            assertThat(out.toString()).isEqualTo("{\"name\":\"Ann\",\"age\":null}");
+        }
+    }
+
+    @Test
+    void read_shouldWalkStraightToNestedValue() {
+        String json = "{\"id\":5,\"blob\":{\"rows\":[[1,2]]},\"address\":{\"zip\":\"0150\",\"city\":\"Oslo\"},"
+                + "\"tags\":[{\"k\":\"a\"},[3],\"c\"],\"stats\":{\"scores\":[7,{\"v\":9}]}}";
+        byte[] recordData = codec.encode(codec.decode(null, json));
+
+        for (byte[] data : new byte[][] { recordData, null }) {
+            assertThat(codec.read(data, json, FieldPath.parse("id"))).isEqualTo(5);
+            assertThat(codec.read(data, json, FieldPath.parse("address.city"))).isEqualTo("Oslo");
+            assertThat(codec.read(data, json, FieldPath.parse("tags[2]"))).isEqualTo("c");
+            assertThat(codec.read(data, json, FieldPath.parse("stats.scores[1].v"))).isEqualTo(9);
+            assertThat(codec.read(data, json, FieldPath.parse("stats.scores[1]"))).isEqualTo(Map.of("v", 9));
+
+            assertThat(codec.read(data, json, FieldPath.parse("absent"))).isNull();
+            assertThat(codec.read(data, json, FieldPath.parse("address.street"))).isNull();
+            assertThat(codec.read(data, json, FieldPath.parse("tags[3]"))).isNull();
+            assertThat(codec.read(data, json, FieldPath.parse("id.value"))).isNull();
+            assertThat(codec.read(data, json, FieldPath.parse("address[0]"))).isNull();
+        }
+    }
+}
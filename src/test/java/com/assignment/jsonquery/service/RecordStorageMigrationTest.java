@@ -0,0 +1,56 @@
+package com.assignment.jsonquery.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest
+class RecordStorageMigrationTest {
+
+    private static final String DATASET = "legacy_dataset";
+
+    @Autowired
+    private RecordStorageMigration migration;
+
+    @Autowired
+    private DatasetService datasetService;
+
+    @Autowired
+    private RecordCodec recordCodec;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from dataset_records where dataset_name = ?", DATASET);
+    }
+
+    @Test
+    void migrate_shouldConvertLegacyJsonRowsToBinary() {
+        jdbcTemplate.update("insert into dataset_records (id, dataset_name, record_id, json_data) values (?, ?, ?, ?)",
+                -1L, DATASET, 1L, "{\"id\":1,\"name\":\"John\",\"rating\":9.0,\"tags\":[\"a\",\"b\"]}");
+
+        // Legacy rows are readable before they are migrated
+        assertThat(datasetService.sortBy(DATASET, "id", "asc")).hasSize(1);
+
+        assertThat(migration.migrate()).isEqualTo(1);
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "select record_data, json_data from dataset_records where id = -1");
+        assertThat(row.get("JSON_DATA")).isNull();
+        assertThat(recordCodec.decode((byte[]) row.get("RECORD_DATA"), null)).containsExactly(
+                entry("id", 1),
+                entry("name", "John"),
+                entry("rating", 9.0),
+                entry("tags", List.of("a", "b")));
+        assertThat(migration.migrate()).isZero();
+    }
+}
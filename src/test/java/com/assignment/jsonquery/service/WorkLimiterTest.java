@@ -0,0 +1,48 @@
+package com.assignment.jsonquery.service;
+
+import com.assignment.jsonquery.config.DatasetProperties;
+import com.assignment.jsonquery.exception.ServerBusyException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.*;
+
+class WorkLimiterTest {
+
+    @Test
+    @SuppressWarnings("try")
+    void ingest_shouldNotTakeQuerySlots() {
+        WorkLimiter limiter = new WorkLimiter(properties(true));
+
+        try (WorkLimiter.Permit ingest = limiter.ingest()) {
+            assertThatThrownBy(limiter::ingest).isInstanceOf(ServerBusyException.class);
+            try (WorkLimiter.Permit query = limiter.query()) {
+                assertThat(query).isNotNull();
+            }
+        }
+
+        try (WorkLimiter.Permit ingest = limiter.ingest()) {
+            assertThat(ingest).isNotNull();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    void disabledLimits_shouldNeverReject() {
+        WorkLimiter limiter = new WorkLimiter(properties(false));
+
+        try (WorkLimiter.Permit first = limiter.ingest(); WorkLimiter.Permit second = limiter.ingest()) {
+            assertThat(second).isNotNull();
+        }
+    }
+
+    private static DatasetProperties properties(boolean enabled) {
+        DatasetProperties properties = new DatasetProperties();
+        properties.getConcurrency().setEnabled(enabled);
+        properties.getConcurrency().setMaxIngest(1);
+        properties.getConcurrency().setMaxQuery(1);
+        properties.getConcurrency().setAcquireTimeout(Duration.ofMillis(10));
+        return properties;
+    }
+}
@@ -0,0 +1,117 @@
+package com.assignment.jsonquery.storage;
+
+import com.assignment.jsonquery.config.DatasetProperties;
+import com.assignment.jsonquery.exception.DuplicateRecordException;
+import com.assignment.jsonquery.repository.RecordRow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+class SegmentRecordStoreTest {
+
+    private static final String DATASET = "segment dataset";
+
+    @TempDir
+    Path dir;
+
+    private SegmentRecordStore store;
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void append_shouldKeepInsertionOrderAcrossSegments() throws IOException {
+        // Room for two 4-byte records per segment
+        store = open(DataSize.ofBytes(8 + 2 * (12 + 4)));
+
+        List<Long> rowIds = store.append(DATASET, records(1, 2, 3, 4, 5));
+
+        assertThat(rowIds).isSorted().doesNotHaveDuplicates();
+        assertThat(scannedIds()).containsExactly(1L, 2L, 3L, 4L, 5L);
+        try (Stream<Path> segments = Files.list(dir.resolve("segments").resolve("segment+dataset"))) {
+            assertThat(segments).hasSize(3);
+        }
+
+        assertThat(store.findRows(DATASET, List.of(rowIds.get(3), rowIds.get(0), 42L)))
+                .extracting(row -> recordId(row))
+                .containsExactlyInAnyOrder(4L, 1L);
+        assertThat(store.scan("unknown")).isEmpty();
+        assertThat(store.storedSize(DATASET)).isEqualTo(new RecordStore.StoredSize(5, 5 * 4));
+        assertThat(store.storedSize("unknown")).isEqualTo(RecordStore.StoredSize.EMPTY);
+    }
+
+    @Test
+    void append_shouldRejectStoredAndRepeatedIds() {
+        store = open(DataSize.ofMegabytes(1));
+        store.append(DATASET, records(1, 2));
+
+        assertThatThrownBy(() -> store.append(DATASET, records(3, 2)))
+                .isInstanceOf(DuplicateRecordException.class);
+        assertThatThrownBy(() -> store.append(DATASET, records(4, 4)))
+                .isInstanceOf(DuplicateRecordException.class);
+
+        assertThat(scannedIds()).containsExactly(1L, 2L);
+        assertThat(store.findExistingRecordIds(DATASET, List.of(1L, 3L, 4L))).isEqualTo(Set.of(1L));
+    }
+
+    @Test
+    void open_shouldRebuildIndexAndCutOffIncompleteRecord() throws IOException {
+        store = open(DataSize.ofMegabytes(1));
+        List<Long> rowIds = store.append(DATASET, records(1, 2));
+        store.close();
+
+        // A record header whose data never made it to the file
+        Path segment = dir.resolve("segments").resolve("segment+dataset").resolve("00000000.seg");
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(12).putInt(100).putLong(3L).flip());
+        }
+
+        store = open(DataSize.ofMegabytes(1));
+        assertThat(store.exists(DATASET, 2L)).isTrue();
+        assertThat(store.exists(DATASET, 3L)).isFalse();
+        assertThat(scannedIds()).containsExactly(1L, 2L);
+
+        assertThat(store.append(DATASET, records(3))).allMatch(rowId -> rowId > rowIds.get(1));
+        assertThat(scannedIds()).containsExactly(1L, 2L, 3L);
+    }
+
+    private SegmentRecordStore open(DataSize segmentSize) {
+        DatasetProperties properties = new DatasetProperties();
+        properties.getStorage().setDir(dir.toString());
+        properties.getStorage().setSegmentSize(segmentSize);
+        return new SegmentRecordStore(properties);
+    }
+
+    private List<Long> scannedIds() {
+        try (Stream<RecordRow> rows = store.scan(DATASET)) {
+            return rows.map(SegmentRecordStoreTest::recordId).toList();
+        }
+    }
+
+    // Each test record's data is its id as 4 bytes
+    private static List<RecordStore.NewRecord> records(int... ids) {
+        return Arrays.stream(ids)
+                .mapToObj(id -> new RecordStore.NewRecord((long) id, ByteBuffer.allocate(4).putInt(id).array()))
+                .toList();
+    }
+
+    private static long recordId(RecordRow row) {
+        return ByteBuffer.wrap(row.recordData()).getInt();
+    }
+}